@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.benchmark;
+
+import android.content.res.AssetManager;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.android_utilities.library.helpers.AssetsHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Benchmarks for the {@link AssetsHelper} class.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BenchmarkAssetsHelper {
+	/**
+	 * An asset which is stored uncompressed in the APK, so that the helper transfers it through a
+	 * file descriptor instead of streaming it.
+	 */
+	private static final String UNCOMPRESSED_ASSET = "uncompressed test file.dat";
+
+	/**
+	 * Provides access to the assets.
+	 */
+	private AssetManager assets;
+
+	/**
+	 * The directory to copy the assets to.
+	 */
+	private File outputDirectory;
+
+	/**
+	 * Initialises the benchmarking environment.
+	 *
+	 * @throws IOException
+	 * 		if the asset cannot be opened as a file descriptor
+	 */
+	@Before
+	public void setup() throws IOException {
+		// Use this context instead of the target context so that the assets can be accessed
+		assets = InstrumentationRegistry.getContext().getAssets();
+		outputDirectory = InstrumentationRegistry.getTargetContext().getCacheDir();
+
+		// Fails if the asset was compressed, in which case the transfer path would not be measured
+		assets.openFd(UNCOMPRESSED_ASSET).close();
+	}
+
+	/**
+	 * Compares {@link AssetsHelper#copyAssetsToDirectory(AssetManager, File, String...)}, which
+	 * transfers uncompressed assets using FileChannels, with the original implementation, which
+	 * streamed every asset through a 1 KB heap buffer.
+	 *
+	 * @throws Exception
+	 * 		if an asset cannot be copied
+	 */
+	@Test
+	@SuppressWarnings("MissingPermission") // The cache directory does not need permissions
+	public void benchmarkCopyAssetsToDirectory_transferVersusStream() throws Exception {
+		final File targetFile = new File(outputDirectory, UNCOMPRESSED_ASSET);
+
+		BenchmarkRunner.compare("copyAssetsToDirectory", new BenchmarkRunner.Operation() {
+			@Override
+			public long run() throws Exception {
+				return copyUsingStream(assets, UNCOMPRESSED_ASSET, targetFile);
+			}
+		}, new BenchmarkRunner.Operation() {
+			@Override
+			public long run() throws Exception {
+				AssetsHelper.copyAssetsToDirectory(assets, outputDirectory, UNCOMPRESSED_ASSET);
+				return targetFile.length();
+			}
+		});
+	}
+
+	/**
+	 * Copies an asset using the original 1 KB stream loop.
+	 *
+	 * @param assetManager
+	 * 		provides access to the asset
+	 * @param assetName
+	 * 		the name of the asset to copy
+	 * @param targetFile
+	 * 		the file to copy the asset to
+	 * @return the number of bytes copied
+	 * @throws IOException
+	 * 		if the asset cannot be copied
+	 */
+	private static long copyUsingStream(final AssetManager assetManager, final String assetName,
+			final File targetFile) throws IOException {
+		final InputStream source = assetManager.open(assetName);
+		final OutputStream target = new FileOutputStream(targetFile);
+		long bytesCopied = 0;
+
+		try {
+			final byte[] buffer = new byte[1024];
+			int numberOfBytesRead;
+
+			while ((numberOfBytesRead = source.read(buffer)) != -1) {
+				target.write(buffer, 0, numberOfBytesRead);
+				bytesCopied += numberOfBytesRead;
+			}
+		} finally {
+			source.close();
+			target.close();
+		}
+
+		return bytesCopied;
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.benchmark;
+
+import android.graphics.Color;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.android_utilities.library.helpers.ColorHelper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+/**
+ * Benchmarks for the {@link ColorHelper} class.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BenchmarkColorHelper {
+	/**
+	 * The step between component values in the grid of background colors.
+	 */
+	private static final int COLOR_GRID_STEP = 5;
+
+	/**
+	 * The number of pairs of colors to blend in each run of the blend benchmark.
+	 */
+	private static final int BLEND_COUNT = 100000;
+
+	/**
+	 * The seed used to generate the colors to blend, so that every run blends the same colors.
+	 */
+	private static final long BLEND_SEED = 42;
+
+	/**
+	 * Compares {@link ColorHelper#calculateBestTextColor(int)}, which linearises the components
+	 * using a lookup table, with the original implementation, which called {@link Math#pow(double,
+	 * double)} for each component.
+	 *
+	 * @throws Exception
+	 * 		if the benchmark cannot be run
+	 */
+	@Test
+	public void benchmarkCalculateBestTextColor_tableVersusPow() throws Exception {
+		BenchmarkRunner.compare("calculateBestTextColor", new BenchmarkRunner.Operation() {
+			@Override
+			public long run() {
+				long blackCount = 0;
+
+				for (int red = 0; red <= 255; red += COLOR_GRID_STEP) {
+					for (int green = 0; green <= 255; green += COLOR_GRID_STEP) {
+						for (int blue = 0; blue <= 255; blue += COLOR_GRID_STEP) {
+							if (calculateBestTextColorUsingPow(Color.rgb(red, green, blue)) ==
+									Color.BLACK) {
+								blackCount++;
+							}
+						}
+					}
+				}
+
+				return blackCount;
+			}
+		}, new BenchmarkRunner.Operation() {
+			@Override
+			public long run() {
+				long blackCount = 0;
+
+				for (int red = 0; red <= 255; red += COLOR_GRID_STEP) {
+					for (int green = 0; green <= 255; green += COLOR_GRID_STEP) {
+						for (int blue = 0; blue <= 255; blue += COLOR_GRID_STEP) {
+							if (ColorHelper.calculateBestTextColor(Color.rgb(red, green, blue)) ==
+									Color.BLACK) {
+								blackCount++;
+							}
+						}
+					}
+				}
+
+				return blackCount;
+			}
+		});
+	}
+
+	/**
+	 * Compares {@link ColorHelper#blendColorsFixedPoint(int, int, int)}, which blends using integer
+	 * arithmetic, with {@link ColorHelper#blendColors(int, int, float)}, which blends using floats.
+	 * Both blend the same colors using the same ratio.
+	 *
+	 * @throws Exception
+	 * 		if the benchmark cannot be run
+	 */
+	@Test
+	public void benchmarkBlendColors_fixedPointVersusFloat() throws Exception {
+		final Random random = new Random(BLEND_SEED);
+		final int[] colors1 = new int[BLEND_COUNT];
+		final int[] colors2 = new int[BLEND_COUNT];
+
+		for (int i = 0; i < BLEND_COUNT; i++) {
+			colors1[i] = random.nextInt();
+			colors2[i] = random.nextInt();
+		}
+
+		BenchmarkRunner.compare("blendColors", new BenchmarkRunner.Operation() {
+			@Override
+			public long run() {
+				long sum = 0;
+
+				for (int i = 0; i < BLEND_COUNT; i++) {
+					sum += ColorHelper.blendColors(colors1[i], colors2[i], 0.25f);
+				}
+
+				return sum;
+			}
+		}, new BenchmarkRunner.Operation() {
+			@Override
+			public long run() {
+				long sum = 0;
+
+				for (int i = 0; i < BLEND_COUNT; i++) {
+					sum += ColorHelper.blendColorsFixedPoint(colors1[i], colors2[i], 64);
+				}
+
+				return sum;
+			}
+		});
+	}
+
+	/**
+	 * The original implementation of {@link ColorHelper#calculateBestTextColor(int)}.
+	 *
+	 * @param backgroundColor
+	 * 		the color of the background behind the text, as an ARGB hex code
+	 * @return white (0xFFFFFF) or black (0x000000)
+	 */
+	private static int calculateBestTextColorUsingPow(final int backgroundColor) {
+		final float[] preConversionValues = {((float) Color.red(backgroundColor)) / 255,
+				((float) Color.green(backgroundColor)) / 255,
+				((float) Color.blue(backgroundColor)) / 255};
+
+		final float[] postConversionValues = new float[3];
+
+		for (int i = 0; i < 3; i++) {
+			final float x = preConversionValues[i];
+
+			if (x <= 0.04045) {
+				postConversionValues[i] = (float) (x / 12.92);
+			} else {
+				postConversionValues[i] = (float) Math.pow((x + 0.055) / 1.055, 2.4);
+			}
+		}
+
+		final float luminance = (float) (0.2126 * postConversionValues[0] +
+				0.7152 * postConversionValues[1] +
+				0.0722 * postConversionValues[2]);
+
+		return luminance > 0.179 ? Color.BLACK : Color.WHITE;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.benchmark;
+
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.util.Log;
+
+import java.util.Arrays;
+
+/**
+ * Times operations and reports the results. Each operation is run several times to allow the
+ * runtime to compile it, and then the median of several measured runs is taken so that a single
+ * garbage collection or scheduling delay does not skew the result. Results are sent to the
+ * instrumentation as status reports, so they appear in the output of {@code am instrument -r},
+ * and are also logged.
+ */
+public class BenchmarkRunner {
+	/**
+	 * Used during debugging to identify this class.
+	 */
+	private static final String TAG = "[BenchmarkRunner]";
+
+	/**
+	 * The number of unmeasured runs performed before measuring an operation.
+	 */
+	private static final int WARMUP_RUNS = 5;
+
+	/**
+	 * The number of measured runs of an operation.
+	 */
+	private static final int MEASURED_RUNS = 15;
+
+	/**
+	 * The status code used when reporting results to the instrumentation.
+	 */
+	private static final int RESULT_STATUS_CODE = 2;
+
+	/**
+	 * Receives values computed by benchmarks, so that the runtime cannot discard the work which
+	 * produced them.
+	 */
+	@SuppressWarnings("unused")
+	private static volatile long sink;
+
+	/**
+	 * Measures the median duration of an operation.
+	 *
+	 * @param operation
+	 * 		the operation to measure, not null
+	 * @return the median duration of the measured runs, measured in nanoseconds
+	 * @throws Exception
+	 * 		if the operation throws an exception
+	 */
+	public static long measureMedianNanos(final Operation operation) throws Exception {
+		for (int i = 0; i < WARMUP_RUNS; i++) {
+			sink += operation.run();
+		}
+
+		final long[] durations = new long[MEASURED_RUNS];
+
+		for (int i = 0; i < MEASURED_RUNS; i++) {
+			final long start = System.nanoTime();
+			sink += operation.run();
+			durations[i] = System.nanoTime() - start;
+		}
+
+		Arrays.sort(durations);
+
+		return durations[MEASURED_RUNS / 2];
+	}
+
+	/**
+	 * Measures an operation and the baseline it replaces, and reports both durations and the
+	 * speedup.
+	 *
+	 * @param name
+	 * 		identifies the comparison in the results, not null
+	 * @param baseline
+	 * 		the original implementation, not null
+	 * @param candidate
+	 * 		the implementation being compared with the baseline, not null
+	 * @throws Exception
+	 * 		if either operation throws an exception
+	 */
+	public static void compare(final String name, final Operation baseline,
+			final Operation candidate) throws Exception {
+		final long baselineNanos = measureMedianNanos(baseline);
+		final long candidateNanos = measureMedianNanos(candidate);
+		final double speedup = (double) baselineNanos / Math.max(candidateNanos, 1);
+
+		final Bundle results = new Bundle();
+		results.putLong(name + ".baselineNanos", baselineNanos);
+		results.putLong(name + ".candidateNanos", candidateNanos);
+		results.putDouble(name + ".speedup", speedup);
+		InstrumentationRegistry.getInstrumentation().sendStatus(RESULT_STATUS_CODE, results);
+
+		Log.i(TAG, "[" + name + ": baseline " + baselineNanos + "ns, candidate " +
+				candidateNanos + "ns, speedup " + String.format("%.2f", speedup) + "x]");
+	}
+
+	/**
+	 * An operation to measure.
+	 */
+	public interface Operation {
+		/**
+		 * Performs the operation once.
+		 *
+		 * @return a value derived from the work done, which is kept so that the work cannot be
+		 * optimised away
+		 * @throws Exception
+		 * 		if the operation fails
+		 */
+		long run() throws Exception;
+	}
+}
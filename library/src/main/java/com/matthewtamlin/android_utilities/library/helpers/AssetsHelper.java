@@ -16,18 +16,59 @@
 
 package com.matthewtamlin.android_utilities.library.helpers;
 
+import android.annotation.TargetApi;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
+import android.os.Build;
 import android.support.annotation.RequiresPermission;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
 import android.util.Log;
 
+import com.matthewtamlin.android_utilities.library.utilities.AssetIndex;
 import com.matthewtamlin.java_utilities.testing.Tested;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
 
 /**
  * Helper class for copying asset files to a storage directory.
@@ -40,50 +81,1395 @@ public class AssetsHelper {
 	@SuppressWarnings("unused")
 	private static final String TAG = "[AssetsHelper]";
 
+	/**
+	 * The size of the buffer used when streaming compressed assets, measured in bytes.
+	 */
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The default maximum number of assets to copy at once when copying in parallel. Flash storage
+	 * benefits from a few outstanding requests, but throughput levels off beyond this point.
+	 */
+	public static final int DEFAULT_COPY_CONCURRENCY = 4;
+
+	/**
+	 * The name of the file used to record the state of the target directory when syncing.
+	 */
+	private static final String SYNC_MANIFEST_NAME = ".assets_helper_sync";
+
+	/**
+	 * The app version recorded in an empty sync manifest, which never matches a real version.
+	 */
+	private static final long NO_APP_VERSION = Long.MIN_VALUE;
+
+	/**
+	 * The maximum number of listed assets waiting to be copied when copying a directory. This
+	 * bounds memory use when listing is faster than copying.
+	 */
+	private static final int LISTING_QUEUE_CAPACITY = 64;
+
+	/**
+	 * Marks the end of a directory listing. Asset paths are never empty, so this cannot clash.
+	 */
+	private static final String END_OF_LISTING = "";
+
+	/**
+	 * The size of the buffers used to hand zip entries to writer threads, measured in bytes.
+	 * Larger entries are written directly by the extracting thread.
+	 */
+	private static final int ZIP_ENTRY_BUFFER_SIZE = 256 * 1024;
+
+	/**
+	 * The suffix of the temporary files which are written before being renamed into place.
+	 */
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	/**
+	 * Returned by the internal copy methods in place of a byte count when a {@link
+	 * ProgressListener} abandons the copy.
+	 */
+	private static final long COPY_ABANDONED = -1;
+
+	/**
+	 * Provides each thread with its own copy buffer, so that the buffer is allocated once per
+	 * thread rather than once per copy.
+	 */
+	private static final ThreadLocal<byte[]> COPY_BUFFER = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[COPY_BUFFER_SIZE];
+		}
+	};
+
 	/**
 	 * Copies specified asset resources to the supplied directory.
 	 *
-	 * @param assetsManager
-	 * 		provides access to the application's assets, not null
+	 * @param assetsManager
+	 * 		provides access to the application's assets, not null
+	 * @param targetDirectory
+	 * 		the directory to copy the asset files to, not null
+	 * @param assetFiles
+	 * 		the filenames of the asset files to copy (including extension), not null
+	 * @throws IOException
+	 * 		if a general IO based error occurs while copying the files
+	 * @throws IllegalArgumentException
+	 * 		if either {@code assetsManager}, {@code assetFiles} or {@code targetDirectory} is null
+	 */
+	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
+	public static void copyAssetsToDirectory(final AssetManager assetsManager,
+			final File targetDirectory,
+			final String... assetFiles) throws IOException {
+		if (assetsManager == null) {
+			throw new IllegalArgumentException("assetsManager cannot be null");
+		} else if (assetFiles == null) {
+			throw new IllegalArgumentException("assetFiles cannot be null");
+		} else if (targetDirectory == null) {
+			throw new IllegalArgumentException("targetDirectory cannot be null");
+		}
+
+		for (final String filename : assetFiles) {
+			copyAsset(assetsManager, filename, new File(targetDirectory, filename));
+		}
+	}
+
+	/**
+	 * Copies specified asset resources to the supplied directory, computing the CRC32 checksum of
+	 * each asset as it is copied. The checksums are returned in the report, so the copied files
+	 * can be verified against an expected value (such as {@link AssetIndex.Entry#getChecksum()})
+	 * without reading them a second time. Computing a checksum requires the data to pass through
+	 * the Java heap, so uncompressed assets are streamed rather than transferred directly between
+	 * file channels.
+	 *
+	 * @param assetsManager
+	 * 		provides access to the application's assets, not null
+	 * @param targetDirectory
+	 * 		the directory to copy the asset files to, not null
+	 * @param assetFiles
+	 * 		the filenames of the asset files to copy (including extension), not null
+	 * @return a report containing the outcome and checksum of each copy, not null
+	 * @throws IOException
+	 * 		if a general IO based error occurs while copying the files
+	 * @throws IllegalArgumentException
+	 * 		if either {@code assetsManager}, {@code assetFiles} or {@code targetDirectory} is null
+	 */
+	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
+	public static CopyReport copyAssetsToDirectoryWithChecksums(final AssetManager assetsManager,
+			final File targetDirectory,
+			final String... assetFiles) throws IOException {
+		if (assetsManager == null) {
+			throw new IllegalArgumentException("assetsManager cannot be null");
+		} else if (assetFiles == null) {
+			throw new IllegalArgumentException("assetFiles cannot be null");
+		} else if (targetDirectory == null) {
+			throw new IllegalArgumentException("targetDirectory cannot be null");
+		}
+
+		final long startTime = System.nanoTime();
+		final List<CopyResult> results = new ArrayList<>();
+
+		for (final String filename : assetFiles) {
+			final File targetFile = new File(targetDirectory, filename);
+			final CRC32 checksum = new CRC32();
+			final long bytesCopied = copyAsset(assetsManager, filename, targetFile, true, checksum,
+					null);
+
+			results.add(new CopyResult(filename, targetFile, bytesCopied, checksum.getValue(),
+					null));
+		}
+
+		return new CopyReport(results, System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Copies specified asset resources to the supplied directory such that an interrupted copy
+	 * never leaves a truncated file behind. Each asset is first written to a temporary file next
+	 * to its target. Once every asset has been written, each temporary file is synced to storage,
+	 * and only then are they renamed over their targets. Finally the directories containing the
+	 * targets are synced so that the renames themselves survive a power loss. Each target file is
+	 * replaced atomically, so it either holds its previous contents or the complete asset, however
+	 * the set of files is not replaced as a whole. If an asset cannot be copied or synced then none
+	 * of the targets are modified, but if a rename fails then the targets renamed before it have
+	 * already been replaced. The temporary files of the supplied assets which were left behind by
+	 * a process killed part way through a copy are deleted before copying begins. Other files in
+	 * the target directory are never touched, so different assets may be copied into the same
+	 * directory concurrently, however the same asset must not be.
+	 *
+	 * @param assetsManager
+	 * 		provides access to the application's assets, not null
+	 * @param targetDirectory
+	 * 		the directory to copy the asset files to, not null
+	 * @param assetFiles
+	 * 		the filenames of the asset files to copy (including extension), not null
+	 * @return a report containing the outcome of each copy, not null
+	 * @throws IOException
+	 * 		if a general IO based error occurs while copying, syncing or renaming the files
+	 * @throws IllegalArgumentException
+	 * 		if either {@code assetsManager}, {@code assetFiles} or {@code targetDirectory} is null
+	 */
+	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
+	public static CopyReport copyAssetsToDirectoryAtomically(final AssetManager assetsManager,
+			final File targetDirectory,
+			final String... assetFiles) throws IOException {
+		if (assetsManager == null) {
+			throw new IllegalArgumentException("assetsManager cannot be null");
+		} else if (assetFiles == null) {
+			throw new IllegalArgumentException("assetFiles cannot be null");
+		} else if (targetDirectory == null) {
+			throw new IllegalArgumentException("targetDirectory cannot be null");
+		}
+
+		final long startTime = System.nanoTime();
+		final List<CopyResult> results = new ArrayList<>();
+		final List<File> tempFiles = new ArrayList<>();
+		final Set<File> parentDirectories = new LinkedHashSet<>();
+		boolean published = false;
+
+		for (final String filename : assetFiles) {
+			final File targetFile = new File(targetDirectory, filename);
+			parentDirectories.add(targetFile.getParentFile());
+
+			// A temporary file may have been left behind if an earlier copy was killed
+			deleteFile(new File(targetFile.getPath() + TEMP_FILE_SUFFIX));
+		}
+
+		try {
+			for (final String filename : assetFiles) {
+				final File targetFile = new File(targetDirectory, filename);
+				final File tempFile = new File(targetFile.getPath() + TEMP_FILE_SUFFIX);
+
+				createDirectory(targetFile.getParentFile());
+				tempFiles.add(tempFile);
+
+				final long bytesCopied = copyAsset(assetsManager, filename, tempFile);
+				results.add(new CopyResult(filename, targetFile, bytesCopied, null));
+			}
+
+			// No target is replaced until every file is on storage
+			for (final File tempFile : tempFiles) {
+				syncFile(tempFile);
+			}
+
+			for (int i = 0; i < tempFiles.size(); i++) {
+				final File tempFile = tempFiles.get(i);
+				final File targetFile = results.get(i).getTargetFile();
+
+				if (!tempFile.renameTo(targetFile)) {
+					throw new IOException("could not rename " + tempFile + " to " + targetFile);
+				}
+			}
+
+			published = true;
+		} finally {
+			if (!published) {
+				for (final File tempFile : tempFiles) {
+					if (tempFile.exists() && !tempFile.delete()) {
+						Log.w(TAG, "[Could not delete temporary file: " + tempFile + "]");
+					}
+				}
+			}
+		}
+
+		// The renames are only durable once the directory entries are on storage
+		for (final File directory : parentDirectories) {
+			syncDirectory(directory);
+		}
+
+		return new CopyReport(results, System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Copies a single asset to a target file in the same way as {@link
+	 * #copyAssetsToDirectoryAtomically(AssetManager, File, String...)}, while reporting progress to
+	 * a listener. The listener is notified after each chunk is written, and can abandon the copy
+	 * by returning false, in which case the temporary file is deleted and the target file is left
+	 * untouched. Uncompressed assets are still transferred using FileChannels, however they are
+	 * transferred in chunks so that progress can be reported.
+	 *
+	 * @param assetsManager
+	 * 		provides access to the application's assets, not null
+	 * @param assetName
+	 * 		the name of the asset to copy (including extension), not null
+	 * @param targetFile
+	 * 		the file to copy the asset to, not null
+	 * @param progressListener
+	 * 		notified as chunks are copied, not null
+	 * @return true if the asset was copied, false if the listener abandoned the copy
+	 * @throws IOException
+	 * 		if a general IO based error occurs while copying, syncing or renaming the file
+	 * @throws IllegalArgumentException
+	 * 		if either {@code assetsManager}, {@code assetName}, {@code targetFile} or {@code
+	 * 		progressListener} is null
+	 */
+	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
+	public static boolean copyAssetToFileAtomically(final AssetManager assetsManager,
+			final String assetName, final File targetFile,
+			final ProgressListener progressListener) throws IOException {
+		if (assetsManager == null) {
+			throw new IllegalArgumentException("assetsManager cannot be null");
+		} else if (assetName == null) {
+			throw new IllegalArgumentException("assetName cannot be null");
+		} else if (targetFile == null) {
+			throw new IllegalArgumentException("targetFile cannot be null");
+		} else if (progressListener == null) {
+			throw new IllegalArgumentException("progressListener cannot be null");
+		}
+
+		final File tempFile = new File(targetFile.getPath() + TEMP_FILE_SUFFIX);
+		boolean published = false;
+
+		// A temporary file may have been left behind if an earlier copy was killed
+		deleteFile(tempFile);
+		createDirectory(targetFile.getParentFile());
+
+		try {
+			if (copyAsset(assetsManager, assetName, tempFile, true, null, progressListener) ==
+					COPY_ABANDONED) {
+				return false;
+			}
+
+			syncFile(tempFile);
+
+			if (!tempFile.renameTo(targetFile)) {
+				throw new IOException("could not rename " + tempFile + " to " + targetFile);
+			}
+
+			published = true;
+		} finally {
+			if (!published && tempFile.exists() && !tempFile.delete()) {
+				Log.w(TAG, "[Could not delete temporary file: " + tempFile + "]");
+			}
+		}
+
+		syncDirectory(targetFile.getParentFile());
+		return true;
+	}
+
+	/**
+	 * Copies specified asset resources to the supplied directory using several threads at once.
+	 * Unlike {@link #copyAssetsToDirectory(AssetManager, File, String...)}, a failure to copy one
+	 * asset does not abort the others. Instead, the outcome of every copy is recorded in the
+	 * returned report. The number of concurrent copies is bounded by {@link
+	 * #DEFAULT_COPY_CONCURRENCY}, which suits the queue depth of typical flash storage.
+	 *
+	 * @param assetsManager
+	 * 		provides access to the application's assets, not null
+	 * @param targetDirectory
+	 * 		the directory to copy the asset files to, not null
+	 * @param assetFiles
+	 * 		the filenames of the asset files to copy (including extension), not null
+	 * @return a report containing the outcome of each copy, not null
+	 * @throws InterruptedException
+	 * 		if the calling thread is interrupted while waiting for the copies to finish
+	 * @throws IllegalArgumentException
+	 * 		if either {@code assetsManager}, {@code assetFiles} or {@code targetDirectory} is null
+	 */
+	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
+	public static CopyReport copyAssetsToDirectoryInParallel(final AssetManager assetsManager,
+			final File targetDirectory,
+			final String... assetFiles) throws InterruptedException {
+		return copyAssetsToDirectoryInParallel(assetsManager, targetDirectory,
+				DEFAULT_COPY_CONCURRENCY, assetFiles);
+	}
+
+	/**
+	 * Copies specified asset resources to the supplied directory using several threads at once.
+	 * Unlike {@link #copyAssetsToDirectory(AssetManager, File, String...)}, a failure to copy one
+	 * asset does not abort the others. Instead, the outcome of every copy is recorded in the
+	 * returned report. Storage rather than CPU is the bottleneck when copying, so the concurrency
+	 * should be chosen based on the storage device rather than on the number of cores.
+	 *
+	 * @param assetsManager
+	 * 		provides access to the application's assets, not null
+	 * @param targetDirectory
+	 * 		the directory to copy the asset files to, not null
+	 * @param maxConcurrency
+	 * 		the maximum number of assets to copy at once, greater than zero
+	 * @param assetFiles
+	 * 		the filenames of the asset files to copy (including extension), not null
+	 * @return a report containing the outcome of each copy, not null
+	 * @throws InterruptedException
+	 * 		if the calling thread is interrupted while waiting for the copies to finish
+	 * @throws IllegalArgumentException
+	 * 		if either {@code assetsManager}, {@code assetFiles} or {@code targetDirectory} is null,
+	 * 		or if {@code maxConcurrency} is not greater than zero
+	 */
+	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
+	public static CopyReport copyAssetsToDirectoryInParallel(final AssetManager assetsManager,
+			final File targetDirectory,
+			final int maxConcurrency,
+			final String... assetFiles) throws InterruptedException {
+		if (assetsManager == null) {
+			throw new IllegalArgumentException("assetsManager cannot be null");
+		} else if (assetFiles == null) {
+			throw new IllegalArgumentException("assetFiles cannot be null");
+		} else if (targetDirectory == null) {
+			throw new IllegalArgumentException("targetDirectory cannot be null");
+		} else if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException("maxConcurrency must be greater than zero");
+		}
+
+		final long startTime = System.nanoTime();
+		final List<CopyResult> results = new ArrayList<>(assetFiles.length);
+
+		if (assetFiles.length == 0) {
+			return new CopyReport(results, 0);
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrency,
+				assetFiles.length));
+
+		try {
+			final List<Future<CopyResult>> futures = new ArrayList<>(assetFiles.length);
+
+			for (final String filename : assetFiles) {
+				futures.add(executor.submit(new Callable<CopyResult>() {
+					@Override
+					public CopyResult call() {
+						final File targetFile = new File(targetDirectory, filename);
+
+						try {
+							final long bytesCopied = copyAsset(assetsManager, filename,
+									targetFile);
+							return new CopyResult(filename, targetFile, bytesCopied, null);
+						} catch (final IOException e) {
+							return new CopyResult(filename, targetFile, 0, e);
+						}
+					}
+				}));
+			}
+
+			for (final Future<CopyResult> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (final ExecutionException e) {
+					// The task catches IOExceptions itself, so anything else is a programming error
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return new CopyReport(results, System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Synchronises specified asset resources with the supplied directory, copying only the assets
+	 * which are new or have changed since the last sync. A small manifest recording the length and
+	 * checksum of each synced asset (along with the app version) is kept in the target directory.
+	 * When the app version is unchanged, an asset is skipped as long as its target file still has
+	 * the recorded length, so a warm start performs no reads of the assets at all. When the app
+	 * version changes, each asset is checksummed and copied only if it differs from the manifest.
+	 * Files recorded in the manifest which are no longer requested are deleted.
+	 *
+	 * @param assetsManager
+	 * 		provides access to the application's assets, not null
+	 * @param targetDirectory
+	 * 		the directory to sync the asset files to, not null
+	 * @param appVersion
+	 * 		the version of the app supplying the assets, such as the version code
+	 * @param assetFiles
+	 * 		the filenames of the asset files to sync (including extension), not null
+	 * @return a report containing the outcome of each copy which was performed, not null
+	 * @throws IOException
+	 * 		if a general IO based error occurs while syncing the files
+	 * @throws IllegalArgumentException
+	 * 		if either {@code assetsManager}, {@code assetFiles} or {@code targetDirectory} is null
+	 */
+	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
+	public static CopyReport syncAssetsToDirectory(final AssetManager assetsManager,
+			final File targetDirectory,
+			final long appVersion,
+			final String... assetFiles) throws IOException {
+		return syncAssetsToDirectory(assetsManager, null, targetDirectory, appVersion, assetFiles);
+	}
+
+	/**
+	 * Synchronises specified asset resources with the supplied directory, copying only the assets
+	 * which are new or have changed since the last sync. This method behaves like {@link
+	 * #syncAssetsToDirectory(AssetManager, File, long, String...)}, except that the lengths and
+	 * checksums of indexed assets are taken from the build-time asset index, so that no assets
+	 * need to be read to detect changes after the app version changes.
+	 *
+	 * @param assetsManager
+	 * 		provides access to the application's assets, not null
+	 * @param assetIndex
+	 * 		the build-time index of the assets, null to read the assets instead
+	 * @param targetDirectory
+	 * 		the directory to sync the asset files to, not null
+	 * @param appVersion
+	 * 		the version of the app supplying the assets, such as the version code
+	 * @param assetFiles
+	 * 		the filenames of the asset files to sync (including extension), not null
+	 * @return a report containing the outcome of each copy which was performed, not null
+	 * @throws IOException
+	 * 		if a general IO based error occurs while syncing the files
+	 * @throws IllegalArgumentException
+	 * 		if either {@code assetsManager}, {@code assetFiles} or {@code targetDirectory} is null
+	 */
+	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
+	public static CopyReport syncAssetsToDirectory(final AssetManager assetsManager,
+			final AssetIndex assetIndex,
+			final File targetDirectory,
+			final long appVersion,
+			final String... assetFiles) throws IOException {
+		if (assetsManager == null) {
+			throw new IllegalArgumentException("assetsManager cannot be null");
+		} else if (assetFiles == null) {
+			throw new IllegalArgumentException("assetFiles cannot be null");
+		} else if (targetDirectory == null) {
+			throw new IllegalArgumentException("targetDirectory cannot be null");
+		}
+
+		final long startTime = System.nanoTime();
+		final File manifestFile = new File(targetDirectory, SYNC_MANIFEST_NAME);
+		final SyncManifest previousManifest = readSyncManifest(manifestFile);
+		final SyncManifest currentManifest = new SyncManifest(appVersion);
+		final List<CopyResult> results = new ArrayList<>();
+		final boolean versionChanged = previousManifest.appVersion != appVersion;
+		boolean targetDirectoryChanged = false;
+
+		for (final String filename : assetFiles) {
+			final File targetFile = new File(targetDirectory, filename);
+			final SyncManifestEntry previousEntry = previousManifest.entries.get(filename);
+			final boolean targetIntact = previousEntry != null && targetFile.isFile() &&
+					targetFile.length() == previousEntry.length;
+
+			// Nothing can have changed inside the APK unless the app itself changed
+			if (targetIntact && !versionChanged) {
+				currentManifest.entries.put(filename, previousEntry);
+				continue;
+			}
+
+			final AssetIndex.Entry indexEntry = assetIndex == null ? null :
+					assetIndex.get(filename);
+			final SyncManifestEntry assetEntry;
+
+			if (indexEntry != null) {
+				assetEntry = new SyncManifestEntry(indexEntry.getLength(),
+						indexEntry.getChecksum());
+			} else if (targetIntact) {
+				assetEntry = describeAsset(assetsManager, filename);
+			} else {
+				// The asset must be copied anyway, so describe it while copying
+				assetEntry = null;
+			}
+
+			if (targetIntact && assetEntry.equals(previousEntry)) {
+				currentManifest.entries.put(filename, previousEntry);
+				continue;
+			}
+
+			// Remove the manifest first so that an interrupted sync is fully re-checked next time
+			if (!targetDirectoryChanged) {
+				deleteFile(manifestFile);
+				targetDirectoryChanged = true;
+			}
+
+			final CRC32 checksum = assetEntry == null ? new CRC32() : null;
+			final long bytesCopied = copyAsset(assetsManager, filename, targetFile,
+					indexEntry == null || !indexEntry.isCompressed(), checksum, null);
+			final SyncManifestEntry copiedEntry = assetEntry == null ?
+					new SyncManifestEntry(bytesCopied, checksum.getValue()) : assetEntry;
+
+			results.add(new CopyResult(filename, targetFile, bytesCopied, copiedEntry.checksum,
+					null));
+			currentManifest.entries.put(filename, copiedEntry);
+		}
+
+		// Delete files from previous syncs which are no longer wanted
+		for (final String filename : previousManifest.entries.keySet()) {
+			if (!currentManifest.entries.containsKey(filename)) {
+				if (!targetDirectoryChanged) {
+					deleteFile(manifestFile);
+					targetDirectoryChanged = true;
+				}
+
+				deleteFile(new File(targetDirectory, filename));
+			}
+		}
+
+		if (targetDirectoryChanged || versionChanged) {
+			writeSyncManifest(manifestFile, currentManifest);
+		}
+
+		return new CopyReport(results, System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Copies an asset directory and all of its subdirectories to the supplied directory. The asset
+	 * tree is listed lazily on a background thread, and each file is copied on the calling thread
+	 * as soon as it has been listed, so copying begins before the whole tree has been walked and
+	 * the full listing is never held in memory. Subdirectories are created in the target directory
+	 * as needed. Note that the root of the assets space ({@code ""}) may contain directories added
+	 * by the system on some devices.
+	 *
+	 * @param assetsManager
+	 * 		provides access to the application's assets, not null
+	 * @param assetDirectory
+	 * 		the path of the asset directory to copy, relative to the root of the assets space, not
+	 * 		null
+	 * @param targetDirectory
+	 * 		the directory to copy the contents of the asset directory to, not null
+	 * @return a report containing the outcome of each copy, not null
+	 * @throws IOException
+	 * 		if a general IO based error occurs while listing or copying the files
+	 * @throws InterruptedException
+	 * 		if the calling thread is interrupted while waiting for the listing
+	 * @throws IllegalArgumentException
+	 * 		if either {@code assetsManager}, {@code assetDirectory} or {@code targetDirectory} is
+	 * 		null
+	 */
+	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
+	public static CopyReport copyAssetDirectoryToDirectory(final AssetManager assetsManager,
+			final String assetDirectory,
+			final File targetDirectory) throws IOException, InterruptedException {
+		if (assetsManager == null) {
+			throw new IllegalArgumentException("assetsManager cannot be null");
+		} else if (assetDirectory == null) {
+			throw new IllegalArgumentException("assetDirectory cannot be null");
+		} else if (targetDirectory == null) {
+			throw new IllegalArgumentException("targetDirectory cannot be null");
+		}
+
+		final long startTime = System.nanoTime();
+		final List<CopyResult> results = new ArrayList<>();
+		final BlockingQueue<String> listedAssets = new LinkedBlockingQueue<>(
+				LISTING_QUEUE_CAPACITY);
+		final AtomicReference<IOException> listingFailure = new AtomicReference<>();
+
+		final Thread listingThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					try {
+						final AssetTreeWalker walker = new AssetTreeWalker(assetsManager,
+								assetDirectory);
+						String assetPath;
+
+						while ((assetPath = walker.next()) != null) {
+							listedAssets.put(assetPath);
+						}
+					} catch (final IOException e) {
+						listingFailure.set(e);
+					}
+
+					listedAssets.put(END_OF_LISTING);
+				} catch (final InterruptedException e) {
+					// The copying thread has stopped, so there is no one to notify
+				}
+			}
+		}, "AssetsHelper listing");
+
+		listingThread.start();
+
+		try {
+			String assetPath;
+
+			while (!(assetPath = listedAssets.take()).equals(END_OF_LISTING)) {
+				final File targetFile = createTargetFile(targetDirectory, assetDirectory,
+						assetPath);
+				final long bytesCopied = copyAsset(assetsManager, assetPath, targetFile);
+				results.add(new CopyResult(assetPath, targetFile, bytesCopied, null));
+			}
+		} finally {
+			listingThread.interrupt();
+		}
+
+		if (listingFailure.get() != null) {
+			throw listingFailure.get();
+		}
+
+		return new CopyReport(results, System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Copies an asset directory and all of its subdirectories to the supplied directory, using the
+	 * build-time asset index to list the directory instead of AssetManager. Listing through the
+	 * index costs no IO, so the files are copied on the calling thread without a separate listing
+	 * thread. Subdirectories are created in the target directory as needed.
+	 *
+	 * @param assetsManager
+	 * 		provides access to the application's assets, not null
+	 * @param assetIndex
+	 * 		the build-time index of the assets, not null
+	 * @param assetDirectory
+	 * 		the path of the asset directory to copy, relative to the root of the assets space, not
+	 * 		null
+	 * @param targetDirectory
+	 * 		the directory to copy the contents of the asset directory to, not null
+	 * @return a report containing the outcome of each copy, not null
+	 * @throws IOException
+	 * 		if a general IO based error occurs while copying the files
+	 * @throws IllegalArgumentException
+	 * 		if either {@code assetsManager}, {@code assetIndex}, {@code assetDirectory} or {@code
+	 * 		targetDirectory} is null
+	 */
+	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
+	public static CopyReport copyAssetDirectoryToDirectory(final AssetManager assetsManager,
+			final AssetIndex assetIndex,
+			final String assetDirectory,
+			final File targetDirectory) throws IOException {
+		if (assetsManager == null) {
+			throw new IllegalArgumentException("assetsManager cannot be null");
+		} else if (assetIndex == null) {
+			throw new IllegalArgumentException("assetIndex cannot be null");
+		} else if (assetDirectory == null) {
+			throw new IllegalArgumentException("assetDirectory cannot be null");
+		} else if (targetDirectory == null) {
+			throw new IllegalArgumentException("targetDirectory cannot be null");
+		}
+
+		final long startTime = System.nanoTime();
+		final List<CopyResult> results = new ArrayList<>();
+
+		for (final String assetPath : assetIndex.listFilesRecursively(assetDirectory)) {
+			final File targetFile = createTargetFile(targetDirectory, assetDirectory, assetPath);
+			final long bytesCopied = copyAsset(assetsManager, assetPath, targetFile,
+					!assetIndex.get(assetPath).isCompressed(), null, null);
+			results.add(new CopyResult(assetPath, targetFile, bytesCopied, null));
+		}
+
+		return new CopyReport(results, System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Extracts a zip archive from the assets space to the supplied directory. Shipping many small
+	 * files inside a single archive avoids the per-file overhead of the APK. The archive is
+	 * streamed rather than copied to storage first, each entry is written through a reusable
+	 * buffer, and the CRC32 of the written data is checked against the archive as it is written.
+	 *
+	 * @param assetsManager
+	 * 		provides access to the application's assets, not null
+	 * @param zipAssetName
+	 * 		the name of the zip archive in the assets space, not null
+	 * @param targetDirectory
+	 * 		the directory to extract the archive to, not null
+	 * @return a report containing the outcome of each extracted entry, not null
+	 * @throws IOException
+	 * 		if a general IO based error occurs while extracting, if the archive is malformed, if an
+	 * 		entry fails checksum validation, or if an entry would be extracted outside of {@code
+	 * 		targetDirectory}
+	 * @throws IllegalArgumentException
+	 * 		if either {@code assetsManager}, {@code zipAssetName} or {@code targetDirectory} is null
+	 */
+	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
+	public static CopyReport extractZipAssetToDirectory(final AssetManager assetsManager,
+			final String zipAssetName,
+			final File targetDirectory) throws IOException {
+		if (assetsManager == null) {
+			throw new IllegalArgumentException("assetsManager cannot be null");
+		} else if (zipAssetName == null) {
+			throw new IllegalArgumentException("zipAssetName cannot be null");
+		} else if (targetDirectory == null) {
+			throw new IllegalArgumentException("targetDirectory cannot be null");
+		}
+
+		try {
+			return extractZipAsset(assetsManager, zipAssetName, targetDirectory, null, 0);
+		} catch (final InterruptedException e) {
+			// Only waiting on the write executor can be interrupted, and there is none
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Extracts a zip archive from the assets space to the supplied directory, writing the entries
+	 * using several threads at once. An archive must be decompressed sequentially, so entries are
+	 * decompressed on the calling thread into a bounded set of pooled buffers, and the buffers are
+	 * written to storage concurrently. Entries which are too large to buffer are written directly
+	 * by the calling thread. The CRC32 of each entry is checked against the archive. The results
+	 * in the returned report are not necessarily in archive order.
+	 *
+	 * @param assetsManager
+	 * 		provides access to the application's assets, not null
+	 * @param zipAssetName
+	 * 		the name of the zip archive in the assets space, not null
+	 * @param targetDirectory
+	 * 		the directory to extract the archive to, not null
+	 * @param maxConcurrency
+	 * 		the maximum number of entries to write at once, greater than zero
+	 * @return a report containing the outcome of each extracted entry, not null
+	 * @throws IOException
+	 * 		if a general IO based error occurs while extracting, if the archive is malformed, if an
+	 * 		entry fails checksum validation, or if an entry would be extracted outside of {@code
+	 * 		targetDirectory}
+	 * @throws InterruptedException
+	 * 		if the calling thread is interrupted while waiting for the writes to finish
+	 * @throws IllegalArgumentException
+	 * 		if either {@code assetsManager}, {@code zipAssetName} or {@code targetDirectory} is
+	 * 		null, or if {@code maxConcurrency} is not greater than zero
+	 */
+	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
+	public static CopyReport extractZipAssetToDirectory(final AssetManager assetsManager,
+			final String zipAssetName,
+			final File targetDirectory,
+			final int maxConcurrency) throws IOException, InterruptedException {
+		if (assetsManager == null) {
+			throw new IllegalArgumentException("assetsManager cannot be null");
+		} else if (zipAssetName == null) {
+			throw new IllegalArgumentException("zipAssetName cannot be null");
+		} else if (targetDirectory == null) {
+			throw new IllegalArgumentException("targetDirectory cannot be null");
+		} else if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException("maxConcurrency must be greater than zero");
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(maxConcurrency);
+
+		try {
+			// Two buffers per thread allow decompression to continue while every thread is busy
+			return extractZipAsset(assetsManager, zipAssetName, targetDirectory, executor,
+					maxConcurrency * 2);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Copies a single asset to a target file. Uncompressed assets are transferred directly from the
+	 * APK to the target file using FileChannels, which avoids copying the data through the Java
+	 * heap. Compressed assets cannot be accessed as file descriptors, so they are streamed through
+	 * a large per-thread buffer instead.
+	 *
+	 * @param assetManager
+	 * 		provides access to the asset, not null
+	 * @param assetName
+	 * 		the name of the asset to copy, not null
+	 * @param targetFile
+	 * 		the file to copy the asset to, not null
+	 * @return the number of bytes copied
+	 * @throws IOException
+	 * 		if a general IO based error occurs while copying the asset
+	 */
+	private static long copyAsset(final AssetManager assetManager, final String assetName,
+			final File targetFile) throws IOException {
+		return copyAsset(assetManager, assetName, targetFile, true, null, null);
+	}
+
+	/**
+	 * Copies a single asset to a target file. This method behaves like {@link
+	 * #copyAsset(AssetManager, String, File)}, except that opening a file descriptor can be skipped
+	 * for assets which are already known to be compressed, and a checksum can be computed while
+	 * copying. File channel transfers never pass through the heap, so assets are always streamed
+	 * when a checksum is requested. If a progress listener is supplied, it is notified after each
+	 * chunk of up to {@code COPY_BUFFER_SIZE} bytes and may abandon the copy.
+	 *
+	 * @param assetManager
+	 * 		provides access to the asset, not null
+	 * @param assetName
+	 * 		the name of the asset to copy, not null
+	 * @param targetFile
+	 * 		the file to copy the asset to, not null
+	 * @param mayBeUncompressed
+	 * 		false if the asset is known to be compressed, true otherwise
+	 * @param checksum
+	 * 		updated with the copied data, null if no checksum is needed
+	 * @param progressListener
+	 * 		notified as chunks are copied, null if progress is not needed
+	 * @return the number of bytes copied, or {@code COPY_ABANDONED} if the listener abandoned the
+	 * copy
+	 * @throws IOException
+	 * 		if a general IO based error occurs while copying the asset
+	 */
+	private static long copyAsset(final AssetManager assetManager, final String assetName,
+			final File targetFile, final boolean mayBeUncompressed, final Checksum checksum,
+			final ProgressListener progressListener) throws IOException {
+		final AssetFileDescriptor descriptor = mayBeUncompressed && checksum == null ?
+				openUncompressedAsset(assetManager, assetName) : null;
+
+		if (descriptor == null) {
+			return copyCompressedAsset(assetManager, assetName, targetFile, checksum,
+					progressListener);
+		} else {
+			return transferUncompressedAsset(descriptor, targetFile, progressListener);
+		}
+	}
+
+	/**
+	 * Extracts a zip archive from the assets space. If an executor is supplied, entries which fit
+	 * in a pooled buffer are decompressed into the buffer on the calling thread and written to
+	 * storage by the executor.
+	 *
+	 * @param assetManager
+	 * 		provides access to the archive, not null
+	 * @param zipAssetName
+	 * 		the name of the zip archive in the assets space, not null
+	 * @param targetDirectory
+	 * 		the directory to extract the archive to, not null
+	 * @param writeExecutor
+	 * 		writes buffered entries, null to write every entry on the calling thread
+	 * @param maxBuffers
+	 * 		the maximum number of entry buffers to allocate, ignored if there is no executor
+	 * @return a report containing the outcome of each extracted entry, not null
+	 * @throws IOException
+	 * 		if the archive cannot be extracted
+	 * @throws InterruptedException
+	 * 		if the calling thread is interrupted while waiting for a buffer or for the writes
+	 */
+	private static CopyReport extractZipAsset(final AssetManager assetManager,
+			final String zipAssetName, final File targetDirectory,
+			final ExecutorService writeExecutor, final int maxBuffers) throws IOException,
+			InterruptedException {
+		final long startTime = System.nanoTime();
+		final String canonicalTargetPath = targetDirectory.getCanonicalPath() + File.separator;
+		final List<CopyResult> results = new ArrayList<>();
+		final List<Future<CopyResult>> pendingWrites = new ArrayList<>();
+
+		// Buffers are allocated on demand up to the limit, and are then recycled between entries
+		final BlockingQueue<byte[]> freeBuffers = new LinkedBlockingQueue<>();
+		int buffersAllocated = 0;
+
+		ZipInputStream zipStream = null;
+
+		try {
+			zipStream = new ZipInputStream(new BufferedInputStream(assetManager.open(zipAssetName,
+					AssetManager.ACCESS_STREAMING), COPY_BUFFER_SIZE));
+			ZipEntry entry;
+
+			while ((entry = zipStream.getNextEntry()) != null) {
+				final File targetFile = new File(targetDirectory, entry.getName());
+
+				// Reject entries such as "../file" which would escape the target directory
+				if (!targetFile.getCanonicalPath().startsWith(canonicalTargetPath)) {
+					throw new IOException("zip entry is outside of the target directory: " +
+							entry.getName());
+				}
+
+				if (entry.isDirectory()) {
+					createDirectory(targetFile);
+					continue;
+				}
+
+				createDirectory(targetFile.getParentFile());
+
+				final boolean bufferable = writeExecutor != null && entry.getSize() >= 0 &&
+						entry.getSize() <= ZIP_ENTRY_BUFFER_SIZE;
+
+				if (!bufferable) {
+					results.add(extractZipEntry(zipStream, entry, targetFile));
+					continue;
+				}
+
+				byte[] buffer = freeBuffers.poll();
+
+				if (buffer == null && buffersAllocated < maxBuffers) {
+					buffer = new byte[ZIP_ENTRY_BUFFER_SIZE];
+					buffersAllocated++;
+				} else if (buffer == null) {
+					buffer = freeBuffers.take();
+				}
+
+				final byte[] entryBuffer = buffer;
+				final int length = readZipEntry(zipStream, entry, entryBuffer);
+				final String entryName = entry.getName();
+				final long checksum = entry.getCrc();
+
+				pendingWrites.add(writeExecutor.submit(new Callable<CopyResult>() {
+					@Override
+					public CopyResult call() throws IOException {
+						try {
+							writeBufferToFile(entryBuffer, length, targetFile);
+							return new CopyResult(entryName, targetFile, length, checksum,
+									null);
+						} finally {
+							freeBuffers.add(entryBuffer);
+						}
+					}
+				}));
+			}
+		} finally {
+			closeStream(zipStream);
+		}
+
+		for (final Future<CopyResult> pendingWrite : pendingWrites) {
+			try {
+				results.add(pendingWrite.get());
+			} catch (final ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				} else {
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		}
+
+		return new CopyReport(results, System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Writes the current entry of a zip stream to a file, validating the checksum of the written
+	 * data against the archive. The target file is deleted if validation fails.
+	 *
+	 * @param zipStream
+	 * 		the stream positioned at the start of the entry, not null
+	 * @param entry
+	 * 		the entry to write, not null
+	 * @param targetFile
+	 * 		the file to write the entry to, not null
+	 * @return the outcome of the write, not null
+	 * @throws IOException
+	 * 		if a general IO based error occurs, or if checksum validation fails
+	 */
+	private static CopyResult extractZipEntry(final ZipInputStream zipStream, final ZipEntry entry,
+			final File targetFile) throws IOException {
+		final byte[] buffer = COPY_BUFFER.get();
+		final CRC32 checksum = new CRC32();
+		long length = 0;
+		OutputStream streamToTargetFile = null;
+
+		try {
+			streamToTargetFile = new FileOutputStream(targetFile);
+			int numberOfBytesRead;
+
+			while ((numberOfBytesRead = zipStream.read(buffer)) != -1) {
+				checksum.update(buffer, 0, numberOfBytesRead);
+				streamToTargetFile.write(buffer, 0, numberOfBytesRead);
+				length += numberOfBytesRead;
+			}
+		} finally {
+			closeStream(streamToTargetFile);
+		}
+
+		// The expected checksum is only guaranteed to be known once the entry has been read
+		if (checksum.getValue() != entry.getCrc()) {
+			deleteFile(targetFile);
+			throw new ZipException("checksum mismatch for zip entry: " + entry.getName());
+		}
+
+		return new CopyResult(entry.getName(), targetFile, length, checksum.getValue(), null);
+	}
+
+	/**
+	 * Reads the current entry of a zip stream into a buffer, validating the checksum of the data
+	 * against the archive.
+	 *
+	 * @param zipStream
+	 * 		the stream positioned at the start of the entry, not null
+	 * @param entry
+	 * 		the entry to read, not null
+	 * @param buffer
+	 * 		the buffer to read into, large enough to contain the whole entry, not null
+	 * @return the number of bytes read into the buffer
+	 * @throws IOException
+	 * 		if a general IO based error occurs, if the entry is larger than declared, or if checksum
+	 * 		validation fails
+	 */
+	private static int readZipEntry(final ZipInputStream zipStream, final ZipEntry entry,
+			final byte[] buffer) throws IOException {
+		int length = 0;
+		int numberOfBytesRead;
+
+		while ((numberOfBytesRead = zipStream.read(buffer, length, buffer.length - length)) > 0) {
+			length += numberOfBytesRead;
+		}
+
+		// A full buffer means the entry may have been truncated, so make sure it has ended
+		if (length == buffer.length && zipStream.read() != -1) {
+			throw new ZipException("zip entry is larger than declared: " + entry.getName());
+		}
+
+		final CRC32 checksum = new CRC32();
+		checksum.update(buffer, 0, length);
+
+		if (checksum.getValue() != entry.getCrc()) {
+			throw new ZipException("checksum mismatch for zip entry: " + entry.getName());
+		}
+
+		return length;
+	}
+
+	/**
+	 * Writes the contents of a buffer to a file.
+	 *
+	 * @param buffer
+	 * 		the buffer to write from, not null
+	 * @param length
+	 * 		the number of bytes to write, starting from the beginning of the buffer
+	 * @param targetFile
+	 * 		the file to write to, not null
+	 * @throws IOException
+	 * 		if a general IO based error occurs while writing
+	 */
+	private static void writeBufferToFile(final byte[] buffer, final int length,
+			final File targetFile) throws IOException {
+		OutputStream streamToTargetFile = null;
+
+		try {
+			streamToTargetFile = new FileOutputStream(targetFile);
+			streamToTargetFile.write(buffer, 0, length);
+		} finally {
+			closeStream(streamToTargetFile);
+		}
+	}
+
+	/**
+	 * Creates a directory and its parents if it does not already exist.
+	 *
+	 * @param directory
+	 * 		the directory to create, not null
+	 * @throws IOException
+	 * 		if the directory does not exist and cannot be created
+	 */
+	private static void createDirectory(final File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("could not create directory " + directory);
+		}
+	}
+
+	/**
+	 * Determines where an asset from a copied asset directory should be copied to, and creates the
+	 * parent directories of that location.
+	 *
 	 * @param targetDirectory
-	 * 		the directory to copy the asset files to, not null
-	 * @param assetFiles
-	 * 		the filenames of the asset files to copy (including extension), not null
+	 * 		the directory the asset directory is being copied to, not null
+	 * @param assetDirectory
+	 * 		the path of the asset directory being copied, not null
+	 * @param assetPath
+	 * 		the path of the asset within the assets space, not null
+	 * @return the file to copy the asset to, not null
 	 * @throws IOException
-	 * 		if a general IO based error occurs while copying the files
-	 * @throws IllegalArgumentException
-	 * 		if either {@code assetsManager}, {@code assetFiles} or {@code targetDirectory} is null
+	 * 		if the parent directories cannot be created
 	 */
-	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
-	public static void copyAssetsToDirectory(final AssetManager assetsManager,
-			final File targetDirectory,
-			final String... assetFiles) throws IOException {
-		if (assetsManager == null) {
-			throw new IllegalArgumentException("assetsManager cannot be null");
-		} else if (assetFiles == null) {
-			throw new IllegalArgumentException("assetFiles cannot be null");
-		} else if (targetDirectory == null) {
-			throw new IllegalArgumentException("targetDirectory cannot be null");
+	private static File createTargetFile(final File targetDirectory, final String assetDirectory,
+			final String assetPath) throws IOException {
+		final String relativePath = assetDirectory.isEmpty() ? assetPath :
+				assetPath.substring(assetDirectory.length() + 1);
+		final File targetFile = new File(targetDirectory, relativePath);
+		createDirectory(targetFile.getParentFile());
+
+		return targetFile;
+	}
+
+	/**
+	 * Opens an asset as a file descriptor, which is only possible if the asset is stored
+	 * uncompressed in the APK.
+	 *
+	 * @param assetManager
+	 * 		provides access to the asset, not null
+	 * @param assetName
+	 * 		the name of the asset to open, not null
+	 * @return a descriptor for the asset, null if the asset is compressed or does not exist
+	 * @throws IOException
+	 * 		if a general IO based error occurs
+	 */
+	private static AssetFileDescriptor openUncompressedAsset(final AssetManager assetManager,
+			final String assetName) throws IOException {
+		try {
+			return assetManager.openFd(assetName);
+		} catch (final FileNotFoundException e) {
+			// Missing assets are reported when the caller falls back to opening a stream
+			return null;
+		}
+	}
+
+	/**
+	 * Transfers an uncompressed asset to a target file using FileChannels. The descriptor is closed
+	 * by this method.
+	 *
+	 * @param descriptor
+	 * 		a descriptor for the asset, not null
+	 * @param targetFile
+	 * 		the file to copy the asset to, not null
+	 * @param progressListener
+	 * 		notified as chunks are copied, null if progress is not needed
+	 * @return the number of bytes copied, or {@code COPY_ABANDONED} if the listener abandoned the
+	 * copy
+	 * @throws IOException
+	 * 		if a general IO based error occurs while copying the asset
+	 */
+	private static long transferUncompressedAsset(final AssetFileDescriptor descriptor,
+			final File targetFile, final ProgressListener progressListener) throws IOException {
+		// Initialise streams outside of try block so that they can be closed later
+		FileInputStream streamFromAsset = null;
+		FileOutputStream streamToTargetFile = null;
+
+		try {
+			// The stream takes ownership of the descriptor and closes it when the stream is closed
+			streamFromAsset = descriptor.createInputStream();
+			streamToTargetFile = new FileOutputStream(targetFile);
+
+			final FileChannel source = streamFromAsset.getChannel();
+			final FileChannel target = streamToTargetFile.getChannel();
+			final long start = descriptor.getStartOffset();
+			final long length = descriptor.getLength();
+			long transferred = 0;
+
+			// Transfer in chunks only if progress is needed, since each transfer is a system call
+			final long maxChunkLength = progressListener == null ? length : COPY_BUFFER_SIZE;
+
+			// A single transfer may move fewer bytes than requested, so repeat until done
+			while (transferred < length) {
+				final long count = source.transferTo(start + transferred, Math.min(length -
+						transferred, maxChunkLength), target);
+
+				if (count <= 0) {
+					throw new EOFException("asset ended after " + transferred + " bytes");
+				}
+
+				transferred += count;
+
+				if (progressListener != null && !progressListener.onChunkCopied(count)) {
+					return COPY_ABANDONED;
+				}
+			}
+
+			return transferred;
+		} finally {
+			// An IOException is probably unrecoverable so just abort and close the streams
+			if (streamFromAsset == null) {
+				closeStream(descriptor);
+			}
+
+			closeStream(streamFromAsset);
+			closeStream(streamToTargetFile);
 		}
+	}
 
-		for (final String filename : assetFiles) {
-			// Create a new file in the output directory to receive the asset data
-			final File fileInTargetDirectory = new File(targetDirectory, filename);
+	/**
+	 * Copies a compressed asset to a target file by streaming it through a buffer.
+	 *
+	 * @param assetManager
+	 * 		provides access to the asset, not null
+	 * @param assetName
+	 * 		the name of the asset to copy, not null
+	 * @param targetFile
+	 * 		the file to copy the asset to, not null
+	 * @param checksum
+	 * 		updated with the copied data, null if no checksum is needed
+	 * @param progressListener
+	 * 		notified as chunks are copied, null if progress is not needed
+	 * @return the number of bytes copied, or {@code COPY_ABANDONED} if the listener abandoned the
+	 * copy
+	 * @throws IOException
+	 * 		if a general IO based error occurs while copying the asset
+	 */
+	private static long copyCompressedAsset(final AssetManager assetManager,
+			final String assetName, final File targetFile, final Checksum checksum,
+			final ProgressListener progressListener) throws IOException {
+		// Initialise streams outside of try block so that they can be closed later
+		InputStream streamFromAssets = null;
+		OutputStream streamToTargetFile = null;
+
+		try {
+			// IOExceptions may be thrown
+			streamFromAssets = assetManager.open(assetName, AssetManager.ACCESS_STREAMING);
+			streamToTargetFile = new FileOutputStream(targetFile);
+			return copyFile(streamFromAssets, streamToTargetFile, checksum, progressListener);
+		} finally {
+			// An IOException is probably unrecoverable so just abort and close the streams
+			closeStream(streamFromAssets);
+			closeStream(streamToTargetFile);
+		}
+	}
+
+	/**
+	 * Reads an asset in full to determine its length and checksum.
+	 *
+	 * @param assetManager
+	 * 		provides access to the asset, not null
+	 * @param assetName
+	 * 		the name of the asset to describe, not null
+	 * @return a manifest entry describing the asset, not null
+	 * @throws IOException
+	 * 		if a general IO based error occurs while reading the asset
+	 */
+	private static SyncManifestEntry describeAsset(final AssetManager assetManager,
+			final String assetName) throws IOException {
+		final InputStream streamFromAsset = assetManager.open(assetName,
+				AssetManager.ACCESS_STREAMING);
+
+		try {
+			final byte[] buffer = COPY_BUFFER.get();
+			final CRC32 checksum = new CRC32();
+			long length = 0;
+			int numberOfBytesRead;
+
+			while ((numberOfBytesRead = streamFromAsset.read(buffer)) != -1) {
+				checksum.update(buffer, 0, numberOfBytesRead);
+				length += numberOfBytesRead;
+			}
+
+			return new SyncManifestEntry(length, checksum.getValue());
+		} finally {
+			closeStream(streamFromAsset);
+		}
+	}
+
+	/**
+	 * Reads a sync manifest from a file. If the file does not exist or cannot be parsed, an empty
+	 * manifest is returned so that every asset is re-checked.
+	 *
+	 * @param manifestFile
+	 * 		the file to read, not null
+	 * @return the manifest, not null
+	 */
+	private static SyncManifest readSyncManifest(final File manifestFile) {
+		if (!manifestFile.isFile()) {
+			return new SyncManifest(NO_APP_VERSION);
+		}
+
+		BufferedReader reader = null;
+
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifestFile),
+					"UTF-8"));
+
+			final SyncManifest manifest = new SyncManifest(Long.parseLong(reader.readLine()));
+			String line;
+
+			// Each line is "length <tab> checksum <tab> name", with the name last since it is free
+			while ((line = reader.readLine()) != null) {
+				final String[] fields = line.split("\t", 3);
+				manifest.entries.put(fields[2], new SyncManifestEntry(Long.parseLong(fields[0]),
+						Long.parseLong(fields[1])));
+			}
+
+			return manifest;
+		} catch (final IOException | RuntimeException e) {
+			Log.w(TAG, "[Ignoring unreadable sync manifest: " + manifestFile + "]", e);
+			return new SyncManifest(NO_APP_VERSION);
+		} finally {
+			closeStream(reader);
+		}
+	}
+
+	/**
+	 * Writes a sync manifest to a file. The manifest is written to a temporary file first and then
+	 * renamed, so that a partially written manifest is never read.
+	 *
+	 * @param manifestFile
+	 * 		the file to write, not null
+	 * @param manifest
+	 * 		the manifest to write, not null
+	 * @throws IOException
+	 * 		if a general IO based error occurs while writing the manifest
+	 */
+	private static void writeSyncManifest(final File manifestFile, final SyncManifest manifest)
+			throws IOException {
+		final File tempFile = new File(manifestFile.getPath() + TEMP_FILE_SUFFIX);
+		Writer writer = null;
+
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile),
+					"UTF-8"));
+			writer.write(Long.toString(manifest.appVersion));
+			writer.write('\n');
+
+			for (final Map.Entry<String, SyncManifestEntry> entry : manifest.entries.entrySet()) {
+				writer.write(entry.getValue().length + "\t" + entry.getValue().checksum + "\t" +
+						entry.getKey() + "\n");
+			}
+		} finally {
+			closeStream(writer);
+		}
 
-			// Initialise streams outside of try block so that they can be closed later
-			InputStream streamFromAssets = null;
-			OutputStream streamToTargetFile = null;
+		if (!tempFile.renameTo(manifestFile)) {
+			throw new IOException("could not rename " + tempFile + " to " + manifestFile);
+		}
+	}
+
+	/**
+	 * Forces the contents of a file to be written to storage. The file is opened read-only, so a
+	 * file which has been deleted causes an exception instead of being recreated empty.
+	 *
+	 * @param file
+	 * 		the file to sync, not null
+	 * @throws IOException
+	 * 		if the file does not exist, or cannot be opened or synced
+	 */
+	private static void syncFile(final File file) throws IOException {
+		// Syncing through any descriptor flushes all dirty data for the file, not just its own
+		final RandomAccessFile openFile = new RandomAccessFile(file, "r");
+
+		try {
+			openFile.getFD().sync();
+		} finally {
+			closeStream(openFile);
+		}
+	}
+
+	/**
+	 * Forces the entries of a directory to be written to storage, so that files which were renamed
+	 * into the directory remain renamed after a power loss. Directories cannot be opened as
+	 * streams, so this is only possible from API 21 onwards. Failures are logged rather than
+	 * thrown, since the renames have already succeeded and some file systems do not support
+	 * syncing directories.
+	 *
+	 * @param directory
+	 * 		the directory to sync, not null
+	 */
+	@TargetApi(21) // For lint
+	private static void syncDirectory(final File directory) {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+			return;
+		}
+
+		try {
+			final FileDescriptor descriptor = Os.open(directory.getPath(), OsConstants.O_RDONLY,
+					0);
 
 			try {
-				// IOExceptions may be thrown
-				streamToTargetFile = new FileOutputStream(fileInTargetDirectory);
-				streamFromAssets = assetsManager.open(filename);
-				copyFile(streamFromAssets, streamToTargetFile);
+				Os.fsync(descriptor);
 			} finally {
-				// An IOException is probably unrecoverable so just abort and close the streams
-				closeStream(streamFromAssets);
-				closeStream(streamToTargetFile);
+				Os.close(descriptor);
 			}
+		} catch (final ErrnoException e) {
+			Log.w(TAG, "[Could not sync directory: " + directory + "]", e);
+		}
+	}
+
+	/**
+	 * Deletes a file if it exists.
+	 *
+	 * @param file
+	 * 		the file to delete, not null
+	 * @throws IOException
+	 * 		if the file exists but could not be deleted
+	 */
+	private static void deleteFile(final File file) throws IOException {
+		if (file.exists() && !file.delete()) {
+			throw new IOException("could not delete " + file);
 		}
 	}
 
@@ -94,13 +1480,19 @@ public class AssetsHelper {
 	 * 		the source of the data to copy, not null
 	 * @param target
 	 * 		the target to copy data to, not null
+	 * @param checksum
+	 * 		updated with the copied data, null if no checksum is needed
+	 * @param progressListener
+	 * 		notified as chunks are copied, null if progress is not needed
+	 * @return the number of bytes copied, or {@code COPY_ABANDONED} if the listener abandoned the
+	 * copy
 	 * @throws IOException
 	 * 		if a general IO based error occurs while transferring data
 	 * @throws IllegalArgumentException
 	 * 		if either {@code source} or {@code target} is null
 	 */
-	private static void copyFile(final InputStream source, final OutputStream target) throws
-			IOException {
+	private static long copyFile(final InputStream source, final OutputStream target,
+			final Checksum checksum, final ProgressListener progressListener) throws IOException {
 		if (source == null) {
 			throw new IllegalArgumentException("source cannot be null");
 		} else if (target == null) {
@@ -108,29 +1500,40 @@ public class AssetsHelper {
 		}
 
 		// Data is moved from the input stream to the output stream through buffer
-		final byte[] buffer = new byte[1024];
+		final byte[] buffer = COPY_BUFFER.get();
+		long totalBytesCopied = 0;
 
 		// Read data into the buffer from the source
 		int numberOfBytesRead = source.read(buffer);
 
 		// If the buffer received data, write data from the buffer to the output stream
 		while (numberOfBytesRead != -1) {
+			if (checksum != null) {
+				checksum.update(buffer, 0, numberOfBytesRead);
+			}
+
 			target.write(buffer, 0, numberOfBytesRead);
+			totalBytesCopied += numberOfBytesRead;
+
+			if (progressListener != null && !progressListener.onChunkCopied(numberOfBytesRead)) {
+				return COPY_ABANDONED;
+			}
+
 			numberOfBytesRead = source.read(buffer); // read the next "lot" of data
 		}
+
+		return totalBytesCopied;
 	}
 
 	/**
 	 * Closes a stream. Exceptions are logged if the stream cannot be closed.
 	 *
 	 * @param stream
-	 * 		the stream to close, not null
-	 * @throws IllegalArgumentException
-	 * 		if {@code stream} is null
+	 * 		the stream to close, may be null (in which case nothing happens)
 	 */
 	private static void closeStream(final Closeable stream) {
 		if (stream == null) {
-			throw new IllegalArgumentException("stream cannot be null");
+			return;
 		}
 
 		try {
@@ -139,4 +1542,388 @@ public class AssetsHelper {
 			Log.e(TAG, "[Error closing stream: " + stream + "]", e);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * The outcome of copying a single asset.
+	 */
+	public static class CopyResult {
+		/**
+		 * Returned by {@link #getChecksum()} when no checksum was computed. CRC32 values are
+		 * never negative, so this cannot clash with a real checksum.
+		 */
+		public static final long NO_CHECKSUM = -1;
+
+		/**
+		 * The name of the asset which was copied.
+		 */
+		private final String assetName;
+
+		/**
+		 * The file the asset was copied to.
+		 */
+		private final File targetFile;
+
+		/**
+		 * The number of bytes copied.
+		 */
+		private final long bytesCopied;
+
+		/**
+		 * The CRC32 checksum of the copied data, {@link #NO_CHECKSUM} if it was not computed.
+		 */
+		private final long checksum;
+
+		/**
+		 * The exception which caused the copy to fail, null if the copy succeeded.
+		 */
+		private final IOException failure;
+
+		/**
+		 * Constructs a new CopyResult without a checksum.
+		 *
+		 * @param assetName
+		 * 		the name of the asset which was copied
+		 * @param targetFile
+		 * 		the file the asset was copied to
+		 * @param bytesCopied
+		 * 		the number of bytes copied
+		 * @param failure
+		 * 		the exception which caused the copy to fail, null if the copy succeeded
+		 */
+		private CopyResult(final String assetName, final File targetFile, final long bytesCopied,
+				final IOException failure) {
+			this(assetName, targetFile, bytesCopied, NO_CHECKSUM, failure);
+		}
+
+		/**
+		 * Constructs a new CopyResult.
+		 *
+		 * @param assetName
+		 * 		the name of the asset which was copied
+		 * @param targetFile
+		 * 		the file the asset was copied to
+		 * @param bytesCopied
+		 * 		the number of bytes copied
+		 * @param checksum
+		 * 		the CRC32 checksum of the copied data, {@link #NO_CHECKSUM} if it was not computed
+		 * @param failure
+		 * 		the exception which caused the copy to fail, null if the copy succeeded
+		 */
+		private CopyResult(final String assetName, final File targetFile, final long bytesCopied,
+				final long checksum, final IOException failure) {
+			this.assetName = assetName;
+			this.targetFile = targetFile;
+			this.bytesCopied = bytesCopied;
+			this.checksum = checksum;
+			this.failure = failure;
+		}
+
+		/**
+		 * @return the name of the asset which was copied, not null
+		 */
+		public String getAssetName() {
+			return assetName;
+		}
+
+		/**
+		 * @return the file the asset was copied to, not null
+		 */
+		public File getTargetFile() {
+			return targetFile;
+		}
+
+		/**
+		 * @return the number of bytes copied
+		 */
+		public long getBytesCopied() {
+			return bytesCopied;
+		}
+
+		/**
+		 * @return the CRC32 checksum of the copied data, {@link #NO_CHECKSUM} if it was not
+		 * computed
+		 */
+		public long getChecksum() {
+			return checksum;
+		}
+
+		/**
+		 * @return true if a checksum was computed for the copied data, false otherwise
+		 */
+		public boolean hasChecksum() {
+			return checksum != NO_CHECKSUM;
+		}
+
+		/**
+		 * Determines whether the copied data matches an expected length and checksum, such as
+		 * those recorded by an {@link AssetIndex}.
+		 *
+		 * @param expectedLength
+		 * 		the expected length of the data, measured in bytes
+		 * @param expectedChecksum
+		 * 		the expected CRC32 checksum of the data
+		 * @return true if the copy succeeded and the data matches, false if the data does not
+		 * match or no checksum was computed
+		 */
+		public boolean matches(final long expectedLength, final long expectedChecksum) {
+			return isSuccessful() && hasChecksum() && bytesCopied == expectedLength &&
+					checksum == expectedChecksum;
+		}
+
+		/**
+		 * @return true if the copy succeeded, false otherwise
+		 */
+		public boolean isSuccessful() {
+			return failure == null;
+		}
+
+		/**
+		 * @return the exception which caused the copy to fail, null if the copy succeeded
+		 */
+		public IOException getFailure() {
+			return failure;
+		}
+	}
+
+	/**
+	 * The outcome of copying several assets.
+	 */
+	public static class CopyReport {
+		/**
+		 * The outcome of each copy, in the order the assets were requested.
+		 */
+		private final List<CopyResult> results;
+
+		/**
+		 * The total time taken to perform all copies, measured in nanoseconds.
+		 */
+		private final long elapsedNanos;
+
+		/**
+		 * Constructs a new CopyReport.
+		 *
+		 * @param results
+		 * 		the outcome of each copy, in the order the assets were requested
+		 * @param elapsedNanos
+		 * 		the total time taken to perform all copies, measured in nanoseconds
+		 */
+		private CopyReport(final List<CopyResult> results, final long elapsedNanos) {
+			this.results = Collections.unmodifiableList(results);
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		/**
+		 * @return the outcome of each copy, in the order the assets were requested, not null
+		 */
+		public List<CopyResult> getResults() {
+			return results;
+		}
+
+		/**
+		 * @return the outcomes of the copies which failed, not null
+		 */
+		public List<CopyResult> getFailures() {
+			final List<CopyResult> failures = new ArrayList<>();
+
+			for (final CopyResult result : results) {
+				if (!result.isSuccessful()) {
+					failures.add(result);
+				}
+			}
+
+			return failures;
+		}
+
+		/**
+		 * @return true if every copy succeeded, false otherwise
+		 */
+		public boolean isSuccessful() {
+			return getFailures().isEmpty();
+		}
+
+		/**
+		 * @return the total number of bytes copied
+		 */
+		public long getTotalBytesCopied() {
+			long total = 0;
+
+			for (final CopyResult result : results) {
+				total += result.getBytesCopied();
+			}
+
+			return total;
+		}
+
+		/**
+		 * @return the total time taken to perform all copies, measured in milliseconds
+		 */
+		public long getElapsedTimeMillis() {
+			return elapsedNanos / 1000000;
+		}
+
+		/**
+		 * @return the overall throughput, measured in bytes per second
+		 */
+		public double getThroughputBytesPerSecond() {
+			return elapsedNanos == 0 ? 0 : getTotalBytesCopied() * 1e9 / elapsedNanos;
+		}
+	}
+
+	/**
+	 * Walks an asset directory tree depth first, returning one file at a time. Only the entries of
+	 * the directories visited so far are held in memory, rather than the whole tree. Directories
+	 * are distinguished from files by listing them, since AssetManager returns an empty listing for
+	 * files (empty directories are not packaged).
+	 */
+	private static class AssetTreeWalker {
+		/**
+		 * Provides access to the assets.
+		 */
+		private final AssetManager assetManager;
+
+		/**
+		 * Paths which have been listed but not yet visited, with the next path at the head.
+		 */
+		private final Deque<String> pendingPaths = new ArrayDeque<>();
+
+		/**
+		 * Constructs a new AssetTreeWalker and lists the root directory.
+		 *
+		 * @param assetManager
+		 * 		provides access to the assets, not null
+		 * @param rootDirectory
+		 * 		the path of the directory to walk, not null
+		 * @throws IOException
+		 * 		if the root directory cannot be listed
+		 */
+		private AssetTreeWalker(final AssetManager assetManager, final String rootDirectory)
+				throws IOException {
+			this.assetManager = assetManager;
+			pushChildren(rootDirectory, assetManager.list(rootDirectory));
+		}
+
+		/**
+		 * Finds the next file in the tree.
+		 *
+		 * @return the path of the next file, null if the walk is complete
+		 * @throws IOException
+		 * 		if a directory cannot be listed
+		 */
+		private String next() throws IOException {
+			while (!pendingPaths.isEmpty()) {
+				final String path = pendingPaths.pop();
+				final String[] children = assetManager.list(path);
+
+				if (children == null || children.length == 0) {
+					return path;
+				}
+
+				pushChildren(path, children);
+			}
+
+			return null;
+		}
+
+		/**
+		 * Adds the children of a directory to the head of the pending paths, preserving their
+		 * listed order.
+		 *
+		 * @param directory
+		 * 		the path of the directory
+		 * @param children
+		 * 		the names of the children of the directory, may be null
+		 */
+		private void pushChildren(final String directory, final String[] children) {
+			if (children == null) {
+				return;
+			}
+
+			for (int i = children.length - 1; i >= 0; i--) {
+				pendingPaths.push(directory.isEmpty() ? children[i] :
+						directory + "/" + children[i]);
+			}
+		}
+	}
+
+	/**
+	 * The state of a directory of synced assets.
+	 */
+	private static class SyncManifest {
+		/**
+		 * The version of the app which performed the sync.
+		 */
+		private final long appVersion;
+
+		/**
+		 * Describes each synced asset, keyed by asset name.
+		 */
+		private final Map<String, SyncManifestEntry> entries = new LinkedHashMap<>();
+
+		/**
+		 * Constructs a new empty SyncManifest.
+		 *
+		 * @param appVersion
+		 * 		the version of the app which performed the sync
+		 */
+		private SyncManifest(final long appVersion) {
+			this.appVersion = appVersion;
+		}
+	}
+
+	/**
+	 * Describes the contents of a single synced asset.
+	 */
+	private static class SyncManifestEntry {
+		/**
+		 * The length of the asset, measured in bytes.
+		 */
+		private final long length;
+
+		/**
+		 * The CRC32 checksum of the asset.
+		 */
+		private final long checksum;
+
+		/**
+		 * Constructs a new SyncManifestEntry.
+		 *
+		 * @param length
+		 * 		the length of the asset, measured in bytes
+		 * @param checksum
+		 * 		the CRC32 checksum of the asset
+		 */
+		private SyncManifestEntry(final long length, final long checksum) {
+			this.length = length;
+			this.checksum = checksum;
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			if (!(object instanceof SyncManifestEntry)) {
+				return false;
+			}
+
+			final SyncManifestEntry other = (SyncManifestEntry) object;
+			return length == other.length && checksum == other.checksum;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (length ^ checksum);
+		}
+	}
+
+	/**
+	 * Callback for receiving progress while an asset is copied.
+	 */
+	public interface ProgressListener {
+		/**
+		 * Invoked each time a chunk of the asset has been written to the target.
+		 *
+		 * @param chunkLength
+		 * 		the number of bytes in the chunk
+		 * @return true to continue copying, false to abandon the copy
+		 */
+		public boolean onChunkCopied(long chunkLength);
+	}
+}
@@ -16,19 +16,40 @@
 
 package com.matthewtamlin.android_utilities.library.helpers;
 
+import android.content.ContentResolver;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
 
+import com.matthewtamlin.android_utilities.library.utilities.BitmapPool;
 import com.matthewtamlin.java_utilities.testing.Tested;
 
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 
 /**
  * Helper class for efficiently decoding Bitmap images.
  */
 @Tested(testMethod = "automated")
 public class BitmapEfficiencyHelper {
+	/**
+	 * Used during debugging to identify this class.
+	 */
+	@SuppressWarnings("unused")
+	private static final String TAG = "[BitmapEfficiencyHelper]";
+
 	/**
 	 * Calculates the sampling rate which can be used to decode a Bitmap by sub-sampling, such that
 	 * all of the following conditions are satisfied: <ul><li>The sampling rate is a power of
@@ -214,4 +235,382 @@ public class BitmapEfficiencyHelper {
 		options.inScaled = false;
 		return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
 	}
+
+	/**
+	 * Decodes an image from a FileDescriptor. The memory consumed by the decoded image is reduced
+	 * by matching the image dimensions to the desired dimensions as best as possible. The
+	 * dimensions of the returned image always exceeds or matches the supplied dimensions. Both the
+	 * bounds pass and the pixel pass read directly from the descriptor, and the descriptor is
+	 * explicitly returned to its original position between the passes, so the image data is never
+	 * copied into memory in full. The descriptor must therefore be seekable, which rules out pipes
+	 * and sockets. The descriptor is not closed by this method.
+	 *
+	 * @param fileDescriptor
+	 * 		a seekable FileDescriptor referencing compressed image data, not null
+	 * @param desWidth
+	 * 		the desired width of the returned image, measured in pixels, not less than zero
+	 * @param desHeight
+	 * 		the desired height of the returned image, measured in pixels, not less than zero
+	 * @return the decoded image, null if the image could not be decoded
+	 * @throws IllegalArgumentException
+	 * 		if {@code fileDescriptor} is null or is not seekable, or if either dimension is less
+	 * 		than zero
+	 */
+	public static Bitmap decodeFileDescriptor(final FileDescriptor fileDescriptor,
+			final int desWidth, final int desHeight) {
+		if (fileDescriptor == null) {
+			throw new IllegalArgumentException("fileDescriptor cannot be null");
+		} else if (desWidth < 0 || desHeight < 0) {
+			throw new IllegalArgumentException("both dimensions must be greater than zero");
+		}
+
+		// The stream does not own the descriptor, so it must not be closed
+		final FileChannel channel = new FileInputStream(fileDescriptor).getChannel();
+		final long startPosition;
+
+		try {
+			startPosition = channel.position();
+		} catch (final IOException e) {
+			throw new IllegalArgumentException("fileDescriptor must be seekable", e);
+		}
+
+		// Decode only the boundaries of the image to get its dimensions
+		final BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inJustDecodeBounds = true;
+		BitmapFactory.decodeFileDescriptor(fileDescriptor, null, options);
+
+		try {
+			channel.position(startPosition);
+		} catch (final IOException e) {
+			Log.e(TAG, "[Error seeking file descriptor: " + fileDescriptor + "]", e);
+			return null;
+		}
+
+		// Decode the full image using sub-sampling
+		options.inSampleSize = calculateSamplingRate(options.outWidth, options.outHeight,
+				desWidth, desHeight);
+		options.inJustDecodeBounds = false;
+		options.inScaled = false;
+		return BitmapFactory.decodeFileDescriptor(fileDescriptor, null, options);
+	}
+
+	/**
+	 * Decodes an image from a ParcelFileDescriptor, such as one returned by a ContentProvider. See
+	 * {@link #decodeFileDescriptor(FileDescriptor, int, int)} for details. The descriptor is not
+	 * closed by this method.
+	 *
+	 * @param parcelFileDescriptor
+	 * 		a seekable ParcelFileDescriptor referencing compressed image data, not null
+	 * @param desWidth
+	 * 		the desired width of the returned image, measured in pixels, not less than zero
+	 * @param desHeight
+	 * 		the desired height of the returned image, measured in pixels, not less than zero
+	 * @return the decoded image, null if the image could not be decoded
+	 * @throws IllegalArgumentException
+	 * 		if {@code parcelFileDescriptor} is null or is not seekable, or if either dimension is
+	 * 		less than zero
+	 */
+	public static Bitmap decodeFileDescriptor(final ParcelFileDescriptor parcelFileDescriptor,
+			final int desWidth, final int desHeight) {
+		if (parcelFileDescriptor == null) {
+			throw new IllegalArgumentException("parcelFileDescriptor cannot be null");
+		}
+
+		return decodeFileDescriptor(parcelFileDescriptor.getFileDescriptor(), desWidth,
+				desHeight);
+	}
+
+	/**
+	 * Decodes an image from a content Uri, such as a media store image. The memory consumed by the
+	 * decoded image is reduced by matching the image dimensions to the desired dimensions as best
+	 * as possible. The dimensions of the returned image always exceeds or matches the supplied
+	 * dimensions. The Uri is opened as a file descriptor and both decoding passes read from it
+	 * directly, so the image data is never copied into memory in full. Some providers supply a
+	 * pipe which can only be read once, in which case the Uri is opened a second time for the
+	 * pixel pass.
+	 *
+	 * @param contentResolver
+	 * 		the ContentResolver to open the Uri with, not null
+	 * @param uri
+	 * 		the Uri of the compressed image data, not null
+	 * @param desWidth
+	 * 		the desired width of the returned image, measured in pixels, not less than zero
+	 * @param desHeight
+	 * 		the desired height of the returned image, measured in pixels, not less than zero
+	 * @return the decoded image, null if the image could not be decoded
+	 * @throws FileNotFoundException
+	 * 		if the Uri cannot be opened
+	 * @throws IllegalArgumentException
+	 * 		if {@code contentResolver} or {@code uri} is null, or if either dimension is less than
+	 * 		zero
+	 */
+	public static Bitmap decodeContentUri(final ContentResolver contentResolver, final Uri uri,
+			final int desWidth, final int desHeight) throws FileNotFoundException {
+		if (contentResolver == null) {
+			throw new IllegalArgumentException("contentResolver cannot be null");
+		} else if (uri == null) {
+			throw new IllegalArgumentException("uri cannot be null");
+		} else if (desWidth < 0 || desHeight < 0) {
+			throw new IllegalArgumentException("both dimensions must be greater than zero");
+		}
+
+		final BitmapFactory.Options options = new BitmapFactory.Options();
+		ParcelFileDescriptor parcelFileDescriptor = openUri(contentResolver, uri);
+
+		if (parcelFileDescriptor == null) {
+			return null;
+		}
+
+		try {
+			if (isSeekable(parcelFileDescriptor.getFileDescriptor())) {
+				return decodeFileDescriptor(parcelFileDescriptor, desWidth, desHeight);
+			}
+
+			// Decode only the boundaries of the image to get its dimensions
+			options.inJustDecodeBounds = true;
+			BitmapFactory.decodeFileDescriptor(parcelFileDescriptor.getFileDescriptor(), null,
+					options);
+		} finally {
+			closeParcelFileDescriptor(parcelFileDescriptor, uri);
+		}
+
+		// The pipe has been consumed, so open a fresh one for the pixel pass
+		parcelFileDescriptor = openUri(contentResolver, uri);
+
+		if (parcelFileDescriptor == null) {
+			return null;
+		}
+
+		try {
+			options.inSampleSize = calculateSamplingRate(options.outWidth, options.outHeight,
+					desWidth, desHeight);
+			options.inJustDecodeBounds = false;
+			options.inScaled = false;
+			return BitmapFactory.decodeFileDescriptor(parcelFileDescriptor.getFileDescriptor(),
+					null, options);
+		} finally {
+			closeParcelFileDescriptor(parcelFileDescriptor, uri);
+		}
+	}
+
+	/**
+	 * Decodes an image from a File and applies the orientation recorded in its EXIF data. The
+	 * orientation is read alongside the bounds pass, and the desired dimensions are interpreted
+	 * relative to the upright image, so sub-sampling is calculated against the rotated dimensions.
+	 * The rotation is drawn into a destination Bitmap obtained from {@code pool}, and the
+	 * sub-sampled source is returned to {@code pool} afterwards, so no full size intermediate copy
+	 * is allocated. If the file has no EXIF orientation (or it cannot be read), this method behaves
+	 * like {@link #decodeFile(File, int, int)}.
+	 *
+	 * @param file
+	 * 		a File containing compressed image data, not null
+	 * @param desWidth
+	 * 		the desired width of the upright image, measured in pixels, not less than zero
+	 * @param desHeight
+	 * 		the desired height of the upright image, measured in pixels, not less than zero
+	 * @param pool
+	 * 		the pool to obtain the destination Bitmap from and return the source Bitmap to, null to
+	 * 		allocate without pooling
+	 * @return the decoded and correctly oriented image, null if the image could not be decoded
+	 * @throws IllegalArgumentException
+	 * 		if {@code file} is null, or if either dimension is less than zero
+	 */
+	public static Bitmap decodeFileUsingOrientation(final File file, final int desWidth,
+			final int desHeight, final BitmapPool pool) {
+		if (file == null) {
+			throw new IllegalArgumentException("file cannot be null");
+		} else if (desWidth < 0 || desHeight < 0) {
+			throw new IllegalArgumentException("both dimensions must be greater than zero");
+		}
+
+		// Decode only the boundaries of the image to get its dimensions, and read the orientation
+		final BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inJustDecodeBounds = true;
+		BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+		final int orientation = readExifOrientation(file);
+
+		// The desired dimensions refer to the upright image, so swap them if rotating by 90 degrees
+		final boolean transposed = isTransposingOrientation(orientation);
+		final int rawWidth = options.outWidth;
+		final int rawHeight = options.outHeight;
+		options.inSampleSize = transposed ?
+				calculateSamplingRate(rawWidth, rawHeight, desHeight, desWidth) :
+				calculateSamplingRate(rawWidth, rawHeight, desWidth, desHeight);
+		options.inJustDecodeBounds = false;
+		options.inScaled = false;
+
+		// Mutable bitmaps can be returned to the pool once the rotation has been applied
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+			options.inMutable = true;
+		}
+
+		final Bitmap source = BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+
+		if (source == null) {
+			return null;
+		}
+
+		return applyExifOrientation(source, orientation, pool);
+	}
+
+	/**
+	 * Opens a Uri for reading as a ParcelFileDescriptor.
+	 *
+	 * @param contentResolver
+	 * 		the ContentResolver to open the Uri with, not null
+	 * @param uri
+	 * 		the Uri to open, not null
+	 * @return the descriptor, null if the provider returned null
+	 * @throws FileNotFoundException
+	 * 		if the Uri cannot be opened
+	 */
+	private static ParcelFileDescriptor openUri(final ContentResolver contentResolver,
+			final Uri uri) throws FileNotFoundException {
+		return contentResolver.openFileDescriptor(uri, "r");
+	}
+
+	/**
+	 * Determines whether a FileDescriptor supports seeking. Pipes and sockets do not.
+	 *
+	 * @param fileDescriptor
+	 * 		the descriptor to check, not null
+	 * @return true if the descriptor is seekable, false otherwise
+	 */
+	private static boolean isSeekable(final FileDescriptor fileDescriptor) {
+		try {
+			// The stream does not own the descriptor, so it must not be closed
+			new FileInputStream(fileDescriptor).getChannel().position();
+			return true;
+		} catch (final IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Closes a ParcelFileDescriptor and logs any failure.
+	 *
+	 * @param parcelFileDescriptor
+	 * 		the descriptor to close, not null
+	 * @param uri
+	 * 		the Uri the descriptor was opened from, used for logging
+	 */
+	private static void closeParcelFileDescriptor(final ParcelFileDescriptor parcelFileDescriptor,
+			final Uri uri) {
+		try {
+			parcelFileDescriptor.close();
+		} catch (final IOException e) {
+			Log.e(TAG, "[Error closing file descriptor for: " + uri + "]", e);
+		}
+	}
+
+	/**
+	 * Reads the EXIF orientation of an image file. Failures are logged and treated as if the image
+	 * has no orientation.
+	 *
+	 * @param file
+	 * 		the file to read the orientation from, not null
+	 * @return the orientation, as one of the {@code ORIENTATION} constants of {@link ExifInterface}
+	 */
+	private static int readExifOrientation(final File file) {
+		try {
+			final ExifInterface exif = new ExifInterface(file.getAbsolutePath());
+
+			return exif.getAttributeInt(ExifInterface.TAG_ORIENTATION,
+					ExifInterface.ORIENTATION_NORMAL);
+		} catch (final IOException e) {
+			Log.w(TAG, "[Error reading EXIF orientation: " + file + "]", e);
+			return ExifInterface.ORIENTATION_NORMAL;
+		}
+	}
+
+	/**
+	 * Determines whether an EXIF orientation swaps the width and height of the image.
+	 *
+	 * @param orientation
+	 * 		the orientation, as one of the {@code ORIENTATION} constants of {@link ExifInterface}
+	 * @return true if the orientation rotates the image by 90 or 270 degrees, false otherwise
+	 */
+	private static boolean isTransposingOrientation(final int orientation) {
+		return orientation == ExifInterface.ORIENTATION_ROTATE_90 ||
+				orientation == ExifInterface.ORIENTATION_ROTATE_270 ||
+				orientation == ExifInterface.ORIENTATION_TRANSPOSE ||
+				orientation == ExifInterface.ORIENTATION_TRANSVERSE;
+	}
+
+	/**
+	 * Draws a decoded image into a new Bitmap with the supplied EXIF orientation applied. The
+	 * source image is released (either to the pool or by recycling) once it has been drawn. If the
+	 * orientation does not require any transformation, the source image is returned directly.
+	 *
+	 * @param source
+	 * 		the decoded image, not null
+	 * @param orientation
+	 * 		the orientation, as one of the {@code ORIENTATION} constants of {@link ExifInterface}
+	 * @param pool
+	 * 		the pool to obtain the destination from and return the source to, may be null
+	 * @return the correctly oriented image, not null
+	 */
+	private static Bitmap applyExifOrientation(final Bitmap source, final int orientation,
+			final BitmapPool pool) {
+		final int width = source.getWidth();
+		final int height = source.getHeight();
+		final Matrix matrix = new Matrix();
+
+		// Each transformation is translated back so that the result starts at the origin
+		switch (orientation) {
+			case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+				matrix.postScale(-1, 1);
+				matrix.postTranslate(width, 0);
+				break;
+			case ExifInterface.ORIENTATION_ROTATE_180:
+				matrix.postRotate(180);
+				matrix.postTranslate(width, height);
+				break;
+			case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+				matrix.postScale(1, -1);
+				matrix.postTranslate(0, height);
+				break;
+			case ExifInterface.ORIENTATION_TRANSPOSE:
+				matrix.postRotate(90);
+				matrix.postScale(-1, 1);
+				break;
+			case ExifInterface.ORIENTATION_ROTATE_90:
+				matrix.postRotate(90);
+				matrix.postTranslate(height, 0);
+				break;
+			case ExifInterface.ORIENTATION_TRANSVERSE:
+				matrix.postRotate(270);
+				matrix.postScale(-1, 1);
+				matrix.postTranslate(height, width);
+				break;
+			case ExifInterface.ORIENTATION_ROTATE_270:
+				matrix.postRotate(270);
+				matrix.postTranslate(0, width);
+				break;
+			default:
+				return source;
+		}
+
+		final boolean transposed = isTransposingOrientation(orientation);
+		final int destWidth = transposed ? height : width;
+		final int destHeight = transposed ? width : height;
+		final Bitmap.Config config = source.getConfig() == null ? Bitmap.Config.ARGB_8888 :
+				source.getConfig();
+
+		final Bitmap destination = pool == null ?
+				Bitmap.createBitmap(destWidth, destHeight, config) :
+				pool.get(destWidth, destHeight, config);
+
+		final Canvas canvas = new Canvas(destination);
+		canvas.drawBitmap(source, matrix, new Paint(Paint.FILTER_BITMAP_FLAG));
+
+		// The source is no longer needed, so make its memory available immediately
+		if (pool == null || !source.isMutable()) {
+			source.recycle();
+		} else {
+			pool.put(source);
+		}
+
+		return destination;
+	}
 }
\ No newline at end of file
@@ -16,15 +16,129 @@
 
 package com.matthewtamlin.android_utilities.library.helpers;
 
+import android.graphics.Bitmap;
 import android.graphics.Color;
+import android.graphics.Rect;
 
 import com.matthewtamlin.java_utilities.testing.Tested;
 
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
 /**
  * Helper class for working with colors.
  */
 @Tested(testMethod = "automated")
 public class ColorHelper {
+	/**
+	 * The luminance above which black text provides more contrast than white text.
+	 */
+	private static final double BEST_TEXT_COLOR_LUMINANCE_THRESHOLD = 0.179;
+
+	/**
+	 * The minimum contrast ratio for normal text to meet WCAG 2.0 level AA.
+	 */
+	public static final float WCAG_AA_CONTRAST_RATIO = 4.5f;
+
+	/**
+	 * The minimum contrast ratio for large text to meet WCAG 2.0 level AA.
+	 */
+	public static final float WCAG_AA_LARGE_TEXT_CONTRAST_RATIO = 3f;
+
+	/**
+	 * The minimum contrast ratio for normal text to meet WCAG 2.0 level AAA.
+	 */
+	public static final float WCAG_AAA_CONTRAST_RATIO = 7f;
+
+	/**
+	 * Maps each 8-bit sRGB component value to its linear value. Precomputing the conversion avoids
+	 * calling {@link Math#pow(double, double)} for every component of every color.
+	 */
+	private static final float[] SRGB_TO_LINEAR = new float[256];
+
+	/**
+	 * The fixed-point ratio which selects the second colour entirely, in {@link
+	 * #blendColorsFixedPoint(int, int, int)}.
+	 */
+	public static final int FIXED_POINT_RATIO_ONE = 256;
+
+	/**
+	 * The minimum number of colours each thread blends in {@link #blendColorsInParallel(int[],
+	 * int[], float, int[], ExecutorService)}. Smaller chunks cost more to schedule than to blend.
+	 */
+	public static final int PARALLEL_BLEND_CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * The number of bits kept from each RGB component when building a palette histogram.
+	 */
+	private static final int PALETTE_QUANTIZE_BITS = 5;
+
+	/**
+	 * The number of bins in a palette histogram, one for each quantized RGB color.
+	 */
+	private static final int PALETTE_HISTOGRAM_SIZE = 1 << (3 * PALETTE_QUANTIZE_BITS);
+
+	/**
+	 * The dimension which bitmaps are sampled down towards before building a palette histogram.
+	 */
+	private static final int PALETTE_TARGET_DIMENSION = 100;
+
+	/**
+	 * The maximum number of swatches a palette is divided into.
+	 */
+	private static final int PALETTE_MAX_SWATCHES = 16;
+
+	/**
+	 * The minimum alpha a pixel must have to contribute to a palette.
+	 */
+	private static final int PALETTE_MIN_ALPHA = 128;
+
+	/**
+	 * The minimum number of sampled rows each thread processes in {@link
+	 * #extractPalette(Bitmap, ExecutorService)}.
+	 */
+	private static final int PALETTE_MIN_ROWS_PER_THREAD = 32;
+
+	/**
+	 * The number of pixels read from a bitmap at a time when extracting a palette. Rows which are
+	 * longer than this are read in several segments, so that the buffer has a fixed size.
+	 */
+	private static final int PALETTE_READ_BUFFER_LENGTH = 1024;
+
+	/**
+	 * The saturation which separates vibrant swatches from muted swatches.
+	 */
+	private static final float PALETTE_VIBRANT_MIN_SATURATION = 0.35f;
+
+	/**
+	 * The lightest a vibrant or muted swatch may be.
+	 */
+	private static final float PALETTE_MAX_LIGHTNESS = 0.7f;
+
+	/**
+	 * The darkest a vibrant or muted swatch may be.
+	 */
+	private static final float PALETTE_MIN_LIGHTNESS = 0.3f;
+
+	static {
+		// sRGB to RGB according to https://goo.gl/vIj7TC
+		for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+			final float x = ((float) i) / 255;
+
+			if (x <= 0.04045) {
+				SRGB_TO_LINEAR[i] = (float) (x / 12.92);
+			} else {
+				SRGB_TO_LINEAR[i] = (float) Math.pow((x + 0.055) / 1.055, 2.4);
+			}
+		}
+	}
+
 	/**
 	 * Blends two colours to produce a single output colour. No check is done to ensure the provided
 	 * colors are valid ARGB hex codes, and providing invalid codes will result in an undefined
@@ -60,6 +174,322 @@ public class ColorHelper {
 		return Color.argb((int) a, (int) r, (int) g, (int) b);
 	}
 
+	/**
+	 * Blends two colours using integer fixed-point arithmetic. The red and blue components are
+	 * blended together using one multiply per colour, as are the alpha and green components, so
+	 * the blend needs four multiplies rather than eight floating point multiplies and
+	 * conversions. The result is identical to the result of {@link #blendColors(int, int, float)}
+	 * with a ratio of {@code ratio / 256f}. When the ratio is derived from an arbitrary float
+	 * ratio using {@link #toFixedPointRatio(float)}, each component of the result differs from the
+	 * floating point result by at most 1.
+	 *
+	 * @param color1
+	 * 		the first colour to blend, as an ARGB hex code
+	 * @param color2
+	 * 		the second colour to blend, as an ARGB hex code
+	 * @param ratio
+	 * 		the proportion of {@code color2} to use in the blended result, in 256ths, between 0 and
+	 * 		{@link #FIXED_POINT_RATIO_ONE} (inclusive)
+	 * @return the ARGB code for the blended colour
+	 * @throws IllegalArgumentException
+	 * 		if {@code ratio} is not between 0 and {@link #FIXED_POINT_RATIO_ONE} (inclusive)
+	 */
+	public static int blendColorsFixedPoint(final int color1, final int color2, final int ratio) {
+		if (ratio < 0 || ratio > FIXED_POINT_RATIO_ONE) {
+			throw new IllegalArgumentException("ratio must be between 0 and 256 (inclusive)");
+		}
+
+		final int inverseRatio = FIXED_POINT_RATIO_ONE - ratio;
+
+		// Each component occupies a 16 bit lane, and a weighted sum never exceeds 255 * 256
+		final int redBlue = ((((color1 & 0x00FF00FF) * inverseRatio) +
+				((color2 & 0x00FF00FF) * ratio)) >>> 8) & 0x00FF00FF;
+		final int alphaGreen = ((((color1 >>> 8) & 0x00FF00FF) * inverseRatio) +
+				(((color2 >>> 8) & 0x00FF00FF) * ratio)) & 0xFF00FF00;
+
+		return alphaGreen | redBlue;
+	}
+
+	/**
+	 * Converts a floating point blend ratio to the nearest fixed-point ratio, for use with {@link
+	 * #blendColorsFixedPoint(int, int, int)}.
+	 *
+	 * @param ratio
+	 * 		the ratio to convert, between 0 and 1 (inclusive)
+	 * @return the fixed-point ratio, between 0 and {@link #FIXED_POINT_RATIO_ONE} (inclusive)
+	 * @throws IllegalArgumentException
+	 * 		if {@code ratio} is not between 0 and 1 (inclusive)
+	 */
+	public static int toFixedPointRatio(final float ratio) {
+		if (ratio < 0 || ratio > 1) {
+			throw new IllegalArgumentException("ratio must be between 0 and 1 (inclusive)");
+		}
+
+		return Math.round(ratio * FIXED_POINT_RATIO_ONE);
+	}
+
+	/**
+	 * Blends two arrays of colours element by element using a fixed ratio, and writes the results
+	 * to an output array. Each result is identical to the result of {@link #blendColors(int, int,
+	 * float)} for the same pair of colours. The output array may be one of the input arrays, in
+	 * which case the blend is performed in place. This method does not allocate memory.
+	 *
+	 * @param colors1
+	 * 		the first colours to blend, as ARGB hex codes, not null
+	 * @param colors2
+	 * 		the second colours to blend, as ARGB hex codes, not null
+	 * @param ratio
+	 * 		the proportion of each colour in {@code colors2} to use in the blended results, between
+	 * 		0 and 1 (inclusive)
+	 * @param output
+	 * 		the array to write the blended colours to, not null
+	 * @throws IllegalArgumentException
+	 * 		if any array is null, if the arrays are not all the same length, or if {@code ratio} is
+	 * 		not between 0 and 1 (inclusive)
+	 */
+	public static void blendColors(final int[] colors1, final int[] colors2, final float ratio,
+			final int[] output) {
+		checkBlendArguments(colors1, colors2, output, ratio);
+
+		blendRange(colors1, 0, colors2, 0, ratio, output, 0, colors1.length);
+	}
+
+	/**
+	 * Blends each colour in an array with a single colour using a fixed ratio, and writes the
+	 * results to an output array. Each result is identical to the result of {@link
+	 * #blendColors(int, int, float)} for the same pair of colours. The output array may be the
+	 * input array, in which case the blend is performed in place. This method does not allocate
+	 * memory.
+	 *
+	 * @param colors
+	 * 		the colours to blend, as ARGB hex codes, not null
+	 * @param color
+	 * 		the colour to blend each colour with, as an ARGB hex code
+	 * @param ratio
+	 * 		the proportion of {@code color} to use in the blended results, between 0 and 1
+	 * 		(inclusive)
+	 * @param output
+	 * 		the array to write the blended colours to, not null
+	 * @throws IllegalArgumentException
+	 * 		if either array is null, if the arrays are not the same length, or if {@code ratio} is
+	 * 		not between 0 and 1 (inclusive)
+	 */
+	public static void blendColors(final int[] colors, final int color, final float ratio,
+			final int[] output) {
+		checkBlendArguments(colors, colors, output, ratio);
+
+		blendRangeWithColor(colors, 0, color, ratio, output, 0, colors.length);
+	}
+
+	/**
+	 * Blends two arrays of colours element by element, using a separate ratio for each pair, and
+	 * writes the results to an output array. Each result is identical to the result of {@link
+	 * #blendColors(int, int, float)} for the same pair of colours and ratio. The output array may
+	 * be one of the input arrays, in which case the blend is performed in place. This method does
+	 * not allocate memory.
+	 *
+	 * @param colors1
+	 * 		the first colours to blend, as ARGB hex codes, not null
+	 * @param colors2
+	 * 		the second colours to blend, as ARGB hex codes, not null
+	 * @param ratios
+	 * 		the proportion of each colour in {@code colors2} to use in the blended results, each
+	 * 		between 0 and 1 (inclusive), not null
+	 * @param output
+	 * 		the array to write the blended colours to, not null
+	 * @throws IllegalArgumentException
+	 * 		if any array is null, if the arrays are not all the same length, or if any ratio is not
+	 * 		between 0 and 1 (inclusive)
+	 */
+	public static void blendColors(final int[] colors1, final int[] colors2, final float[] ratios,
+			final int[] output) {
+		checkBlendArguments(colors1, colors2, output, 0);
+
+		if (ratios == null) {
+			throw new IllegalArgumentException("ratios cannot be null");
+		} else if (ratios.length != colors1.length) {
+			throw new IllegalArgumentException("all arrays must be the same length");
+		}
+
+		// Validate up front so that the output is not partially written if a ratio is invalid
+		for (final float ratio : ratios) {
+			if (ratio < 0 || ratio > 1) {
+				throw new IllegalArgumentException("ratios must be between 0 and 1 (inclusive)");
+			}
+		}
+
+		for (int i = 0; i < colors1.length; i++) {
+			output[i] = blendArgb(colors1[i], colors2[i], ratios[i], 1f - ratios[i]);
+		}
+	}
+
+	/**
+	 * Blends two buffers of colours element by element using a fixed ratio, and writes the
+	 * results to an output buffer. The colours are read from the remaining elements of each input
+	 * buffer and written starting at the position of the output buffer. The positions of the
+	 * buffers are not changed. Buffers which are backed by arrays are blended using the same loop
+	 * as {@link #blendColors(int[], int[], float, int[])}. This method does not allocate memory.
+	 *
+	 * @param colors1
+	 * 		the first colours to blend, as ARGB hex codes, not null
+	 * @param colors2
+	 * 		the second colours to blend, as ARGB hex codes, not null
+	 * @param ratio
+	 * 		the proportion of each colour in {@code colors2} to use in the blended results, between
+	 * 		0 and 1 (inclusive)
+	 * @param output
+	 * 		the buffer to write the blended colours to, not null
+	 * @throws IllegalArgumentException
+	 * 		if any buffer is null, if the input buffers do not have the same number of remaining
+	 * 		elements, if the output buffer has fewer remaining elements than the input buffers, or
+	 * 		if {@code ratio} is not between 0 and 1 (inclusive)
+	 * @throws java.nio.ReadOnlyBufferException
+	 * 		if {@code output} is read-only
+	 */
+	public static void blendColors(final IntBuffer colors1, final IntBuffer colors2,
+			final float ratio, final IntBuffer output) {
+		checkBlendArguments(colors1, colors2, output, ratio);
+
+		final int length = colors1.remaining();
+
+		if (colors1.hasArray() && colors2.hasArray() && output.hasArray()) {
+			blendRange(colors1.array(), colors1.arrayOffset() + colors1.position(),
+					colors2.array(), colors2.arrayOffset() + colors2.position(), ratio,
+					output.array(), output.arrayOffset() + output.position(), length);
+		} else {
+			final float inverseRatio = 1f - ratio;
+
+			for (int i = 0; i < length; i++) {
+				output.put(output.position() + i, blendArgb(colors1.get(colors1.position() + i),
+						colors2.get(colors2.position() + i), ratio, inverseRatio));
+			}
+		}
+	}
+
+	/**
+	 * Blends each colour in a buffer with a single colour using a fixed ratio, and writes the
+	 * results to an output buffer. The colours are read from the remaining elements of the input
+	 * buffer and written starting at the position of the output buffer. The positions of the
+	 * buffers are not changed. This method does not allocate memory.
+	 *
+	 * @param colors
+	 * 		the colours to blend, as ARGB hex codes, not null
+	 * @param color
+	 * 		the colour to blend each colour with, as an ARGB hex code
+	 * @param ratio
+	 * 		the proportion of {@code color} to use in the blended results, between 0 and 1
+	 * 		(inclusive)
+	 * @param output
+	 * 		the buffer to write the blended colours to, not null
+	 * @throws IllegalArgumentException
+	 * 		if either buffer is null, if the output buffer has fewer remaining elements than the
+	 * 		input buffer, or if {@code ratio} is not between 0 and 1 (inclusive)
+	 * @throws java.nio.ReadOnlyBufferException
+	 * 		if {@code output} is read-only
+	 */
+	public static void blendColors(final IntBuffer colors, final int color, final float ratio,
+			final IntBuffer output) {
+		checkBlendArguments(colors, colors, output, ratio);
+
+		final int length = colors.remaining();
+
+		if (colors.hasArray() && output.hasArray()) {
+			blendRangeWithColor(colors.array(), colors.arrayOffset() + colors.position(), color,
+					ratio, output.array(), output.arrayOffset() + output.position(), length);
+		} else {
+			final float inverseRatio = 1f - ratio;
+
+			for (int i = 0; i < length; i++) {
+				output.put(output.position() + i, blendArgb(colors.get(colors.position() + i),
+						color, ratio, inverseRatio));
+			}
+		}
+	}
+
+	/**
+	 * Blends two arrays of colours element by element using a fixed ratio, splitting the work
+	 * between the threads of an executor. The results are identical to those of {@link
+	 * #blendColors(int[], int[], float, int[])}. Splitting the work only pays off for very large
+	 * arrays, so arrays shorter than {@link #PARALLEL_BLEND_CHUNK_SIZE} are blended on the calling
+	 * thread. The calling thread blends one chunk itself and then waits for the others.
+	 *
+	 * @param colors1
+	 * 		the first colours to blend, as ARGB hex codes, not null
+	 * @param colors2
+	 * 		the second colours to blend, as ARGB hex codes, not null
+	 * @param ratio
+	 * 		the proportion of each colour in {@code colors2} to use in the blended results, between
+	 * 		0 and 1 (inclusive)
+	 * @param output
+	 * 		the array to write the blended colours to, not null
+	 * @param executor
+	 * 		executes the chunks which are not blended by the calling thread, not null
+	 * @throws InterruptedException
+	 * 		if the calling thread is interrupted while waiting for the other chunks, in which case
+	 * 		the chunks which have not finished are cancelled and the output is incomplete
+	 * @throws IllegalArgumentException
+	 * 		if any array or {@code executor} is null, if the arrays are not all the same length, or
+	 * 		if {@code ratio} is not between 0 and 1 (inclusive)
+	 */
+	public static void blendColorsInParallel(final int[] colors1, final int[] colors2,
+			final float ratio, final int[] output, final ExecutorService executor) throws
+			InterruptedException {
+		checkBlendArguments(colors1, colors2, output, ratio);
+
+		if (executor == null) {
+			throw new IllegalArgumentException("executor cannot be null");
+		}
+
+		final int length = colors1.length;
+		final int chunkCount = Math.min(Runtime.getRuntime().availableProcessors(),
+				(length + PARALLEL_BLEND_CHUNK_SIZE - 1) / PARALLEL_BLEND_CHUNK_SIZE);
+
+		if (chunkCount <= 1) {
+			blendRange(colors1, 0, colors2, 0, ratio, output, 0, length);
+			return;
+		}
+
+		final int chunkLength = (length + chunkCount - 1) / chunkCount;
+		final List<Future<?>> pendingChunks = new ArrayList<>(chunkCount - 1);
+
+		for (int start = chunkLength; start < length; start += chunkLength) {
+			final int chunkStart = start;
+			final int chunkEnd = Math.min(length, start + chunkLength);
+
+			pendingChunks.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					blendRange(colors1, chunkStart, colors2, chunkStart, ratio, output, chunkStart,
+							chunkEnd - chunkStart);
+				}
+			}));
+		}
+
+		boolean allChunksBlended = false;
+
+		try {
+			blendRange(colors1, 0, colors2, 0, ratio, output, 0, chunkLength);
+
+			for (final Future<?> pendingChunk : pendingChunks) {
+				try {
+					pendingChunk.get();
+				} catch (final ExecutionException e) {
+					// Blending cannot throw checked exceptions
+					throw new RuntimeException(e.getCause());
+				}
+			}
+
+			allChunksBlended = true;
+		} finally {
+			// Don't leave the executor busy with chunks whose results will never be used
+			if (!allChunksBlended) {
+				for (final Future<?> pendingChunk : pendingChunks) {
+					pendingChunk.cancel(true);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Determines whether text should be black or white, depending on whichever maximises contrast
 	 * with the background color.
@@ -69,34 +499,1014 @@ public class ColorHelper {
 	 * @return white (0xFFFFFF) or black (0x000000)
 	 */
 	public static int calculateBestTextColor(final int backgroundColor) {
-		// sRGB [r, g, b]
-		final float[] preConversionValues = {((float) Color.red(backgroundColor)) / 255,
-				((float) Color.green(backgroundColor)) / 255,
-				((float) Color.blue(backgroundColor)) / 255};
+		if (relativeLuminance(backgroundColor) > BEST_TEXT_COLOR_LUMINANCE_THRESHOLD) {
+			return Color.BLACK;
+		} else {
+			return Color.WHITE;
+		}
+	}
+
+	/**
+	 * Determines whether text drawn over part of a bitmap should be black or white, depending on
+	 * whichever maximises contrast with the average luminance of that part of the bitmap. This
+	 * is intended for text which sits over photos. Supplying a buffer and a stride greater than 1
+	 * makes the calculation fast enough to run whenever a list item is bound.
+	 *
+	 * @param bitmap
+	 * 		the bitmap behind the text, not null
+	 * @param region
+	 * 		the part of the bitmap behind the text, not null, not empty, must lie within the bitmap
+	 * @param stride
+	 * 		the distance between sampled pixels, in both directions, at least 1
+	 * @param buffer
+	 * 		a buffer to read the sampled pixels into, at least {@link
+	 * 		#calculateRegionBufferSize(Rect, int)} long, or null to allocate a new buffer
+	 * @return white (0xFFFFFF) or black (0x000000)
+	 * @throws IllegalArgumentException
+	 * 		if {@code bitmap} or {@code region} is null, if {@code region} is empty or does not lie
+	 * 		within the bitmap, if {@code stride} is less than 1, or if {@code buffer} is too short
+	 */
+	public static int calculateBestTextColor(final Bitmap bitmap, final Rect region,
+			final int stride, final int[] buffer) {
+		if (calculateAverageLuminance(bitmap, region, stride, buffer) >
+				BEST_TEXT_COLOR_LUMINANCE_THRESHOLD) {
+			return Color.BLACK;
+		} else {
+			return Color.WHITE;
+		}
+	}
 
-		// linear RGB [r', g', b']
-		final float[] postConversionValues = new float[3];
+	/**
+	 * Calculates the average relative luminance of part of a bitmap, as defined by {@link
+	 * #relativeLuminance(int)}. Only every {@code stride}th pixel of every {@code stride}th row is
+	 * sampled. This method does not allocate memory unless {@code buffer} is null.
+	 *
+	 * @param bitmap
+	 * 		the bitmap to sample, not null
+	 * @param region
+	 * 		the part of the bitmap to sample, not null, not empty, must lie within the bitmap
+	 * @param stride
+	 * 		the distance between sampled pixels, in both directions, at least 1
+	 * @param buffer
+	 * 		a buffer to read the sampled pixels into, at least {@link
+	 * 		#calculateRegionBufferSize(Rect, int)} long, or null to allocate a new buffer
+	 * @return the average luminance, between 0 (darkest black) and 1 (lightest white)
+	 * @throws IllegalArgumentException
+	 * 		if {@code bitmap} or {@code region} is null, if {@code region} is empty or does not lie
+	 * 		within the bitmap, if {@code stride} is less than 1, or if {@code buffer} is too short
+	 */
+	public static float calculateAverageLuminance(final Bitmap bitmap, final Rect region,
+			final int stride, final int[] buffer) {
+		final int[] samples = checkRegionArguments(bitmap, region, stride, buffer);
+		final int sampleCount = readRegionSamples(bitmap, region, stride, samples);
 
-		// sRGB to RGB according to https://goo.gl/vIj7TC
-		for (int i = 0; i < 3; i++) {
-			final float x = preConversionValues[i];
+		double luminanceSum = 0;
 
-			if (x <= 0.04045) {
-				postConversionValues[i] = (float) (x / 12.92);
-			} else {
-				postConversionValues[i] = (float) Math.pow((x + 0.055) / 1.055, 2.4);
+		for (int i = 0; i < sampleCount; i++) {
+			luminanceSum += relativeLuminance(samples[i]);
+		}
+
+		return (float) (luminanceSum / sampleCount);
+	}
+
+	/**
+	 * Calculates a percentile of the relative luminance of part of a bitmap, as defined by {@link
+	 * #relativeLuminance(int)}. A low percentile reflects the darkest areas behind the text and a
+	 * high percentile the lightest, which makes this more robust than the average when a region
+	 * contains a few very bright or dark details. Only every {@code stride}th pixel of every
+	 * {@code stride}th row is sampled. The contents of the buffer are overwritten with the sorted
+	 * luminance values. This method does not allocate memory unless {@code buffer} is null.
+	 *
+	 * @param bitmap
+	 * 		the bitmap to sample, not null
+	 * @param region
+	 * 		the part of the bitmap to sample, not null, not empty, must lie within the bitmap
+	 * @param percentile
+	 * 		the percentile to calculate, between 0 and 1 (inclusive), where 0.5 is the median
+	 * @param stride
+	 * 		the distance between sampled pixels, in both directions, at least 1
+	 * @param buffer
+	 * 		a buffer to read the sampled pixels into, at least {@link
+	 * 		#calculateRegionBufferSize(Rect, int)} long, or null to allocate a new buffer
+	 * @return the luminance at the percentile, between 0 (darkest black) and 1 (lightest white)
+	 * @throws IllegalArgumentException
+	 * 		if {@code bitmap} or {@code region} is null, if {@code region} is empty or does not lie
+	 * 		within the bitmap, if {@code percentile} is not between 0 and 1 (inclusive), if {@code
+	 * 		stride} is less than 1, or if {@code buffer} is too short
+	 */
+	public static float calculateLuminancePercentile(final Bitmap bitmap, final Rect region,
+			final float percentile, final int stride, final int[] buffer) {
+		if (!(percentile >= 0 && percentile <= 1)) {
+			throw new IllegalArgumentException("percentile must be between 0 and 1 (inclusive)");
+		}
+
+		final int[] samples = checkRegionArguments(bitmap, region, stride, buffer);
+		final int sampleCount = readRegionSamples(bitmap, region, stride, samples);
+
+		// The bits of non-negative floats sort in the same order as the floats themselves
+		for (int i = 0; i < sampleCount; i++) {
+			samples[i] = Float.floatToIntBits(relativeLuminance(samples[i]));
+		}
+
+		Arrays.sort(samples, 0, sampleCount);
+
+		return Float.intBitsToFloat(samples[Math.round(percentile * (sampleCount - 1))]);
+	}
+
+	/**
+	 * Calculates the length of the buffer needed to sample part of a bitmap in {@link
+	 * #calculateAverageLuminance(Bitmap, Rect, int, int[])}, {@link
+	 * #calculateLuminancePercentile(Bitmap, Rect, float, int, int[])} and {@link
+	 * #calculateBestTextColor(Bitmap, Rect, int, int[])}. A buffer of this length can be reused
+	 * for any region which is no larger.
+	 *
+	 * @param region
+	 * 		the part of the bitmap to sample, not null
+	 * @param stride
+	 * 		the distance between sampled pixels, in both directions, at least 1
+	 * @return the buffer length
+	 * @throws IllegalArgumentException
+	 * 		if {@code region} is null, or if {@code stride} is less than 1
+	 */
+	public static int calculateRegionBufferSize(final Rect region, final int stride) {
+		if (region == null) {
+			throw new IllegalArgumentException("region cannot be null");
+		} else if (stride < 1) {
+			throw new IllegalArgumentException("stride must be at least 1");
+		}
+
+		final int width = Math.max(0, region.right - region.left);
+		final int height = Math.max(0, region.bottom - region.top);
+		final int sampledRowCount = (height + stride - 1) / stride;
+		final int sampledColumnCount = (width + stride - 1) / stride;
+
+		// Each row is read in full before being compacted, so the last row needs the full width
+		return sampledRowCount == 0 ? 0 : (sampledRowCount - 1) * sampledColumnCount + width;
+	}
+
+	/**
+	 * Calculates the contrast ratio between two colors, as defined by the <a
+	 * href="https://www.w3.org/TR/WCAG20/#contrast-ratiodef">WCAG 2.0 specification</a>. The
+	 * result does not depend on the order of the colors. The alpha components of the colors are
+	 * ignored. This method does not allocate memory.
+	 *
+	 * @param color1
+	 * 		the first color, as an ARGB hex code
+	 * @param color2
+	 * 		the second color, as an ARGB hex code
+	 * @return the contrast ratio, between 1 (no contrast) and 21 (black against white)
+	 */
+	public static float calculateContrastRatio(final int color1, final int color2) {
+		return calculateLuminanceContrastRatio(relativeLuminance(color1),
+				relativeLuminance(color2));
+	}
+
+	/**
+	 * Finds the candidate color which contrasts most with a background color, provided it meets a
+	 * minimum contrast ratio. The luminance of the background is calculated once, and the
+	 * candidates are compared using the contrast ratio defined by {@link
+	 * #calculateContrastRatio(int, int)}. This method does not allocate memory, so it can be used
+	 * to pick text colors from a theme palette while drawing.
+	 *
+	 * @param backgroundColor
+	 * 		the color of the background, as an ARGB hex code
+	 * @param candidates
+	 * 		the colors to choose from, as ARGB hex codes, not null
+	 * @param minimumRatio
+	 * 		the minimum acceptable contrast ratio, such as {@link #WCAG_AA_CONTRAST_RATIO}, between
+	 * 		1 and 21 (inclusive)
+	 * @return the index of the candidate with the highest contrast ratio, or -1 if no candidate
+	 * meets the minimum ratio
+	 * @throws IllegalArgumentException
+	 * 		if {@code candidates} is null, or if {@code minimumRatio} is not between 1 and 21
+	 * 		(inclusive)
+	 */
+	public static int findBestContrastingColor(final int backgroundColor, final int[] candidates,
+			final float minimumRatio) {
+		if (candidates == null) {
+			throw new IllegalArgumentException("candidates cannot be null");
+		} else if (!(minimumRatio >= 1 && minimumRatio <= 21)) {
+			throw new IllegalArgumentException("minimumRatio must be between 1 and 21 (inclusive)");
+		}
+
+		final float backgroundLuminance = relativeLuminance(backgroundColor);
+
+		int bestIndex = -1;
+		float bestRatio = 0;
+
+		for (int i = 0; i < candidates.length; i++) {
+			final float ratio = calculateLuminanceContrastRatio(backgroundLuminance,
+					relativeLuminance(candidates[i]));
+
+			if (ratio > bestRatio) {
+				bestIndex = i;
+				bestRatio = ratio;
 			}
 		}
 
-		// Luminance as derived from https://www.w3.org/TR/WCAG20/
-		final float luminance = (float) (0.2126 * postConversionValues[0] +
-				0.7152 * postConversionValues[1] +
-				0.0722 * postConversionValues[2]);
+		return bestRatio >= minimumRatio ? bestIndex : -1;
+	}
 
-		if (luminance > 0.179) {
-			return Color.BLACK;
+	/**
+	 * Calculates the relative luminance of a color, as defined by the <a
+	 * href="https://www.w3.org/TR/WCAG20/#relativeluminancedef">WCAG 2.0 specification</a>. The
+	 * alpha component of the color is ignored. This method does not allocate memory.
+	 *
+	 * @param color
+	 * 		the color to calculate the luminance of, as an ARGB hex code
+	 * @return the relative luminance, between 0 (darkest black) and 1 (lightest white)
+	 */
+	public static float relativeLuminance(final int color) {
+		return (float) (0.2126 * SRGB_TO_LINEAR[(color >> 16) & 0xFF] +
+				0.7152 * SRGB_TO_LINEAR[(color >> 8) & 0xFF] +
+				0.0722 * SRGB_TO_LINEAR[color & 0xFF]);
+	}
+
+	/**
+	 * Extracts a palette of representative colors from a bitmap. The bitmap is sampled with the
+	 * rate given by {@link BitmapEfficiencyHelper#calculateSamplingRate(int, int, int, int)},
+	 * the sampled colors are counted in a quantized histogram, and the histogram is divided into
+	 * swatches by repeatedly splitting the most populous group of colors at its median. Pixels
+	 * which are mostly transparent are ignored. The calculation uses primitive arrays only, and
+	 * allocates a fixed amount of memory regardless of the size of the bitmap. Only the sampled
+	 * rows are read, however each sampled row is read in full up to the last sampled column, since
+	 * reading pixels individually would cost far more than reading the skipped columns.
+	 *
+	 * @param bitmap
+	 * 		the bitmap to extract the palette from, not null
+	 * @return the palette, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code bitmap} is null
+	 */
+	public static Palette extractPalette(final Bitmap bitmap) {
+		if (bitmap == null) {
+			throw new IllegalArgumentException("bitmap cannot be null");
+		}
+
+		final int samplingRate = calculatePaletteSamplingRate(bitmap);
+		final int sampledRowCount = (bitmap.getHeight() + samplingRate - 1) / samplingRate;
+		final int[] histogram = new int[PALETTE_HISTOGRAM_SIZE];
+
+		countSampledPixels(bitmap, samplingRate, 0, sampledRowCount, histogram);
+
+		return createPalette(histogram);
+	}
+
+	/**
+	 * Extracts a palette of representative colors from a bitmap, splitting the histogram work
+	 * between the threads of an executor. The result is identical to that of {@link
+	 * #extractPalette(Bitmap)}. Each thread counts a band of the sampled rows into its own
+	 * histogram, and the histograms are summed once all threads have finished. Small bitmaps are
+	 * processed on the calling thread. If the calling thread is interrupted, the bands which have
+	 * not finished are cancelled.
+	 *
+	 * @param bitmap
+	 * 		the bitmap to extract the palette from, not null
+	 * @param executor
+	 * 		executes the bands which are not counted by the calling thread, not null
+	 * @return the palette, not null
+	 * @throws InterruptedException
+	 * 		if the calling thread is interrupted while waiting for the other bands
+	 * @throws IllegalArgumentException
+	 * 		if {@code bitmap} or {@code executor} is null
+	 */
+	public static Palette extractPalette(final Bitmap bitmap, final ExecutorService executor)
+			throws InterruptedException {
+		if (bitmap == null) {
+			throw new IllegalArgumentException("bitmap cannot be null");
+		} else if (executor == null) {
+			throw new IllegalArgumentException("executor cannot be null");
+		}
+
+		final int samplingRate = calculatePaletteSamplingRate(bitmap);
+		final int sampledRowCount = (bitmap.getHeight() + samplingRate - 1) / samplingRate;
+		final int bandCount = Math.min(Runtime.getRuntime().availableProcessors(),
+				sampledRowCount / PALETTE_MIN_ROWS_PER_THREAD);
+
+		if (bandCount <= 1) {
+			return extractPalette(bitmap);
+		}
+
+		final int bandLength = (sampledRowCount + bandCount - 1) / bandCount;
+		final List<Future<int[]>> pendingBands = new ArrayList<>(bandCount - 1);
+
+		for (int start = bandLength; start < sampledRowCount; start += bandLength) {
+			final int bandStart = start;
+			final int bandEnd = Math.min(sampledRowCount, start + bandLength);
+
+			pendingBands.add(executor.submit(new Callable<int[]>() {
+				@Override
+				public int[] call() {
+					final int[] bandHistogram = new int[PALETTE_HISTOGRAM_SIZE];
+					countSampledPixels(bitmap, samplingRate, bandStart, bandEnd, bandHistogram);
+					return bandHistogram;
+				}
+			}));
+		}
+
+		final int[] histogram = new int[PALETTE_HISTOGRAM_SIZE];
+		boolean allBandsCounted = false;
+
+		try {
+			countSampledPixels(bitmap, samplingRate, 0, bandLength, histogram);
+
+			for (final Future<int[]> pendingBand : pendingBands) {
+				final int[] bandHistogram;
+
+				try {
+					bandHistogram = pendingBand.get();
+				} catch (final ExecutionException e) {
+					// Counting cannot throw checked exceptions
+					throw new RuntimeException(e.getCause());
+				}
+
+				for (int i = 0; i < PALETTE_HISTOGRAM_SIZE; i++) {
+					histogram[i] += bandHistogram[i];
+				}
+			}
+
+			allBandsCounted = true;
+		} finally {
+			// Don't leave the executor busy with bands whose results will never be used
+			if (!allBandsCounted) {
+				for (final Future<int[]> pendingBand : pendingBands) {
+					pendingBand.cancel(true);
+				}
+			}
+		}
+
+		return createPalette(histogram);
+	}
+
+	/**
+	 * Blends two colours. The arithmetic matches {@link #blendColors(int, int, float)} exactly, but
+	 * the components are extracted and packed directly so that the method is cheap enough to call
+	 * from tight loops.
+	 *
+	 * @param color1
+	 * 		the first colour to blend, as an ARGB hex code
+	 * @param color2
+	 * 		the second colour to blend, as an ARGB hex code
+	 * @param ratio
+	 * 		the proportion of {@code color2} to use in the blended result
+	 * @param inverseRatio
+	 * 		the proportion of {@code color1} to use in the blended result
+	 * @return the ARGB code for the blended colour
+	 */
+	private static int blendArgb(final int color1, final int color2, final float ratio,
+			final float inverseRatio) {
+		final int a = (int) (((color1 >>> 24) * inverseRatio) + ((color2 >>> 24) * ratio));
+		final int r = (int) ((((color1 >> 16) & 0xFF) * inverseRatio) +
+				(((color2 >> 16) & 0xFF) * ratio));
+		final int g = (int) ((((color1 >> 8) & 0xFF) * inverseRatio) +
+				(((color2 >> 8) & 0xFF) * ratio));
+		final int b = (int) (((color1 & 0xFF) * inverseRatio) + ((color2 & 0xFF) * ratio));
+
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+
+	/**
+	 * Blends a range of two colour arrays element by element using a fixed ratio.
+	 *
+	 * @param colors1
+	 * 		the first colours to blend
+	 * @param offset1
+	 * 		the index of the first colour to read from {@code colors1}
+	 * @param colors2
+	 * 		the second colours to blend
+	 * @param offset2
+	 * 		the index of the first colour to read from {@code colors2}
+	 * @param ratio
+	 * 		the proportion of each colour in {@code colors2} to use in the blended results
+	 * @param output
+	 * 		the array to write the blended colours to
+	 * @param outputOffset
+	 * 		the index to write the first blended colour to
+	 * @param length
+	 * 		the number of colours to blend
+	 */
+	private static void blendRange(final int[] colors1, final int offset1, final int[] colors2,
+			final int offset2, final float ratio, final int[] output, final int outputOffset,
+			final int length) {
+		final float inverseRatio = 1f - ratio;
+
+		for (int i = 0; i < length; i++) {
+			output[outputOffset + i] = blendArgb(colors1[offset1 + i], colors2[offset2 + i],
+					ratio, inverseRatio);
+		}
+	}
+
+	/**
+	 * Blends a range of a colour array with a single colour using a fixed ratio.
+	 *
+	 * @param colors
+	 * 		the colours to blend
+	 * @param offset
+	 * 		the index of the first colour to read from {@code colors}
+	 * @param color
+	 * 		the colour to blend each colour with
+	 * @param ratio
+	 * 		the proportion of {@code color} to use in the blended results
+	 * @param output
+	 * 		the array to write the blended colours to
+	 * @param outputOffset
+	 * 		the index to write the first blended colour to
+	 * @param length
+	 * 		the number of colours to blend
+	 */
+	private static void blendRangeWithColor(final int[] colors, final int offset, final int color,
+			final float ratio, final int[] output, final int outputOffset, final int length) {
+		final float inverseRatio = 1f - ratio;
+
+		for (int i = 0; i < length; i++) {
+			output[outputOffset + i] = blendArgb(colors[offset + i], color, ratio, inverseRatio);
+		}
+	}
+
+	/**
+	 * Calculates the contrast ratio between two relative luminances.
+	 *
+	 * @param luminance1
+	 * 		the first luminance, between 0 and 1 (inclusive)
+	 * @param luminance2
+	 * 		the second luminance, between 0 and 1 (inclusive)
+	 * @return the contrast ratio, between 1 and 21 (inclusive)
+	 */
+	private static float calculateLuminanceContrastRatio(final float luminance1,
+			final float luminance2) {
+		final float lighter = Math.max(luminance1, luminance2);
+		final float darker = Math.min(luminance1, luminance2);
+
+		return (lighter + 0.05f) / (darker + 0.05f);
+	}
+
+	/**
+	 * Checks the arguments of a region sampling method, and allocates a buffer if necessary.
+	 *
+	 * @param bitmap
+	 * 		the bitmap to sample
+	 * @param region
+	 * 		the part of the bitmap to sample
+	 * @param stride
+	 * 		the distance between sampled pixels
+	 * @param buffer
+	 * 		the buffer supplied by the caller, may be null
+	 * @return the buffer to read the samples into, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code bitmap} or {@code region} is null, if {@code region} is empty or does not lie
+	 * 		within the bitmap, if {@code stride} is less than 1, or if {@code buffer} is too short
+	 */
+	private static int[] checkRegionArguments(final Bitmap bitmap, final Rect region,
+			final int stride, final int[] buffer) {
+		if (bitmap == null) {
+			throw new IllegalArgumentException("bitmap cannot be null");
+		} else if (region == null) {
+			throw new IllegalArgumentException("region cannot be null");
+		} else if (region.left < 0 || region.top < 0 || region.right > bitmap.getWidth() ||
+				region.bottom > bitmap.getHeight()) {
+			throw new IllegalArgumentException("region must lie within the bitmap");
+		} else if (region.left >= region.right || region.top >= region.bottom) {
+			throw new IllegalArgumentException("region cannot be empty");
+		}
+
+		final int bufferSize = calculateRegionBufferSize(region, stride);
+
+		if (buffer == null) {
+			return new int[bufferSize];
+		} else if (buffer.length < bufferSize) {
+			throw new IllegalArgumentException("buffer is too short");
 		} else {
-			return Color.WHITE;
+			return buffer;
+		}
+	}
+
+	/**
+	 * Reads the sampled pixels of part of a bitmap into a buffer. Each sampled row is read with a
+	 * single call to {@link Bitmap#getPixels(int[], int, int, int, int, int, int)} and then
+	 * compacted in place, so the buffer only needs to be slightly longer than the number of
+	 * samples.
+	 *
+	 * @param bitmap
+	 * 		the bitmap to sample
+	 * @param region
+	 * 		the part of the bitmap to sample
+	 * @param stride
+	 * 		the distance between sampled pixels
+	 * @param buffer
+	 * 		the buffer to read the samples into, at least {@link #calculateRegionBufferSize(Rect,
+	 * 		int)} long
+	 * @return the number of samples read
+	 */
+	private static int readRegionSamples(final Bitmap bitmap, final Rect region, final int stride,
+			final int[] buffer) {
+		final int width = region.right - region.left;
+		int sampleCount = 0;
+
+		for (int y = region.top; y < region.bottom; y += stride) {
+			final int rowStart = sampleCount;
+
+			bitmap.getPixels(buffer, rowStart, width, region.left, y, width, 1);
+
+			if (stride == 1) {
+				sampleCount += width;
+			} else {
+				// Samples are never written ahead of the pixel being read
+				for (int x = 0; x < width; x += stride) {
+					buffer[sampleCount++] = buffer[rowStart + x];
+				}
+			}
+		}
+
+		return sampleCount;
+	}
+
+	/**
+	 * Calculates the rate to sample a bitmap at when extracting a palette.
+	 *
+	 * @param bitmap
+	 * 		the bitmap to sample, not null
+	 * @return the sampling rate, at least 1
+	 */
+	private static int calculatePaletteSamplingRate(final Bitmap bitmap) {
+		return BitmapEfficiencyHelper.calculateSamplingRate(bitmap.getWidth(), bitmap.getHeight(),
+				PALETTE_TARGET_DIMENSION, PALETTE_TARGET_DIMENSION);
+	}
+
+	/**
+	 * Counts the sampled pixels of a band of a bitmap into a histogram. Only every {@code
+	 * samplingRate}th row and column is sampled. Each sampled row is read in segments into a
+	 * buffer of fixed length, stopping at the last sampled column.
+	 *
+	 * @param bitmap
+	 * 		the bitmap to sample
+	 * @param samplingRate
+	 * 		the distance between sampled rows and columns
+	 * @param firstSampledRow
+	 * 		the index of the first sampled row in the band, counted in sampled rows
+	 * @param endSampledRow
+	 * 		the index of the sampled row after the band, counted in sampled rows
+	 * @param histogram
+	 * 		the histogram to add the counts to, indexed by quantized color
+	 */
+	private static void countSampledPixels(final Bitmap bitmap, final int samplingRate,
+			final int firstSampledRow, final int endSampledRow, final int[] histogram) {
+		// Columns after the last sampled column never need to be read
+		final int readWidth = (bitmap.getWidth() - 1) / samplingRate * samplingRate + 1;
+		final int[] buffer = new int[Math.min(readWidth, PALETTE_READ_BUFFER_LENGTH)];
+
+		for (int sampledRow = firstSampledRow; sampledRow < endSampledRow; sampledRow++) {
+			final int y = sampledRow * samplingRate;
+
+			for (int segmentStart = 0; segmentStart < readWidth; segmentStart += buffer.length) {
+				final int segmentLength = Math.min(buffer.length, readWidth - segmentStart);
+				bitmap.getPixels(buffer, 0, segmentLength, segmentStart, y, segmentLength, 1);
+
+				// The first sampled column in the segment, relative to the start of the segment
+				final int firstSample = (samplingRate - segmentStart % samplingRate) %
+						samplingRate;
+
+				for (int i = firstSample; i < segmentLength; i += samplingRate) {
+					final int pixel = buffer[i];
+
+					if ((pixel >>> 24) >= PALETTE_MIN_ALPHA) {
+						histogram[quantizeColor(pixel)]++;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Divides a histogram into swatches using the median cut algorithm, and chooses the dominant,
+	 * vibrant and muted swatches.
+	 *
+	 * @param histogram
+	 * 		the number of sampled pixels of each quantized color
+	 * @return the palette, not null
+	 */
+	private static Palette createPalette(final int[] histogram) {
+		int binCount = 0;
+
+		for (final int count : histogram) {
+			if (count > 0) {
+				binCount++;
+			}
+		}
+
+		final int[] bins = new int[binCount];
+
+		for (int i = 0, j = 0; i < histogram.length; i++) {
+			if (histogram[i] > 0) {
+				bins[j++] = i;
+			}
+		}
+
+		// Each box is a range of the bins array, and boxes never overlap
+		final int[] boxStarts = new int[PALETTE_MAX_SWATCHES];
+		final int[] boxEnds = new int[PALETTE_MAX_SWATCHES];
+		int boxCount = 0;
+
+		if (binCount > 0) {
+			boxEnds[0] = binCount;
+			boxCount = 1;
+		}
+
+		while (boxCount < PALETTE_MAX_SWATCHES) {
+			int boxToSplit = -1;
+			int largestPopulation = 0;
+
+			for (int box = 0; box < boxCount; box++) {
+				final int population = countPopulation(histogram, bins, boxStarts[box],
+						boxEnds[box]);
+
+				if (boxEnds[box] - boxStarts[box] > 1 && population > largestPopulation) {
+					boxToSplit = box;
+					largestPopulation = population;
+				}
+			}
+
+			if (boxToSplit == -1) {
+				break;
+			}
+
+			final int splitIndex = splitBox(histogram, bins, boxStarts[boxToSplit],
+					boxEnds[boxToSplit]);
+
+			boxStarts[boxCount] = splitIndex;
+			boxEnds[boxCount] = boxEnds[boxToSplit];
+			boxEnds[boxToSplit] = splitIndex;
+			boxCount++;
+		}
+
+		final int[] swatchColors = new int[boxCount];
+		final int[] swatchPopulations = new int[boxCount];
+
+		for (int box = 0; box < boxCount; box++) {
+			long redSum = 0;
+			long greenSum = 0;
+			long blueSum = 0;
+			int population = 0;
+
+			for (int i = boxStarts[box]; i < boxEnds[box]; i++) {
+				final int count = histogram[bins[i]];
+
+				redSum += (long) expandComponent(bins[i], 2) * count;
+				greenSum += (long) expandComponent(bins[i], 1) * count;
+				blueSum += (long) expandComponent(bins[i], 0) * count;
+				population += count;
+			}
+
+			swatchColors[box] = Color.rgb((int) (redSum / population),
+					(int) (greenSum / population), (int) (blueSum / population));
+			swatchPopulations[box] = population;
+		}
+
+		return new Palette(swatchColors, swatchPopulations);
+	}
+
+	/**
+	 * Splits a box of histogram bins at the population median of its widest color channel. The
+	 * bins in the box are reordered so that each half of the box is a contiguous range.
+	 *
+	 * @param histogram
+	 * 		the number of sampled pixels of each quantized color
+	 * @param bins
+	 * 		the quantized colors which occur in the histogram
+	 * @param start
+	 * 		the index of the first bin in the box
+	 * @param end
+	 * 		the index after the last bin in the box, at least two more than {@code start}
+	 * @return the index of the first bin in the second half of the box
+	 */
+	private static int splitBox(final int[] histogram, final int[] bins, final int start,
+			final int end) {
+		final int[] minimums = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+		final int[] maximums = {Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+
+		for (int i = start; i < end; i++) {
+			for (int channel = 0; channel < 3; channel++) {
+				final int component = quantizedComponent(bins[i], channel);
+				minimums[channel] = Math.min(minimums[channel], component);
+				maximums[channel] = Math.max(maximums[channel], component);
+			}
+		}
+
+		int widestChannel = 0;
+
+		for (int channel = 1; channel < 3; channel++) {
+			if (maximums[channel] - minimums[channel] > maximums[widestChannel] -
+					minimums[widestChannel]) {
+				widestChannel = channel;
+			}
+		}
+
+		// Sort by the widest channel by temporarily prefixing each bin with its component
+		final int binBits = 3 * PALETTE_QUANTIZE_BITS;
+
+		for (int i = start; i < end; i++) {
+			bins[i] |= quantizedComponent(bins[i], widestChannel) << binBits;
+		}
+
+		Arrays.sort(bins, start, end);
+
+		for (int i = start; i < end; i++) {
+			bins[i] &= PALETTE_HISTOGRAM_SIZE - 1;
+		}
+
+		final int halfPopulation = countPopulation(histogram, bins, start, end) / 2;
+		int population = 0;
+
+		for (int i = start; i < end - 1; i++) {
+			population += histogram[bins[i]];
+
+			if (population >= halfPopulation) {
+				return i + 1;
+			}
+		}
+
+		return end - 1;
+	}
+
+	/**
+	 * Counts the sampled pixels in a box of histogram bins.
+	 *
+	 * @param histogram
+	 * 		the number of sampled pixels of each quantized color
+	 * @param bins
+	 * 		the quantized colors which occur in the histogram
+	 * @param start
+	 * 		the index of the first bin in the box
+	 * @param end
+	 * 		the index after the last bin in the box
+	 * @return the number of sampled pixels
+	 */
+	private static int countPopulation(final int[] histogram, final int[] bins, final int start,
+			final int end) {
+		int population = 0;
+
+		for (int i = start; i < end; i++) {
+			population += histogram[bins[i]];
+		}
+
+		return population;
+	}
+
+	/**
+	 * Quantizes a color to the index of its histogram bin, discarding the alpha component.
+	 *
+	 * @param color
+	 * 		the color to quantize, as an ARGB hex code
+	 * @return the index of the bin
+	 */
+	private static int quantizeColor(final int color) {
+		final int shift = 8 - PALETTE_QUANTIZE_BITS;
+		final int r = ((color >> 16) & 0xFF) >> shift;
+		final int g = ((color >> 8) & 0xFF) >> shift;
+		final int b = (color & 0xFF) >> shift;
+
+		return (r << (2 * PALETTE_QUANTIZE_BITS)) | (g << PALETTE_QUANTIZE_BITS) | b;
+	}
+
+	/**
+	 * Extracts one quantized component from the index of a histogram bin.
+	 *
+	 * @param bin
+	 * 		the index of the bin
+	 * @param channel
+	 * 		the channel to extract, where 2 is red, 1 is green and 0 is blue
+	 * @return the quantized component
+	 */
+	private static int quantizedComponent(final int bin, final int channel) {
+		return (bin >> (channel * PALETTE_QUANTIZE_BITS)) & ((1 << PALETTE_QUANTIZE_BITS) - 1);
+	}
+
+	/**
+	 * Expands one quantized component of a histogram bin back to 8 bits. The high bits are
+	 * repeated in the low bits, so that the full range from 0 to 255 is covered.
+	 *
+	 * @param bin
+	 * 		the index of the bin
+	 * @param channel
+	 * 		the channel to expand, where 2 is red, 1 is green and 0 is blue
+	 * @return the component, between 0 and 255 (inclusive)
+	 */
+	private static int expandComponent(final int bin, final int channel) {
+		final int component = quantizedComponent(bin, channel);
+		return (component << (8 - PALETTE_QUANTIZE_BITS)) | (component >> (2 *
+				PALETTE_QUANTIZE_BITS - 8));
+	}
+
+	/**
+	 * Checks the arguments of an array blend.
+	 *
+	 * @param colors1
+	 * 		the first input array
+	 * @param colors2
+	 * 		the second input array
+	 * @param output
+	 * 		the output array
+	 * @param ratio
+	 * 		the blend ratio
+	 * @throws IllegalArgumentException
+	 * 		if any array is null, if the arrays are not all the same length, or if {@code ratio} is
+	 * 		not between 0 and 1 (inclusive)
+	 */
+	private static void checkBlendArguments(final int[] colors1, final int[] colors2,
+			final int[] output, final float ratio) {
+		if (colors1 == null || colors2 == null) {
+			throw new IllegalArgumentException("colors cannot be null");
+		} else if (output == null) {
+			throw new IllegalArgumentException("output cannot be null");
+		} else if (colors1.length != colors2.length || colors1.length != output.length) {
+			throw new IllegalArgumentException("all arrays must be the same length");
+		} else if (ratio < 0 || ratio > 1) {
+			throw new IllegalArgumentException("ratio must be between 0 and 1 (inclusive)");
+		}
+	}
+
+	/**
+	 * Checks the arguments of a buffer blend.
+	 *
+	 * @param colors1
+	 * 		the first input buffer
+	 * @param colors2
+	 * 		the second input buffer
+	 * @param output
+	 * 		the output buffer
+	 * @param ratio
+	 * 		the blend ratio
+	 * @throws IllegalArgumentException
+	 * 		if any buffer is null, if the input buffers do not have the same number of remaining
+	 * 		elements, if the output buffer has fewer remaining elements than the input buffers, or
+	 * 		if {@code ratio} is not between 0 and 1 (inclusive)
+	 */
+	private static void checkBlendArguments(final IntBuffer colors1, final IntBuffer colors2,
+			final IntBuffer output, final float ratio) {
+		if (colors1 == null || colors2 == null) {
+			throw new IllegalArgumentException("colors cannot be null");
+		} else if (output == null) {
+			throw new IllegalArgumentException("output cannot be null");
+		} else if (colors1.remaining() != colors2.remaining()) {
+			throw new IllegalArgumentException("input buffers must have the same remaining length");
+		} else if (output.remaining() < colors1.remaining()) {
+			throw new IllegalArgumentException("output buffer is too small");
+		} else if (ratio < 0 || ratio > 1) {
+			throw new IllegalArgumentException("ratio must be between 0 and 1 (inclusive)");
+		}
+	}
+
+	/**
+	 * Representative colors extracted from a bitmap by {@link #extractPalette(Bitmap)}. The
+	 * dominant swatch is the most populous. The vibrant and muted swatches are the most populous
+	 * swatches of medium lightness with high and low saturation respectively, and may not exist.
+	 * All colors are opaque.
+	 */
+	public static class Palette {
+		/**
+		 * The color of each swatch, as an ARGB hex code.
+		 */
+		private final int[] swatchColors;
+
+		/**
+		 * The number of sampled pixels in each swatch.
+		 */
+		private final int[] swatchPopulations;
+
+		/**
+		 * The index of the dominant swatch, -1 if there are no swatches.
+		 */
+		private final int dominantIndex;
+
+		/**
+		 * The index of the vibrant swatch, -1 if there is no vibrant swatch.
+		 */
+		private final int vibrantIndex;
+
+		/**
+		 * The index of the muted swatch, -1 if there is no muted swatch.
+		 */
+		private final int mutedIndex;
+
+		/**
+		 * Constructs a new Palette and chooses the dominant, vibrant and muted swatches.
+		 *
+		 * @param swatchColors
+		 * 		the color of each swatch, as an ARGB hex code
+		 * @param swatchPopulations
+		 * 		the number of sampled pixels in each swatch
+		 */
+		private Palette(final int[] swatchColors, final int[] swatchPopulations) {
+			this.swatchColors = swatchColors;
+			this.swatchPopulations = swatchPopulations;
+
+			int dominant = -1;
+			int vibrant = -1;
+			int muted = -1;
+
+			for (int i = 0; i < swatchColors.length; i++) {
+				if (dominant == -1 || swatchPopulations[i] > swatchPopulations[dominant]) {
+					dominant = i;
+				}
+
+				final int r = Color.red(swatchColors[i]);
+				final int g = Color.green(swatchColors[i]);
+				final int b = Color.blue(swatchColors[i]);
+				final int max = Math.max(r, Math.max(g, b));
+				final int min = Math.min(r, Math.min(g, b));
+
+				// Lightness and saturation as defined by the HSL color model
+				final float lightness = (max + min) / 510f;
+				final float saturation = max == min ? 0 : (max - min) / (255f - Math.abs(max + min
+						- 255f));
+
+				if (lightness < PALETTE_MIN_LIGHTNESS || lightness > PALETTE_MAX_LIGHTNESS) {
+					continue;
+				}
+
+				if (saturation >= PALETTE_VIBRANT_MIN_SATURATION) {
+					if (vibrant == -1 || swatchPopulations[i] > swatchPopulations[vibrant]) {
+						vibrant = i;
+					}
+				} else if (muted == -1 || swatchPopulations[i] > swatchPopulations[muted]) {
+					muted = i;
+				}
+			}
+
+			dominantIndex = dominant;
+			vibrantIndex = vibrant;
+			mutedIndex = muted;
+		}
+
+		/**
+		 * @param defaultColor
+		 * 		the color to return if the bitmap had no opaque pixels
+		 * @return the color of the dominant swatch, as an ARGB hex code
+		 */
+		public int getDominantColor(final int defaultColor) {
+			return dominantIndex == -1 ? defaultColor : swatchColors[dominantIndex];
+		}
+
+		/**
+		 * @param defaultColor
+		 * 		the color to return if there is no vibrant swatch
+		 * @return the color of the vibrant swatch, as an ARGB hex code
+		 */
+		public int getVibrantColor(final int defaultColor) {
+			return vibrantIndex == -1 ? defaultColor : swatchColors[vibrantIndex];
+		}
+
+		/**
+		 * @param defaultColor
+		 * 		the color to return if there is no muted swatch
+		 * @return the color of the muted swatch, as an ARGB hex code
+		 */
+		public int getMutedColor(final int defaultColor) {
+			return mutedIndex == -1 ? defaultColor : swatchColors[mutedIndex];
+		}
+
+		/**
+		 * @return the number of swatches in the palette
+		 */
+		public int getSwatchCount() {
+			return swatchColors.length;
+		}
+
+		/**
+		 * @param index
+		 * 		the index of the swatch, between 0 (inclusive) and the swatch count (exclusive)
+		 * @return the color of the swatch, as an ARGB hex code
+		 * @throws IllegalArgumentException
+		 * 		if {@code index} is out of range
+		 */
+		public int getSwatchColor(final int index) {
+			checkSwatchIndex(index);
+			return swatchColors[index];
+		}
+
+		/**
+		 * @param index
+		 * 		the index of the swatch, between 0 (inclusive) and the swatch count (exclusive)
+		 * @return the number of sampled pixels in the swatch
+		 * @throws IllegalArgumentException
+		 * 		if {@code index} is out of range
+		 */
+		public int getSwatchPopulation(final int index) {
+			checkSwatchIndex(index);
+			return swatchPopulations[index];
+		}
+
+		/**
+		 * Checks that a swatch index is in range.
+		 *
+		 * @param index
+		 * 		the index to check
+		 * @throws IllegalArgumentException
+		 * 		if {@code index} is out of range
+		 */
+		private void checkSwatchIndex(final int index) {
+			if (index < 0 || index >= swatchColors.length) {
+				throw new IllegalArgumentException("index is out of range");
+			}
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.library.utilities;
+
+import android.content.res.AssetManager;
+import android.support.v4.util.LruCache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A least-recently-used cache of the contents of small assets, such as JSON and configuration
+ * files. Opening an asset goes through JNI and may decompress the asset, so assets which are read
+ * repeatedly are loaded once and then served from memory. The cache is bounded by the total
+ * number of bytes it holds. Assets which are larger than the entire budget are still returned, but
+ * are not cached. This class is thread safe.
+ */
+@SuppressWarnings("WeakerAccess") // Class is part of public API
+public class AssetByteCache {
+	/**
+	 * Provides access to the assets.
+	 */
+	private final AssetManager assetManager;
+
+	/**
+	 * Stores the contents of the assets, measured in bytes.
+	 */
+	private final LruCache<String, byte[]> cache;
+
+	/**
+	 * The names of the assets in {@link #cache}, which allows membership to be checked without
+	 * copying the cache or affecting its statistics. The set is only modified while holding the
+	 * lock of this object, since every change to the cache is made while holding that lock.
+	 */
+	private final Set<String> cachedAssetNames = Collections.newSetFromMap(
+			new ConcurrentHashMap<String, Boolean>());
+
+	/**
+	 * Constructs a new AssetByteCache.
+	 *
+	 * @param assetManager
+	 * 		provides access to the assets to cache, not null
+	 * @param maxSizeBytes
+	 * 		the maximum number of bytes the cached assets may occupy in total, greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code assetManager} is null, or if {@code maxSizeBytes} is not greater than zero
+	 */
+	public AssetByteCache(final AssetManager assetManager, final int maxSizeBytes) {
+		checkNotNull(assetManager, "assetManager cannot be null");
+
+		if (maxSizeBytes <= 0) {
+			throw new IllegalArgumentException("maxSizeBytes must be greater than zero");
+		}
+
+		this.assetManager = assetManager;
+
+		cache = new LruCache<String, byte[]>(maxSizeBytes) {
+			@Override
+			protected int sizeOf(final String key, final byte[] value) {
+				return value.length;
+			}
+
+			@Override
+			protected void entryRemoved(final boolean evicted, final String key,
+					final byte[] oldValue, final byte[] newValue) {
+				// A non-null new value means the entry was replaced rather than removed
+				if (newValue == null) {
+					cachedAssetNames.remove(key);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns the contents of an asset, loading the asset if it is not already cached. The
+	 * returned buffer is read-only and has its own position and limit, so it can be used freely by
+	 * the caller.
+	 *
+	 * @param assetName
+	 * 		the name of the asset, not null
+	 * @return a read-only buffer containing the contents of the asset, not null
+	 * @throws IOException
+	 * 		if the asset is not cached and cannot be read
+	 * @throws IllegalArgumentException
+	 * 		if {@code assetName} is null
+	 */
+	public ByteBuffer get(final String assetName) throws IOException {
+		checkNotNull(assetName, "assetName cannot be null");
+
+		byte[] contents = cache.get(assetName);
+
+		if (contents == null) {
+			// Concurrent misses may both load the asset, which is harmless and avoids locking
+			contents = readAsset(assetName);
+			cacheContents(assetName, contents);
+		}
+
+		return ByteBuffer.wrap(contents).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Loads several assets into the cache ahead of time, for example while the app is starting.
+	 * Assets which are already cached are not reloaded, and do not count towards the hit and miss
+	 * statistics.
+	 *
+	 * @param assetNames
+	 * 		the names of the assets to load, not null
+	 * @return the number of assets which are cached once loading completes
+	 * @throws IOException
+	 * 		if an asset cannot be read
+	 * @throws IllegalArgumentException
+	 * 		if {@code assetNames} is null
+	 */
+	public int preload(final String... assetNames) throws IOException {
+		checkNotNull(assetNames, "assetNames cannot be null");
+
+		int cachedCount = 0;
+
+		for (final String assetName : assetNames) {
+			if (contains(assetName) || cacheContents(assetName, readAsset(assetName))) {
+				cachedCount++;
+			}
+		}
+
+		return cachedCount;
+	}
+
+	/**
+	 * Determines whether an asset is currently cached, without affecting its position in the
+	 * cache or the hit and miss statistics.
+	 *
+	 * @param assetName
+	 * 		the name of the asset, not null
+	 * @return true if the asset is cached, false otherwise
+	 * @throws IllegalArgumentException
+	 * 		if {@code assetName} is null
+	 */
+	public boolean contains(final String assetName) {
+		checkNotNull(assetName, "assetName cannot be null");
+
+		return cachedAssetNames.contains(assetName);
+	}
+
+	/**
+	 * Removes an asset from the cache.
+	 *
+	 * @param assetName
+	 * 		the name of the asset, not null
+	 * @return true if an entry was removed, false otherwise
+	 * @throws IllegalArgumentException
+	 * 		if {@code assetName} is null
+	 */
+	public synchronized boolean remove(final String assetName) {
+		checkNotNull(assetName, "assetName cannot be null");
+
+		return cache.remove(assetName) != null;
+	}
+
+	/**
+	 * Removes all cached assets.
+	 */
+	public synchronized void clear() {
+		cache.evictAll();
+	}
+
+	/**
+	 * @return the number of bytes currently occupied by the cached assets
+	 */
+	public int getSizeBytes() {
+		return cache.size();
+	}
+
+	/**
+	 * @return the maximum number of bytes the cached assets may occupy in total
+	 */
+	public int getMaxSizeBytes() {
+		return cache.maxSize();
+	}
+
+	/**
+	 * @return the number of lookups which found a cached asset
+	 */
+	public int getHitCount() {
+		return cache.hitCount();
+	}
+
+	/**
+	 * @return the number of lookups which had to load the asset
+	 */
+	public int getMissCount() {
+		return cache.missCount();
+	}
+
+	/**
+	 * Caches the contents of an asset, unless the contents are larger than the entire budget.
+	 *
+	 * @param assetName
+	 * 		the name of the asset, not null
+	 * @param contents
+	 * 		the contents of the asset, not null
+	 * @return true if the contents were cached, false otherwise
+	 */
+	private synchronized boolean cacheContents(final String assetName, final byte[] contents) {
+		if (contents.length > cache.maxSize()) {
+			return false;
+		}
+
+		// The new entry is never evicted by this call, since it fits within the budget
+		cache.put(assetName, contents);
+		cachedAssetNames.add(assetName);
+		return true;
+	}
+
+	/**
+	 * Reads the entire contents of an asset. The asset stream reports its remaining length, so
+	 * the contents can usually be read straight into an array of the correct size.
+	 *
+	 * @param assetName
+	 * 		the name of the asset, not null
+	 * @return the contents of the asset, not null
+	 * @throws IOException
+	 * 		if the asset cannot be read
+	 */
+	private byte[] readAsset(final String assetName) throws IOException {
+		final InputStream stream = assetManager.open(assetName, AssetManager.ACCESS_BUFFER);
+
+		try {
+			byte[] contents = new byte[Math.max(stream.available(), 1)];
+			int length = 0;
+
+			while (true) {
+				// Only grow the array if the reported length turns out to be too small
+				if (length == contents.length) {
+					final int nextByte = stream.read();
+
+					if (nextByte == -1) {
+						break;
+					}
+
+					contents = Arrays.copyOf(contents, contents.length * 2);
+					contents[length++] = (byte) nextByte;
+				}
+
+				final int numberOfBytesRead = stream.read(contents, length, contents.length -
+						length);
+
+				if (numberOfBytesRead == -1) {
+					break;
+				}
+
+				length += numberOfBytesRead;
+			}
+
+			return length == contents.length ? contents : Arrays.copyOf(contents, length);
+		} finally {
+			stream.close();
+		}
+	}
+}
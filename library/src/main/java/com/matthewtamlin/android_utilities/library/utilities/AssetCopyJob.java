@@ -0,0 +1,493 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.library.utilities;
+
+import android.content.res.AssetManager;
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.matthewtamlin.android_utilities.library.helpers.AssetsHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Copies assets to a storage directory in the background. Unlike {@link
+ * AssetsHelper#copyAssetsToDirectory(AssetManager, File, String...)}, a job does not block the
+ * calling thread, reports its progress in bytes, and can be cancelled. The job runs at background
+ * thread priority, and its bandwidth can be limited so that copying a large number of assets
+ * during startup does not starve foreground IO. Each asset is copied using {@link
+ * AssetsHelper#copyAssetToFileAtomically(AssetManager, String, File,
+ * AssetsHelper.ProgressListener)}, so uncompressed assets are transferred without passing through
+ * the heap, and an interrupted copy never leaves a truncated file behind. Each job can only be
+ * started once. This class is thread safe.
+ */
+@SuppressWarnings("WeakerAccess") // Class is part of public API
+public class AssetCopyJob {
+	/**
+	 * Used during debugging to identify this class.
+	 */
+	@SuppressWarnings("unused")
+	private static final String TAG = "[AssetCopyJob]";
+
+	/**
+	 * The default minimum interval between progress reports, measured in milliseconds.
+	 */
+	public static final long DEFAULT_PROGRESS_INTERVAL_MILLIS = 100;
+
+	/**
+	 * Indicates that the bandwidth of a job is not limited.
+	 */
+	public static final long UNLIMITED_BANDWIDTH = 0;
+
+	/**
+	 * Provides access to the assets.
+	 */
+	private final AssetManager assetManager;
+
+	/**
+	 * The directory to copy the assets to.
+	 */
+	private final File targetDirectory;
+
+	/**
+	 * The names of the assets to copy.
+	 */
+	private final String[] assetFiles;
+
+	/**
+	 * Whether or not the job has been started.
+	 */
+	private final AtomicBoolean started = new AtomicBoolean(false);
+
+	/**
+	 * Whether or not the job has been cancelled.
+	 */
+	private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+	/**
+	 * The minimum interval between progress reports, measured in milliseconds.
+	 */
+	private volatile long progressIntervalMillis = DEFAULT_PROGRESS_INTERVAL_MILLIS;
+
+	/**
+	 * The maximum average copy rate, measured in bytes per second, or {@link
+	 * #UNLIMITED_BANDWIDTH}.
+	 */
+	private volatile long maxBytesPerSecond = UNLIMITED_BANDWIDTH;
+
+	/**
+	 * Constructs a new AssetCopyJob. The job does nothing until it is started.
+	 *
+	 * @param assetManager
+	 * 		provides access to the assets to copy, not null
+	 * @param targetDirectory
+	 * 		the directory to copy the assets to, not null
+	 * @param assetFiles
+	 * 		the filenames of the assets to copy (including extension), not null
+	 * @throws IllegalArgumentException
+	 * 		if either {@code assetManager}, {@code targetDirectory} or {@code assetFiles} is null
+	 */
+	public AssetCopyJob(final AssetManager assetManager, final File targetDirectory,
+			final String... assetFiles) {
+		this.assetManager = checkNotNull(assetManager, "assetManager cannot be null");
+		this.targetDirectory = checkNotNull(targetDirectory, "targetDirectory cannot be null");
+		this.assetFiles = checkNotNull(assetFiles, "assetFiles cannot be null").clone();
+	}
+
+	/**
+	 * Sets the minimum interval between progress reports. Reports are throttled so that copying
+	 * many small chunks does not flood the UI thread. The final progress report is always
+	 * delivered. This method has no effect once the job has started.
+	 *
+	 * @param progressIntervalMillis
+	 * 		the minimum interval, measured in milliseconds, not less than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code progressIntervalMillis} is less than zero
+	 */
+	public void setProgressIntervalMillis(final long progressIntervalMillis) {
+		if (progressIntervalMillis < 0) {
+			throw new IllegalArgumentException("progressIntervalMillis cannot be less than zero");
+		}
+
+		this.progressIntervalMillis = progressIntervalMillis;
+	}
+
+	/**
+	 * Limits the average rate at which the job copies data. This method has no effect once the
+	 * job has started.
+	 *
+	 * @param maxBytesPerSecond
+	 * 		the maximum rate, measured in bytes per second, or {@link #UNLIMITED_BANDWIDTH}, not
+	 * 		less than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code maxBytesPerSecond} is less than zero
+	 */
+	public void setMaxBytesPerSecond(final long maxBytesPerSecond) {
+		if (maxBytesPerSecond < 0) {
+			throw new IllegalArgumentException("maxBytesPerSecond cannot be less than zero");
+		}
+
+		this.maxBytesPerSecond = maxBytesPerSecond;
+	}
+
+	/**
+	 * Starts the job. The assets are copied using the supplied executor, and the listener is
+	 * notified of progress and completion using the callback thread. Exactly one of {@link
+	 * Listener#onCopyFinished(AssetCopyJob)}, {@link Listener#onCopyFailed(AssetCopyJob,
+	 * IOException)} and {@link Listener#onCopyCancelled(AssetCopyJob)} is eventually delivered.
+	 *
+	 * @param executor
+	 * 		executes the job, not null
+	 * @param callbackThreadUtil
+	 * 		delivers callbacks to the UI thread, null to deliver callbacks on the copying thread
+	 * @param listener
+	 * 		receives progress and completion callbacks, may be null
+	 * @throws IllegalArgumentException
+	 * 		if {@code executor} is null
+	 * @throws IllegalStateException
+	 * 		if the job has already been started
+	 */
+	public void start(final Executor executor, final UiThreadUtil callbackThreadUtil,
+			final Listener listener) {
+		checkNotNull(executor, "executor cannot be null");
+
+		if (!started.compareAndSet(false, true)) {
+			throw new IllegalStateException("the job has already been started");
+		}
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				runInBackground(new CallbackDispatcher(callbackThreadUtil, listener));
+			}
+		});
+	}
+
+	/**
+	 * Cancels the job. Copying stops at the next chunk boundary, and the partially copied asset is
+	 * discarded without modifying its target file. Assets which were copied in full are kept.
+	 * Cancelling a job which has finished has no effect.
+	 */
+	public void cancel() {
+		cancelled.set(true);
+	}
+
+	/**
+	 * @return true if the job has been cancelled, false otherwise
+	 */
+	public boolean isCancelled() {
+		return cancelled.get();
+	}
+
+	/**
+	 * Runs the job at background priority, restoring the priority of the thread afterwards since
+	 * executor threads are usually reused. Every exception is reported as a failure, so that the
+	 * listener always receives exactly one outcome.
+	 *
+	 * @param dispatcher
+	 * 		delivers callbacks, not null
+	 */
+	private void runInBackground(final CallbackDispatcher dispatcher) {
+		final int originalPriority = Process.getThreadPriority(Process.myTid());
+		Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+		boolean finished = false;
+		IOException failure = null;
+
+		try {
+			finished = copyAll(dispatcher);
+		} catch (final IOException e) {
+			failure = e;
+		} catch (final Throwable t) {
+			failure = new IOException("unexpected error while copying assets", t);
+		} finally {
+			Process.setThreadPriority(originalPriority);
+		}
+
+		// Dispatch outside the try block so that a throwing listener cannot cause a second outcome
+		if (failure != null) {
+			dispatcher.dispatchFailed(failure);
+		} else if (finished) {
+			dispatcher.dispatchFinished();
+		} else {
+			dispatcher.dispatchCancelled();
+		}
+	}
+
+	/**
+	 * Copies every asset, reporting progress and honouring cancellation and the bandwidth limit.
+	 *
+	 * @param dispatcher
+	 * 		delivers callbacks, not null
+	 * @return true if every asset was copied, false if the job was cancelled
+	 * @throws IOException
+	 * 		if an asset cannot be copied
+	 */
+	private boolean copyAll(final CallbackDispatcher dispatcher) throws IOException {
+		final long totalBytes = measureAssets();
+		final long intervalMillis = progressIntervalMillis;
+		final long bytesPerSecond = maxBytesPerSecond;
+		final long startTime = SystemClock.elapsedRealtime();
+
+		// Shared with the listener so that the final progress report can be delivered
+		final long[] bytesCopied = {0};
+
+		final AssetsHelper.ProgressListener progressListener = new AssetsHelper.ProgressListener() {
+			private long lastReportTime = startTime;
+
+			@Override
+			public boolean onChunkCopied(final long chunkLength) {
+				if (cancelled.get()) {
+					return false;
+				}
+
+				bytesCopied[0] += chunkLength;
+
+				final long now = SystemClock.elapsedRealtime();
+
+				if (now - lastReportTime >= intervalMillis) {
+					dispatcher.dispatchProgress(bytesCopied[0], totalBytes);
+					lastReportTime = now;
+				}
+
+				if (bytesPerSecond != UNLIMITED_BANDWIDTH) {
+					throttle(bytesCopied[0], bytesPerSecond, now - startTime);
+				}
+
+				return true;
+			}
+		};
+
+		for (final String assetName : assetFiles) {
+			final File targetFile = new File(targetDirectory, assetName);
+
+			if (cancelled.get() || !AssetsHelper.copyAssetToFileAtomically(assetManager, assetName,
+					targetFile, progressListener)) {
+				return false;
+			}
+		}
+
+		dispatcher.dispatchProgress(bytesCopied[0], totalBytes);
+		return true;
+	}
+
+	/**
+	 * Determines the total number of bytes the job will copy. Asset streams report their
+	 * uncompressed length, so the assets do not need to be read.
+	 *
+	 * @return the total length of the assets, measured in bytes
+	 * @throws IOException
+	 * 		if an asset cannot be opened
+	 */
+	private long measureAssets() throws IOException {
+		long totalBytes = 0;
+
+		for (final String assetName : assetFiles) {
+			final InputStream stream = assetManager.open(assetName, AssetManager.ACCESS_STREAMING);
+
+			try {
+				totalBytes += stream.available();
+			} finally {
+				stream.close();
+			}
+		}
+
+		return totalBytes;
+	}
+
+	/**
+	 * Sleeps for long enough to bring the average copy rate down to the limit. The sleep is
+	 * abandoned if the job is cancelled, or if the thread is interrupted.
+	 *
+	 * @param bytesCopied
+	 * 		the number of bytes copied so far
+	 * @param bytesPerSecond
+	 * 		the maximum average copy rate, measured in bytes per second
+	 * @param elapsedMillis
+	 * 		the time elapsed since copying started, measured in milliseconds
+	 */
+	private void throttle(final long bytesCopied, final long bytesPerSecond,
+			final long elapsedMillis) {
+		final long targetElapsedMillis = bytesCopied * 1000 / bytesPerSecond;
+
+		if (targetElapsedMillis > elapsedMillis && !cancelled.get()) {
+			try {
+				Thread.sleep(targetElapsedMillis - elapsedMillis);
+			} catch (final InterruptedException e) {
+				// Treat interruption as cancellation, and preserve the interrupt for the executor
+				cancelled.set(true);
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Delivers callbacks to a listener, using the callback thread if one was supplied.
+	 */
+	private class CallbackDispatcher {
+		/**
+		 * Delivers callbacks to the UI thread, null to deliver callbacks on the copying thread.
+		 */
+		private final UiThreadUtil callbackThreadUtil;
+
+		/**
+		 * Receives the callbacks, may be null.
+		 */
+		private final Listener listener;
+
+		/**
+		 * Constructs a new CallbackDispatcher.
+		 *
+		 * @param callbackThreadUtil
+		 * 		delivers callbacks to the UI thread, may be null
+		 * @param listener
+		 * 		receives the callbacks, may be null
+		 */
+		private CallbackDispatcher(final UiThreadUtil callbackThreadUtil,
+				final Listener listener) {
+			this.callbackThreadUtil = callbackThreadUtil;
+			this.listener = listener;
+		}
+
+		/**
+		 * Delivers a progress report.
+		 *
+		 * @param bytesCopied
+		 * 		the number of bytes copied so far
+		 * @param totalBytes
+		 * 		the total number of bytes to copy
+		 */
+		private void dispatchProgress(final long bytesCopied, final long totalBytes) {
+			dispatch(new Runnable() {
+				@Override
+				public void run() {
+					listener.onCopyProgress(AssetCopyJob.this, bytesCopied, totalBytes);
+				}
+			});
+		}
+
+		/**
+		 * Delivers the successful completion of the job.
+		 */
+		private void dispatchFinished() {
+			dispatch(new Runnable() {
+				@Override
+				public void run() {
+					listener.onCopyFinished(AssetCopyJob.this);
+				}
+			});
+		}
+
+		/**
+		 * Delivers the failure of the job.
+		 *
+		 * @param failure
+		 * 		the exception which caused the job to fail
+		 */
+		private void dispatchFailed(final IOException failure) {
+			dispatch(new Runnable() {
+				@Override
+				public void run() {
+					listener.onCopyFailed(AssetCopyJob.this, failure);
+				}
+			});
+		}
+
+		/**
+		 * Delivers the cancellation of the job.
+		 */
+		private void dispatchCancelled() {
+			dispatch(new Runnable() {
+				@Override
+				public void run() {
+					listener.onCopyCancelled(AssetCopyJob.this);
+				}
+			});
+		}
+
+		/**
+		 * Runs a callback on the callback thread, or on the current thread if there is no
+		 * callback thread. Nothing is run if there is no listener.
+		 *
+		 * @param callback
+		 * 		the callback to run, not null
+		 */
+		private void dispatch(final Runnable callback) {
+			if (listener == null) {
+				return;
+			}
+
+			if (callbackThreadUtil == null) {
+				callback.run();
+			} else {
+				callbackThreadUtil.runOnUiThread(callback);
+			}
+		}
+	}
+
+	/**
+	 * Callback for receiving the progress and outcome of a job.
+	 */
+	public interface Listener {
+		/**
+		 * Invoked periodically while the job is copying data, and once more when all data has been
+		 * copied.
+		 *
+		 * @param job
+		 * 		the job which is copying, not null
+		 * @param bytesCopied
+		 * 		the number of bytes copied so far
+		 * @param totalBytes
+		 * 		the total number of bytes the job will copy
+		 */
+		public void onCopyProgress(AssetCopyJob job, long bytesCopied, long totalBytes);
+
+		/**
+		 * Invoked when every asset has been copied.
+		 *
+		 * @param job
+		 * 		the job which finished, not null
+		 */
+		public void onCopyFinished(AssetCopyJob job);
+
+		/**
+		 * Invoked when the job stops because an asset could not be copied. The partially copied
+		 * asset is discarded without modifying its target file, but assets which were copied in
+		 * full are kept. Unexpected exceptions are wrapped in an IOException.
+		 *
+		 * @param job
+		 * 		the job which failed, not null
+		 * @param failure
+		 * 		the exception which caused the job to fail, not null
+		 */
+		public void onCopyFailed(AssetCopyJob job, IOException failure);
+
+		/**
+		 * Invoked when the job stops because it was cancelled.
+		 *
+		 * @param job
+		 * 		the job which was cancelled, not null
+		 */
+		public void onCopyCancelled(AssetCopyJob job);
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.library.utilities;
+
+import android.content.res.AssetManager;
+import android.support.annotation.RequiresPermission;
+
+import com.matthewtamlin.android_utilities.library.helpers.AssetsHelper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Provides files for assets, extracting each asset to storage the first time it is requested.
+ * This avoids copying every asset at startup when most sessions only use a few. Concurrent
+ * requests for the same asset wait for a single extraction, while different assets can be
+ * extracted at the same time. Assets are extracted atomically using {@link
+ * AssetsHelper#copyAssetToFileAtomically(AssetManager, String, File,
+ * AssetsHelper.ProgressListener)}, which only touches the extracted file and its own temporary
+ * file, so an extracted file is always complete and can be reused by later runs of the app.
+ * When the app version changes, files extracted by earlier versions are discarded. This class is
+ * thread safe.
+ */
+@SuppressWarnings("WeakerAccess") // Class is part of public API
+public class AssetFileRegistry {
+	/**
+	 * The name of the file which records the app version the extracted files belong to.
+	 */
+	private static final String VERSION_FILE_NAME = ".asset_file_registry";
+
+	/**
+	 * Receives the progress of extractions, which are never abandoned.
+	 */
+	private static final AssetsHelper.ProgressListener EXTRACT_COMPLETELY = new AssetsHelper
+			.ProgressListener() {
+		@Override
+		public boolean onChunkCopied(final long chunkLength) {
+			return true;
+		}
+	};
+
+	/**
+	 * Provides access to the assets.
+	 */
+	private final AssetManager assetManager;
+
+	/**
+	 * The directory to extract the assets to.
+	 */
+	private final File directory;
+
+	/**
+	 * The version of the app the extracted files must belong to.
+	 */
+	private final long appVersion;
+
+	/**
+	 * The files which are known to have been extracted, keyed by asset name.
+	 */
+	private final ConcurrentMap<String, File> extractedFiles = new ConcurrentHashMap<>();
+
+	/**
+	 * The locks which serialise extraction of each asset, keyed by asset name.
+	 */
+	private final ConcurrentMap<String, Object> extractionLocks = new ConcurrentHashMap<>();
+
+	/**
+	 * Guards {@link #directoryPrepared}.
+	 */
+	private final Object directoryLock = new Object();
+
+	/**
+	 * Whether or not the directory has been checked against the app version.
+	 */
+	private boolean directoryPrepared = false;
+
+	/**
+	 * Constructs a new AssetFileRegistry. No IO is performed until a file is requested. The
+	 * directory should be used exclusively by this registry, since it may be emptied when the app
+	 * version changes.
+	 *
+	 * @param assetManager
+	 * 		provides access to the assets, not null
+	 * @param directory
+	 * 		the directory to extract the assets to, not null
+	 * @param appVersion
+	 * 		the version of the app, such as {@code PackageInfo.versionCode}
+	 * @throws IllegalArgumentException
+	 * 		if {@code assetManager} or {@code directory} is null
+	 */
+	public AssetFileRegistry(final AssetManager assetManager, final File directory,
+			final long appVersion) {
+		this.assetManager = checkNotNull(assetManager, "assetManager cannot be null");
+		this.directory = checkNotNull(directory, "directory cannot be null");
+		this.appVersion = appVersion;
+	}
+
+	/**
+	 * Returns a file containing an asset, extracting the asset if it has not already been
+	 * extracted by this or an earlier run of the app. The returned file must not be modified.
+	 *
+	 * @param assetName
+	 * 		the name of the asset, not null
+	 * @return the file containing the asset, not null
+	 * @throws IOException
+	 * 		if the asset needs to be extracted and cannot be
+	 * @throws IllegalArgumentException
+	 * 		if {@code assetName} is null
+	 */
+	@RequiresPermission(allOf = android.Manifest.permission.WRITE_EXTERNAL_STORAGE)
+	public File getFile(final String assetName) throws IOException {
+		checkNotNull(assetName, "assetName cannot be null");
+
+		final File knownFile = extractedFiles.get(assetName);
+
+		if (knownFile != null) {
+			return knownFile;
+		}
+
+		synchronized (getExtractionLock(assetName)) {
+			// Another thread may have extracted the asset while this thread was waiting
+			final File extractedFile = extractedFiles.get(assetName);
+
+			if (extractedFile != null) {
+				return extractedFile;
+			}
+
+			prepareDirectory();
+
+			final File file = new File(directory, assetName);
+
+			// Extraction is atomic, so any existing file was completely written by an earlier run
+			if (!file.isFile()) {
+				AssetsHelper.copyAssetToFileAtomically(assetManager, assetName, file,
+						EXTRACT_COMPLETELY);
+			}
+
+			extractedFiles.put(assetName, file);
+
+			return file;
+		}
+	}
+
+	/**
+	 * Determines whether an asset has been extracted by this registry. Files extracted by earlier
+	 * runs of the app are only recognised once they have been requested.
+	 *
+	 * @param assetName
+	 * 		the name of the asset, not null
+	 * @return true if the asset has been extracted, false otherwise
+	 * @throws IllegalArgumentException
+	 * 		if {@code assetName} is null
+	 */
+	public boolean isExtracted(final String assetName) {
+		checkNotNull(assetName, "assetName cannot be null");
+
+		return extractedFiles.containsKey(assetName);
+	}
+
+	/**
+	 * Returns the lock which serialises extraction of an asset, creating it if necessary.
+	 *
+	 * @param assetName
+	 * 		the name of the asset, not null
+	 * @return the lock, not null
+	 */
+	private Object getExtractionLock(final String assetName) {
+		final Object newLock = new Object();
+		final Object existingLock = extractionLocks.putIfAbsent(assetName, newLock);
+
+		return existingLock == null ? newLock : existingLock;
+	}
+
+	/**
+	 * Ensures the directory exists and only contains files extracted by the current app version.
+	 * The directory is emptied before the new version is recorded, so an interrupted upgrade is
+	 * simply repeated.
+	 *
+	 * @throws IOException
+	 * 		if the directory cannot be created, emptied or updated
+	 */
+	private void prepareDirectory() throws IOException {
+		synchronized (directoryLock) {
+			if (directoryPrepared) {
+				return;
+			}
+
+			final File versionFile = new File(directory, VERSION_FILE_NAME);
+
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("could not create directory " + directory);
+			}
+
+			final Long recordedVersion = readVersion(versionFile);
+
+			if (recordedVersion == null || recordedVersion != appVersion) {
+				final File[] files = directory.listFiles();
+
+				if (files == null) {
+					throw new IOException("could not list the files in " + directory);
+				}
+
+				for (final File file : files) {
+					deleteRecursively(file);
+				}
+
+				writeVersion(versionFile);
+			}
+
+			directoryPrepared = true;
+		}
+	}
+
+	/**
+	 * Reads the app version recorded in a version file.
+	 *
+	 * @param versionFile
+	 * 		the file to read, not null
+	 * @return the recorded version, or null if the file does not exist or cannot be parsed
+	 */
+	private static Long readVersion(final File versionFile) {
+		if (!versionFile.isFile()) {
+			return null;
+		}
+
+		try {
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(new
+					FileInputStream(versionFile), "UTF-8"));
+
+			try {
+				return Long.parseLong(reader.readLine());
+			} finally {
+				reader.close();
+			}
+		} catch (final IOException | NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Records the current app version in a version file.
+	 *
+	 * @param versionFile
+	 * 		the file to write, not null
+	 * @throws IOException
+	 * 		if the file cannot be written
+	 */
+	private void writeVersion(final File versionFile) throws IOException {
+		final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new
+				FileOutputStream(versionFile), "UTF-8"));
+
+		try {
+			writer.write(Long.toString(appVersion));
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Deletes a file, or a directory and all of its contents.
+	 *
+	 * @param file
+	 * 		the file or directory to delete, not null
+	 * @throws IOException
+	 * 		if the file or part of the directory cannot be deleted
+	 */
+	private static void deleteRecursively(final File file) throws IOException {
+		if (file.isDirectory()) {
+			final File[] children = file.listFiles();
+
+			if (children == null) {
+				throw new IOException("could not list the files in " + file);
+			}
+
+			for (final File child : children) {
+				deleteRecursively(child);
+			}
+		}
+
+		if (!file.delete()) {
+			throw new IOException("could not delete " + file);
+		}
+	}
+}
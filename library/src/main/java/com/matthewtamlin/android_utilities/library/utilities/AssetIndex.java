@@ -0,0 +1,319 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.library.utilities;
+
+import android.content.res.AssetManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * An index of the files in the assets space, generated at build time by the {@code
+ * assetIndex.gradle} script. Listing directories and looking up files through the index are
+ * constant time operations, whereas {@link AssetManager#list(String)} is slow for large APKs. Each
+ * indexed file records its length, whether it is compressed in the APK, and its CRC32 checksum.
+ * Instances are immutable and thread safe.
+ */
+@SuppressWarnings("WeakerAccess") // Class is part of public API
+public class AssetIndex {
+	/**
+	 * The name of the generated index file in the assets space.
+	 */
+	public static final String ASSET_INDEX_NAME = "assets_helper_index";
+
+	/**
+	 * The version of the index format this class can read.
+	 */
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * The indexed files, keyed by path.
+	 */
+	private final Map<String, Entry> entries;
+
+	/**
+	 * The names of the immediate children of each directory, keyed by directory path. The root
+	 * directory has an empty path.
+	 */
+	private final Map<String, List<String>> directories;
+
+	/**
+	 * Loads the index generated for the supplied assets.
+	 *
+	 * @param assetManager
+	 * 		provides access to the index, not null
+	 * @return the index, not null
+	 * @throws IOException
+	 * 		if the index does not exist, cannot be read, or is not in a supported format
+	 * @throws IllegalArgumentException
+	 * 		if {@code assetManager} is null
+	 */
+	public static AssetIndex load(final AssetManager assetManager) throws IOException {
+		checkNotNull(assetManager, "assetManager cannot be null");
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(assetManager.open
+				(ASSET_INDEX_NAME, AssetManager.ACCESS_STREAMING), "UTF-8"));
+
+		try {
+			final String version = reader.readLine();
+
+			if (version == null || Integer.parseInt(version) != FORMAT_VERSION) {
+				throw new IOException("unsupported asset index version: " + version);
+			}
+
+			final Map<String, Entry> entries = new HashMap<>();
+			String line;
+
+			// Each line is "length <tab> compressed <tab> checksum <tab> path"
+			while ((line = reader.readLine()) != null) {
+				final String[] fields = line.split("\t", 4);
+
+				if (fields.length != 4) {
+					throw new IOException("malformed asset index line: " + line);
+				}
+
+				final Entry entry = new Entry(fields[3], Long.parseLong(fields[0]),
+						"1".equals(fields[1]), Long.parseLong(fields[2]));
+				entries.put(entry.getPath(), entry);
+			}
+
+			return new AssetIndex(entries);
+		} catch (final NumberFormatException e) {
+			throw new IOException("malformed asset index", e);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Constructs a new AssetIndex.
+	 *
+	 * @param entries
+	 * 		the indexed files, keyed by path
+	 */
+	private AssetIndex(final Map<String, Entry> entries) {
+		this.entries = entries;
+		this.directories = new HashMap<>();
+
+		// Sets are used while building so that shared ancestors are only recorded once
+		final Map<String, Set<String>> childrenByDirectory = new HashMap<>();
+
+		// Register each file with its parent directory, and each directory with its own parent
+		for (final String path : entries.keySet()) {
+			String child = path;
+
+			while (true) {
+				final int separator = child.lastIndexOf('/');
+				final String parent = separator == -1 ? "" : child.substring(0, separator);
+				final boolean parentSeen = childrenByDirectory.containsKey(parent);
+
+				if (!parentSeen) {
+					childrenByDirectory.put(parent, new TreeSet<String>());
+				}
+
+				childrenByDirectory.get(parent).add(child.substring(separator + 1));
+
+				// Ancestors of a directory which was already seen have already been registered
+				if (parentSeen || parent.isEmpty()) {
+					break;
+				}
+
+				child = parent;
+			}
+		}
+
+		for (final Map.Entry<String, Set<String>> directory : childrenByDirectory.entrySet()) {
+			directories.put(directory.getKey(), Collections.unmodifiableList(new ArrayList<>(
+					directory.getValue())));
+		}
+	}
+
+	/**
+	 * Looks up an indexed file.
+	 *
+	 * @param path
+	 * 		the path of the file, relative to the root of the assets space, not null
+	 * @return the entry for the file, null if the file is not indexed
+	 * @throws IllegalArgumentException
+	 * 		if {@code path} is null
+	 */
+	public Entry get(final String path) {
+		checkNotNull(path, "path cannot be null");
+
+		return entries.get(path);
+	}
+
+	/**
+	 * Determines whether a file is indexed.
+	 *
+	 * @param path
+	 * 		the path of the file, relative to the root of the assets space, not null
+	 * @return true if the file is indexed, false otherwise
+	 * @throws IllegalArgumentException
+	 * 		if {@code path} is null
+	 */
+	public boolean contains(final String path) {
+		return get(path) != null;
+	}
+
+	/**
+	 * Lists the immediate children of a directory, in the same manner as {@link
+	 * AssetManager#list(String)}.
+	 *
+	 * @param directory
+	 * 		the path of the directory, relative to the root of the assets space, not null
+	 * @return the sorted names of the files and directories in {@code directory}, empty if the
+	 * directory does not exist, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code directory} is null
+	 */
+	public List<String> list(final String directory) {
+		checkNotNull(directory, "directory cannot be null");
+
+		final List<String> children = directories.get(directory);
+
+		return children == null ? Collections.<String>emptyList() : children;
+	}
+
+	/**
+	 * Lists the paths of every file in a directory and its subdirectories.
+	 *
+	 * @param directory
+	 * 		the path of the directory, relative to the root of the assets space, not null
+	 * @return the paths of the files, relative to the root of the assets space, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code directory} is null
+	 */
+	public List<String> listFilesRecursively(final String directory) {
+		checkNotNull(directory, "directory cannot be null");
+
+		final List<String> files = new ArrayList<>();
+		addFilesRecursively(directory, files);
+
+		return files;
+	}
+
+	/**
+	 * @return the total number of indexed files
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Adds the paths of every file in a directory and its subdirectories to a list.
+	 *
+	 * @param directory
+	 * 		the path of the directory
+	 * @param files
+	 * 		the list to add to
+	 */
+	private void addFilesRecursively(final String directory, final List<String> files) {
+		for (final String name : list(directory)) {
+			final String path = directory.isEmpty() ? name : directory + "/" + name;
+
+			if (entries.containsKey(path)) {
+				files.add(path);
+			} else {
+				addFilesRecursively(path, files);
+			}
+		}
+	}
+
+	/**
+	 * Describes a single indexed file.
+	 */
+	public static class Entry {
+		/**
+		 * The path of the file, relative to the root of the assets space.
+		 */
+		private final String path;
+
+		/**
+		 * The length of the file, measured in bytes.
+		 */
+		private final long length;
+
+		/**
+		 * Whether or not the file is compressed in the APK.
+		 */
+		private final boolean compressed;
+
+		/**
+		 * The CRC32 checksum of the file.
+		 */
+		private final long checksum;
+
+		/**
+		 * Constructs a new Entry.
+		 *
+		 * @param path
+		 * 		the path of the file, relative to the root of the assets space
+		 * @param length
+		 * 		the length of the file, measured in bytes
+		 * @param compressed
+		 * 		whether or not the file is compressed in the APK
+		 * @param checksum
+		 * 		the CRC32 checksum of the file
+		 */
+		private Entry(final String path, final long length, final boolean compressed,
+				final long checksum) {
+			this.path = path;
+			this.length = length;
+			this.compressed = compressed;
+			this.checksum = checksum;
+		}
+
+		/**
+		 * @return the path of the file, relative to the root of the assets space, not null
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * @return the length of the file, measured in bytes
+		 */
+		public long getLength() {
+			return length;
+		}
+
+		/**
+		 * @return true if the file is compressed in the APK, false otherwise
+		 */
+		public boolean isCompressed() {
+			return compressed;
+		}
+
+		/**
+		 * @return the CRC32 checksum of the file
+		 */
+		public long getChecksum() {
+			return checksum;
+		}
+	}
+}
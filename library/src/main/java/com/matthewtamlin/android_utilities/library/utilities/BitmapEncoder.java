@@ -0,0 +1,424 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.library.utilities;
+
+import android.graphics.Bitmap;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Compresses Bitmaps to JPEG, PNG or WebP data. Encoding can be performed synchronously on the
+ * calling thread, or asynchronously using a supplied Executor so that it never runs on the UI
+ * thread. In addition to encoding at a fixed quality, the quality setting can be searched to find
+ * the highest quality which produces data no larger than a target size. Output streams are reused
+ * between encodes to avoid repeatedly growing new buffers. This class is thread safe.
+ */
+@SuppressWarnings("WeakerAccess") // Class is part of public API
+public class BitmapEncoder {
+	/**
+	 * The initial capacity of newly allocated output streams, measured in bytes.
+	 */
+	private static final int INITIAL_STREAM_CAPACITY = 64 * 1024;
+
+	/**
+	 * The maximum number of idle output streams to retain for reuse.
+	 */
+	private static final int MAX_POOLED_STREAMS = 4;
+
+	/**
+	 * The lowest quality setting accepted by {@link Bitmap#compress(Bitmap.CompressFormat, int,
+	 * java.io.OutputStream)}.
+	 */
+	private static final int MIN_QUALITY = 0;
+
+	/**
+	 * The highest quality setting accepted by {@link Bitmap#compress(Bitmap.CompressFormat, int,
+	 * java.io.OutputStream)}.
+	 */
+	private static final int MAX_QUALITY = 100;
+
+	/**
+	 * Executes asynchronous encodes.
+	 */
+	private final Executor executor;
+
+	/**
+	 * Delivers callbacks, null to deliver callbacks on the encoding thread.
+	 */
+	private final UiThreadUtil callbackThreadUtil;
+
+	/**
+	 * Idle output streams which can be reused.
+	 */
+	private final ArrayDeque<ByteArrayOutputStream> streamPool = new ArrayDeque<>();
+
+	/**
+	 * Constructs a new BitmapEncoder.
+	 *
+	 * @param executor
+	 * 		executes asynchronous encodes, not null
+	 * @param callbackThreadUtil
+	 * 		delivers callbacks for asynchronous encodes to the UI thread, null to deliver callbacks
+	 * 		on the encoding thread
+	 * @throws IllegalArgumentException
+	 * 		if {@code executor} is null
+	 */
+	public BitmapEncoder(final Executor executor, final UiThreadUtil callbackThreadUtil) {
+		this.executor = checkNotNull(executor, "executor cannot be null");
+		this.callbackThreadUtil = callbackThreadUtil;
+	}
+
+	/**
+	 * Encodes a Bitmap on the calling thread using a fixed quality.
+	 *
+	 * @param bitmap
+	 * 		the Bitmap to encode, not null
+	 * @param format
+	 * 		the format to encode with, not null
+	 * @param quality
+	 * 		the quality hint passed to the encoder, between 0 and 100 (inclusive)
+	 * @return the result of the encode, null if the Bitmap could not be encoded
+	 * @throws IllegalArgumentException
+	 * 		if {@code bitmap} or {@code format} is null, or if {@code quality} is not between 0 and
+	 * 		100 (inclusive)
+	 */
+	public Result encode(final Bitmap bitmap, final Bitmap.CompressFormat format,
+			final int quality) {
+		checkNotNull(bitmap, "bitmap cannot be null");
+		checkNotNull(format, "format cannot be null");
+
+		if (quality < MIN_QUALITY || quality > MAX_QUALITY) {
+			throw new IllegalArgumentException("quality must be between 0 and 100 (inclusive)");
+		}
+
+		final long startTime = System.nanoTime();
+		final ByteArrayOutputStream stream = obtainStream();
+
+		try {
+			if (!bitmap.compress(format, quality, stream)) {
+				return null;
+			}
+
+			return new Result(stream.toByteArray(), quality, 1, System.nanoTime() - startTime);
+		} finally {
+			releaseStream(stream);
+		}
+	}
+
+	/**
+	 * Encodes a Bitmap on the calling thread using the highest quality which produces data no
+	 * larger than the target size. The quality is found using a binary search, so at most seven
+	 * encodes are performed. If no quality satisfies the target, the result of encoding at the
+	 * lowest quality is returned, and {@link Result#getSizeBytes()} will exceed the target. Formats
+	 * which ignore the quality setting (such as PNG) are encoded once.
+	 *
+	 * @param bitmap
+	 * 		the Bitmap to encode, not null
+	 * @param format
+	 * 		the format to encode with, not null
+	 * @param targetSizeBytes
+	 * 		the maximum size of the encoded data, measured in bytes, greater than zero
+	 * @return the result of the encode, null if the Bitmap could not be encoded
+	 * @throws IllegalArgumentException
+	 * 		if {@code bitmap} or {@code format} is null, or if {@code targetSizeBytes} is not
+	 * 		greater than zero
+	 */
+	public Result encodeToTargetSize(final Bitmap bitmap, final Bitmap.CompressFormat format,
+			final int targetSizeBytes) {
+		checkNotNull(bitmap, "bitmap cannot be null");
+		checkNotNull(format, "format cannot be null");
+
+		if (targetSizeBytes <= 0) {
+			throw new IllegalArgumentException("targetSizeBytes must be greater than zero");
+		}
+
+		if (format == Bitmap.CompressFormat.PNG) {
+			return encode(bitmap, format, MAX_QUALITY);
+		}
+
+		final long startTime = System.nanoTime();
+
+		// The best fitting result is kept in one stream while attempts are made in the other
+		ByteArrayOutputStream bestStream = obtainStream();
+		ByteArrayOutputStream attemptStream = obtainStream();
+		int bestQuality = -1;
+		int attempts = 0;
+
+		try {
+			int low = MIN_QUALITY;
+			int high = MAX_QUALITY;
+
+			while (low <= high) {
+				final int quality = (low + high) >>> 1;
+
+				attemptStream.reset();
+				attempts++;
+
+				if (!bitmap.compress(format, quality, attemptStream)) {
+					return null;
+				}
+
+				if (attemptStream.size() <= targetSizeBytes) {
+					// Keep this attempt and try to find a higher quality which still fits
+					final ByteArrayOutputStream swap = bestStream;
+					bestStream = attemptStream;
+					attemptStream = swap;
+					bestQuality = quality;
+					low = quality + 1;
+				} else {
+					high = quality - 1;
+				}
+			}
+
+			if (bestQuality == -1) {
+				// Nothing fits, so the lowest quality was the final attempt
+				return new Result(attemptStream.toByteArray(), MIN_QUALITY, attempts,
+						System.nanoTime() - startTime);
+			} else {
+				return new Result(bestStream.toByteArray(), bestQuality, attempts,
+						System.nanoTime() - startTime);
+			}
+		} finally {
+			releaseStream(bestStream);
+			releaseStream(attemptStream);
+		}
+	}
+
+	/**
+	 * Asynchronously encodes a Bitmap using a fixed quality. The Bitmap must not be modified or
+	 * recycled until the callback is delivered.
+	 *
+	 * @param bitmap
+	 * 		the Bitmap to encode, not null
+	 * @param format
+	 * 		the format to encode with, not null
+	 * @param quality
+	 * 		the quality hint passed to the encoder, between 0 and 100 (inclusive)
+	 * @param callback
+	 * 		receives the result of the encode, may be null
+	 * @throws IllegalArgumentException
+	 * 		if {@code bitmap} or {@code format} is null, or if {@code quality} is not between 0 and
+	 * 		100 (inclusive)
+	 */
+	public void encodeAsync(final Bitmap bitmap, final Bitmap.CompressFormat format,
+			final int quality, final Callback callback) {
+		checkNotNull(bitmap, "bitmap cannot be null");
+		checkNotNull(format, "format cannot be null");
+
+		if (quality < MIN_QUALITY || quality > MAX_QUALITY) {
+			throw new IllegalArgumentException("quality must be between 0 and 100 (inclusive)");
+		}
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				deliverResult(callback, encode(bitmap, format, quality));
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously encodes a Bitmap using the highest quality which produces data no larger than
+	 * the target size. See {@link #encodeToTargetSize(Bitmap, Bitmap.CompressFormat, int)} for
+	 * details. The Bitmap must not be modified or recycled until the callback is delivered.
+	 *
+	 * @param bitmap
+	 * 		the Bitmap to encode, not null
+	 * @param format
+	 * 		the format to encode with, not null
+	 * @param targetSizeBytes
+	 * 		the maximum size of the encoded data, measured in bytes, greater than zero
+	 * @param callback
+	 * 		receives the result of the encode, may be null
+	 * @throws IllegalArgumentException
+	 * 		if {@code bitmap} or {@code format} is null, or if {@code targetSizeBytes} is not
+	 * 		greater than zero
+	 */
+	public void encodeToTargetSizeAsync(final Bitmap bitmap, final Bitmap.CompressFormat format,
+			final int targetSizeBytes, final Callback callback) {
+		checkNotNull(bitmap, "bitmap cannot be null");
+		checkNotNull(format, "format cannot be null");
+
+		if (targetSizeBytes <= 0) {
+			throw new IllegalArgumentException("targetSizeBytes must be greater than zero");
+		}
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				deliverResult(callback, encodeToTargetSize(bitmap, format, targetSizeBytes));
+			}
+		});
+	}
+
+	/**
+	 * Delivers a result to a callback, using the callback thread if one was supplied.
+	 *
+	 * @param callback
+	 * 		the callback to deliver to, may be null
+	 * @param result
+	 * 		the result to deliver, may be null
+	 */
+	private void deliverResult(final Callback callback, final Result result) {
+		if (callback == null) {
+			return;
+		}
+
+		final Runnable delivery = new Runnable() {
+			@Override
+			public void run() {
+				callback.onEncodeFinished(BitmapEncoder.this, result);
+			}
+		};
+
+		if (callbackThreadUtil == null) {
+			delivery.run();
+		} else {
+			callbackThreadUtil.runOnUiThread(delivery);
+		}
+	}
+
+	/**
+	 * @return an empty output stream, reused from the pool if possible
+	 */
+	private ByteArrayOutputStream obtainStream() {
+		synchronized (streamPool) {
+			final ByteArrayOutputStream pooled = streamPool.poll();
+
+			if (pooled != null) {
+				return pooled;
+			}
+		}
+
+		return new ByteArrayOutputStream(INITIAL_STREAM_CAPACITY);
+	}
+
+	/**
+	 * Returns an output stream to the pool so that its buffer can be reused.
+	 *
+	 * @param stream
+	 * 		the stream to return, not null
+	 */
+	private void releaseStream(final ByteArrayOutputStream stream) {
+		stream.reset();
+
+		synchronized (streamPool) {
+			if (streamPool.size() < MAX_POOLED_STREAMS) {
+				streamPool.offer(stream);
+			}
+		}
+	}
+
+	/**
+	 * The outcome of encoding a Bitmap.
+	 */
+	public static class Result {
+		/**
+		 * The encoded data.
+		 */
+		private final byte[] data;
+
+		/**
+		 * The quality setting which produced the encoded data.
+		 */
+		private final int quality;
+
+		/**
+		 * The number of times the Bitmap was encoded to produce this result.
+		 */
+		private final int attempts;
+
+		/**
+		 * The total time spent encoding, measured in nanoseconds.
+		 */
+		private final long encodeTimeNanos;
+
+		/**
+		 * Constructs a new Result.
+		 *
+		 * @param data
+		 * 		the encoded data
+		 * @param quality
+		 * 		the quality setting which produced the encoded data
+		 * @param attempts
+		 * 		the number of times the Bitmap was encoded to produce this result
+		 * @param encodeTimeNanos
+		 * 		the total time spent encoding, measured in nanoseconds
+		 */
+		private Result(final byte[] data, final int quality, final int attempts,
+				final long encodeTimeNanos) {
+			this.data = data;
+			this.quality = quality;
+			this.attempts = attempts;
+			this.encodeTimeNanos = encodeTimeNanos;
+		}
+
+		/**
+		 * @return the encoded data, not null
+		 */
+		public byte[] getData() {
+			return data;
+		}
+
+		/**
+		 * @return the size of the encoded data, measured in bytes
+		 */
+		public int getSizeBytes() {
+			return data.length;
+		}
+
+		/**
+		 * @return the quality setting which produced the encoded data
+		 */
+		public int getQuality() {
+			return quality;
+		}
+
+		/**
+		 * @return the number of times the Bitmap was encoded to produce this result
+		 */
+		public int getAttempts() {
+			return attempts;
+		}
+
+		/**
+		 * @return the total time spent encoding, measured in milliseconds
+		 */
+		public long getEncodeTimeMillis() {
+			return encodeTimeNanos / 1000000;
+		}
+	}
+
+	/**
+	 * Callback for receiving the results of asynchronous encodes.
+	 */
+	public interface Callback {
+		/**
+		 * Invoked when an asynchronous encode finishes.
+		 *
+		 * @param encoder
+		 * 		the BitmapEncoder which performed the encode, not null
+		 * @param result
+		 * 		the result of the encode, null if the Bitmap could not be encoded
+		 */
+		public void onEncodeFinished(BitmapEncoder encoder, Result result);
+	}
+}
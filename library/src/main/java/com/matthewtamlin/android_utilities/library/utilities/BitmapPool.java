@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.library.utilities;
+
+import android.graphics.Bitmap;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A bounded pool of mutable Bitmaps which can be reused instead of allocating new Bitmaps. Bitmaps
+ * are matched on exact dimensions and configuration, and the least recently returned Bitmaps are
+ * recycled when the pool exceeds its byte budget. This class is thread safe.
+ */
+@SuppressWarnings("WeakerAccess") // Class is part of public API
+public class BitmapPool {
+	/**
+	 * The maximum number of bytes the pooled Bitmaps may occupy in total.
+	 */
+	private final int maxSizeBytes;
+
+	/**
+	 * The pooled Bitmaps, ordered from least recently returned to most recently returned.
+	 */
+	private final LinkedList<Bitmap> bitmaps = new LinkedList<>();
+
+	/**
+	 * The number of bytes currently occupied by the pooled Bitmaps.
+	 */
+	private int currentSizeBytes = 0;
+
+	/**
+	 * Constructs a new BitmapPool.
+	 *
+	 * @param maxSizeBytes
+	 * 		the maximum number of bytes the pooled Bitmaps may occupy in total, not less than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code maxSizeBytes} is less than zero
+	 */
+	public BitmapPool(final int maxSizeBytes) {
+		if (maxSizeBytes < 0) {
+			throw new IllegalArgumentException("maxSizeBytes cannot be less than zero");
+		}
+
+		this.maxSizeBytes = maxSizeBytes;
+	}
+
+	/**
+	 * Returns a mutable Bitmap with the requested dimensions and configuration. A pooled Bitmap is
+	 * returned if one matches, otherwise a new Bitmap is allocated. Pooled Bitmaps are cleared to
+	 * transparent before being returned.
+	 *
+	 * @param width
+	 * 		the width of the Bitmap, measured in pixels, greater than zero
+	 * @param height
+	 * 		the height of the Bitmap, measured in pixels, greater than zero
+	 * @param config
+	 * 		the configuration of the Bitmap, not null
+	 * @return a mutable Bitmap matching the supplied parameters, not null
+	 * @throws IllegalArgumentException
+	 * 		if either dimension is not greater than zero, or if {@code config} is null
+	 */
+	public Bitmap get(final int width, final int height, final Bitmap.Config config) {
+		final Bitmap pooled = getPooledOnly(width, height, config);
+
+		if (pooled != null) {
+			pooled.eraseColor(0);
+			return pooled;
+		} else {
+			return Bitmap.createBitmap(width, height, config);
+		}
+	}
+
+	/**
+	 * Removes and returns a pooled Bitmap with the requested dimensions and configuration, without
+	 * clearing its contents. No Bitmap is allocated if there is no match.
+	 *
+	 * @param width
+	 * 		the width of the Bitmap, measured in pixels, greater than zero
+	 * @param height
+	 * 		the height of the Bitmap, measured in pixels, greater than zero
+	 * @param config
+	 * 		the configuration of the Bitmap, not null
+	 * @return a pooled Bitmap matching the supplied parameters, null if there is no match
+	 * @throws IllegalArgumentException
+	 * 		if either dimension is not greater than zero, or if {@code config} is null
+	 */
+	public synchronized Bitmap getPooledOnly(final int width, final int height,
+			final Bitmap.Config config) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("both dimensions must be greater than zero");
+		}
+
+		checkNotNull(config, "config cannot be null");
+
+		// Search from the most recently returned end since those are most likely to be reused
+		final Iterator<Bitmap> iterator = bitmaps.descendingIterator();
+
+		while (iterator.hasNext()) {
+			final Bitmap candidate = iterator.next();
+
+			if (candidate.getWidth() == width && candidate.getHeight() == height &&
+					candidate.getConfig() == config) {
+				iterator.remove();
+				currentSizeBytes -= getSizeBytes(candidate);
+				return candidate;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns a Bitmap to the pool so that it can be reused. Immutable and recycled Bitmaps are
+	 * ignored. The caller must not use the Bitmap after returning it.
+	 *
+	 * @param bitmap
+	 * 		the Bitmap to return, may be null
+	 */
+	public synchronized void put(final Bitmap bitmap) {
+		if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() ||
+				bitmap.getConfig() == null) {
+			return;
+		}
+
+		final int size = getSizeBytes(bitmap);
+
+		if (size > maxSizeBytes) {
+			bitmap.recycle();
+		} else if (!bitmaps.contains(bitmap)) {
+			bitmaps.addLast(bitmap);
+			currentSizeBytes += size;
+			trimToSize(maxSizeBytes);
+		}
+	}
+
+	/**
+	 * Recycles all pooled Bitmaps and empties the pool.
+	 */
+	public void clear() {
+		trimToSize(0);
+	}
+
+	/**
+	 * @return the number of bytes currently occupied by the pooled Bitmaps
+	 */
+	public synchronized int getSizeBytes() {
+		return currentSizeBytes;
+	}
+
+	/**
+	 * @return the maximum number of bytes the pooled Bitmaps may occupy in total
+	 */
+	public int getMaxSizeBytes() {
+		return maxSizeBytes;
+	}
+
+	/**
+	 * Recycles the least recently returned Bitmaps until the pool occupies no more than the
+	 * supplied number of bytes.
+	 *
+	 * @param sizeBytes
+	 * 		the maximum number of bytes the pool may occupy after trimming
+	 */
+	private synchronized void trimToSize(final int sizeBytes) {
+		while (currentSizeBytes > sizeBytes && !bitmaps.isEmpty()) {
+			final Bitmap evicted = bitmaps.removeFirst();
+			currentSizeBytes -= getSizeBytes(evicted);
+			evicted.recycle();
+		}
+	}
+
+	/**
+	 * Calculates the number of bytes occupied by the pixels of a Bitmap. This is used in place of
+	 * {@link Bitmap#getByteCount()} since that method is not available on all supported APIs.
+	 *
+	 * @param bitmap
+	 * 		the Bitmap to measure, not null
+	 * @return the number of bytes occupied by the pixels of {@code bitmap}
+	 */
+	private static int getSizeBytes(final Bitmap bitmap) {
+		return bitmap.getRowBytes() * bitmap.getHeight();
+	}
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.library.utilities;
+
+import com.matthewtamlin.android_utilities.library.helpers.ColorHelper;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Memoizes a function which maps one color to another, such as {@link
+ * ColorHelper#calculateBestTextColor(int)}. Apps tend to evaluate such functions for the same few
+ * colors over and over, so the results are stored in a fixed size open-addressing table of
+ * primitive values which does not box the colors or allocate on lookup. Each entry packs the
+ * color and the result into a single long, so lookups are lock-free and never see a partially
+ * written entry. When the probe window for a color is full, the entry at the start of the window
+ * is replaced, which bounds the memory used no matter how many distinct colors are seen. This
+ * class is thread safe.
+ */
+@SuppressWarnings("WeakerAccess") // Class is part of public API
+public class ColorFunctionCache {
+	/**
+	 * The number of consecutive slots searched for a color before giving up.
+	 */
+	private static final int MAX_PROBE_LENGTH = 8;
+
+	/**
+	 * Marks an empty slot. An entry which happens to pack to this value is never cached.
+	 */
+	private static final long EMPTY = 0L;
+
+	/**
+	 * The function being memoized.
+	 */
+	private final ColorFunction function;
+
+	/**
+	 * The cached entries, each containing a color in the upper 32 bits and the result of the
+	 * function in the lower 32 bits. The length is always a power of two.
+	 */
+	private final AtomicLongArray entries;
+
+	/**
+	 * Masks a hash to an index in {@link #entries}.
+	 */
+	private final int indexMask;
+
+	/**
+	 * The number of lookups which found a cached result.
+	 */
+	private final AtomicLong hitCount = new AtomicLong();
+
+	/**
+	 * The number of lookups which had to evaluate the function.
+	 */
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Constructs a new ColorFunctionCache.
+	 *
+	 * @param capacity
+	 * 		the minimum number of results to store, greater than zero, rounded up to a power of two
+	 * @param function
+	 * 		the function to memoize, not null, must always return the same result for a given color
+	 * @throws IllegalArgumentException
+	 * 		if {@code capacity} is not greater than zero or is too large, or if {@code function} is
+	 * 		null
+	 */
+	public ColorFunctionCache(final int capacity, final ColorFunction function) {
+		if (capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("capacity must be between 1 and 2^30 (inclusive)");
+		}
+
+		this.function = checkNotNull(function, "function cannot be null");
+
+		final int tableSize = Integer.highestOneBit(capacity) == capacity ? capacity :
+				Integer.highestOneBit(capacity) << 1;
+
+		entries = new AtomicLongArray(tableSize);
+		indexMask = tableSize - 1;
+	}
+
+	/**
+	 * Creates a cache which memoizes {@link ColorHelper#calculateBestTextColor(int)}.
+	 *
+	 * @param capacity
+	 * 		the minimum number of results to store, greater than zero, rounded up to a power of two
+	 * @return the cache, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code capacity} is not greater than zero or is too large
+	 */
+	public static ColorFunctionCache forBestTextColor(final int capacity) {
+		return new ColorFunctionCache(capacity, new ColorFunction() {
+			@Override
+			public int apply(final int color) {
+				return ColorHelper.calculateBestTextColor(color);
+			}
+		});
+	}
+
+	/**
+	 * Returns the result of the function for a color, evaluating the function only if the result
+	 * is not already cached.
+	 *
+	 * @param color
+	 * 		the color to pass to the function, as an ARGB hex code
+	 * @return the result of the function
+	 */
+	public int get(final int color) {
+		final int start = indexFor(color);
+
+		for (int probe = 0; probe < MAX_PROBE_LENGTH; probe++) {
+			final long entry = entries.get((start + probe) & indexMask);
+
+			if (entry == EMPTY) {
+				// Entries are never removed individually, so the color cannot be further along
+				break;
+			} else if (keyOf(entry) == color) {
+				hitCount.incrementAndGet();
+				return valueOf(entry);
+			}
+		}
+
+		missCount.incrementAndGet();
+
+		final int result = function.apply(color);
+		store(color, result);
+
+		return result;
+	}
+
+	/**
+	 * Removes all cached results. The hit and miss statistics are not reset.
+	 */
+	public void clear() {
+		for (int i = 0; i < entries.length(); i++) {
+			entries.set(i, EMPTY);
+		}
+	}
+
+	/**
+	 * @return the maximum number of results which can be cached
+	 */
+	public int getCapacity() {
+		return entries.length();
+	}
+
+	/**
+	 * @return the number of lookups which found a cached result
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of lookups which had to evaluate the function
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return the proportion of lookups which found a cached result, between 0 and 1, or 0 if no
+	 * lookups have been made
+	 */
+	public float getHitRate() {
+		final long hits = hitCount.get();
+		final long total = hits + missCount.get();
+
+		return total == 0 ? 0 : (float) hits / total;
+	}
+
+	/**
+	 * Stores a result in the first empty slot of the probe window for a color, or in the first
+	 * slot of the window if the window is full. Concurrent stores of the same color may both
+	 * succeed, which is harmless since the results are equal.
+	 *
+	 * @param color
+	 * 		the color passed to the function
+	 * @param result
+	 * 		the result of the function
+	 */
+	private void store(final int color, final int result) {
+		final long entry = ((long) color << 32) | (result & 0xFFFFFFFFL);
+
+		if (entry == EMPTY) {
+			return;
+		}
+
+		final int start = indexFor(color);
+
+		for (int probe = 0; probe < MAX_PROBE_LENGTH; probe++) {
+			if (entries.compareAndSet((start + probe) & indexMask, EMPTY, entry)) {
+				return;
+			}
+		}
+
+		entries.set(start, entry);
+	}
+
+	/**
+	 * Determines where the probe window for a color starts. The color is scrambled first, since
+	 * colors which differ only in their low bits are common.
+	 *
+	 * @param color
+	 * 		the color to find the index for
+	 * @return the index of the first slot in the probe window
+	 */
+	private int indexFor(final int color) {
+		final int hash = color * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & indexMask;
+	}
+
+	/**
+	 * Extracts the color from an entry.
+	 *
+	 * @param entry
+	 * 		the entry to extract the color from
+	 * @return the color
+	 */
+	private static int keyOf(final long entry) {
+		return (int) (entry >>> 32);
+	}
+
+	/**
+	 * Extracts the result of the function from an entry.
+	 *
+	 * @param entry
+	 * 		the entry to extract the result from
+	 * @return the result
+	 */
+	private static int valueOf(final long entry) {
+		return (int) entry;
+	}
+
+	/**
+	 * A function which maps one color to another.
+	 */
+	public interface ColorFunction {
+		/**
+		 * Applies the function.
+		 *
+		 * @param color
+		 * 		the color to apply the function to, as an ARGB hex code
+		 * @return the result of the function
+		 */
+		int apply(int color);
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.library.utilities;
+
+import android.animation.TypeEvaluator;
+import android.annotation.TargetApi;
+import android.support.annotation.RequiresApi;
+
+import com.matthewtamlin.android_utilities.library.helpers.ColorHelper;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A precomputed gradient between two or more colors. The colors are evenly spaced along the
+ * ramp, and the ramp is sampled at a fixed number of steps using {@link
+ * ColorHelper#blendColors(int, int, float)} when it is constructed. Looking up a color is then a
+ * constant time operation which does no color math and does not allocate memory, which makes the
+ * ramp suitable for driving animations. Instances are immutable and thread safe.
+ */
+@SuppressWarnings("WeakerAccess") // Class is part of public API
+public class ColorRamp {
+	/**
+	 * The colors at each step of the ramp, as ARGB hex codes.
+	 */
+	private final int[] table;
+
+	/**
+	 * The same colors as {@link #table}, boxed once so that the evaluator does not allocate.
+	 */
+	private final Integer[] boxedTable;
+
+	/**
+	 * Constructs a new ColorRamp.
+	 *
+	 * @param steps
+	 * 		the number of precomputed colors, at least 2
+	 * @param colors
+	 * 		the colors to blend between, as ARGB hex codes, evenly spaced from the start to the end
+	 * 		of the ramp, not null, at least 2 colors
+	 * @throws IllegalArgumentException
+	 * 		if {@code colors} is null or contains fewer than 2 colors, or if {@code steps} is less
+	 * 		than 2
+	 */
+	public ColorRamp(final int steps, final int... colors) {
+		checkNotNull(colors, "colors cannot be null");
+
+		if (colors.length < 2) {
+			throw new IllegalArgumentException("colors must contain at least 2 colors");
+		} else if (steps < 2) {
+			throw new IllegalArgumentException("steps must be at least 2");
+		}
+
+		table = new int[steps];
+		boxedTable = new Integer[steps];
+
+		final int segmentCount = colors.length - 1;
+
+		for (int i = 0; i < steps; i++) {
+			final float position = ((float) i / (steps - 1)) * segmentCount;
+
+			// The final step lies at the end of the last segment rather than the start of another
+			final int segment = Math.min((int) position, segmentCount - 1);
+			final float ratio = Math.min(1f, position - segment);
+
+			table[i] = ColorHelper.blendColors(colors[segment], colors[segment + 1], ratio);
+			boxedTable[i] = table[i];
+		}
+	}
+
+	/**
+	 * Returns the color at a point along the ramp. The color at the nearest precomputed step is
+	 * returned, so the result is accurate to half a step.
+	 *
+	 * @param fraction
+	 * 		the point along the ramp, where 0 is the start and 1 is the end, values outside this
+	 * 		range are clamped
+	 * @return the color, as an ARGB hex code
+	 */
+	public int getColor(final float fraction) {
+		return table[getStepIndex(fraction)];
+	}
+
+	/**
+	 * Returns the color at a particular step of the ramp.
+	 *
+	 * @param step
+	 * 		the index of the step, between 0 (inclusive) and the number of steps (exclusive)
+	 * @return the color, as an ARGB hex code
+	 * @throws IllegalArgumentException
+	 * 		if {@code step} is out of range
+	 */
+	public int getColorAtStep(final int step) {
+		if (step < 0 || step >= table.length) {
+			throw new IllegalArgumentException("step is out of range");
+		}
+
+		return table[step];
+	}
+
+	/**
+	 * @return the number of precomputed colors in the ramp
+	 */
+	public int getStepCount() {
+		return table.length;
+	}
+
+	/**
+	 * Creates an evaluator which animates through this ramp. Use it with {@code
+	 * ValueAnimator.setEvaluator} on an animator with any two integer values, since the ramp
+	 * determines the colors.
+	 *
+	 * @return the evaluator, not null
+	 */
+	@RequiresApi(11) // For client
+	@TargetApi(11) // For lint
+	public Evaluator createEvaluator() {
+		return new Evaluator(this);
+	}
+
+	/**
+	 * Converts a fraction to the index of the nearest step.
+	 *
+	 * @param fraction
+	 * 		the point along the ramp, clamped between 0 and 1
+	 * @return the index of the nearest step
+	 */
+	private int getStepIndex(final float fraction) {
+		if (!(fraction > 0)) {
+			// Also catches NaN
+			return 0;
+		} else if (fraction >= 1) {
+			return table.length - 1;
+		} else {
+			return (int) (fraction * (table.length - 1) + 0.5f);
+		}
+	}
+
+	/**
+	 * Evaluates animation frames by looking up colors in a ramp. The start and end values supplied
+	 * by the animator are ignored, since the ramp determines the colors. Evaluating a frame does
+	 * not allocate memory, because the colors are boxed when the ramp is created. Requires API 11
+	 * since {@link TypeEvaluator} was introduced in Honeycomb.
+	 */
+	@RequiresApi(11) // For client
+	@TargetApi(11) // For lint
+	public static class Evaluator implements TypeEvaluator<Integer> {
+		/**
+		 * The ramp to look up colors in.
+		 */
+		private final ColorRamp ramp;
+
+		/**
+		 * Constructs a new Evaluator.
+		 *
+		 * @param ramp
+		 * 		the ramp to look up colors in, not null
+		 * @throws IllegalArgumentException
+		 * 		if {@code ramp} is null
+		 */
+		public Evaluator(final ColorRamp ramp) {
+			this.ramp = checkNotNull(ramp, "ramp cannot be null");
+		}
+
+		@Override
+		public Integer evaluate(final float fraction, final Integer startValue,
+				final Integer endValue) {
+			return ramp.boxedTable[ramp.getStepIndex(fraction)];
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.library.utilities;
+
+import android.graphics.Bitmap;
+import android.support.v4.util.LruCache;
+
+import com.matthewtamlin.android_utilities.library.helpers.BitmapEfficiencyHelper;
+
+import java.io.ByteArrayOutputStream;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A least-recently-used cache of encoded (compressed) image data. Encoded images are typically an
+ * order of magnitude smaller than their decoded pixels, so this cache can keep many more images
+ * in memory than a Bitmap cache with the same budget. Images are decoded on demand using {@link
+ * BitmapEfficiencyHelper#decodeByteArray(byte[], int, int)}. This class is thread safe.
+ */
+@SuppressWarnings("WeakerAccess") // Class is part of public API
+public class EncodedImageCache {
+	/**
+	 * Stores the encoded data, measured in bytes.
+	 */
+	private final LruCache<String, byte[]> cache;
+
+	/**
+	 * Constructs a new EncodedImageCache.
+	 *
+	 * @param maxSizeBytes
+	 * 		the maximum number of bytes the encoded data may occupy in total, greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code maxSizeBytes} is not greater than zero
+	 */
+	public EncodedImageCache(final int maxSizeBytes) {
+		if (maxSizeBytes <= 0) {
+			throw new IllegalArgumentException("maxSizeBytes must be greater than zero");
+		}
+
+		cache = new LruCache<String, byte[]>(maxSizeBytes) {
+			@Override
+			protected int sizeOf(final String key, final byte[] value) {
+				return value.length;
+			}
+		};
+	}
+
+	/**
+	 * Caches encoded image data. The array is stored by reference, so it must not be modified after
+	 * being passed to this method. Data which is larger than the entire budget is not cached.
+	 *
+	 * @param key
+	 * 		the key to cache the data under, not null
+	 * @param encodedData
+	 * 		the encoded image data, such as the contents of a JPEG file, not null
+	 * @return true if the data was cached, false otherwise
+	 * @throws IllegalArgumentException
+	 * 		if {@code key} or {@code encodedData} is null
+	 */
+	public boolean put(final String key, final byte[] encodedData) {
+		checkNotNull(key, "key cannot be null");
+		checkNotNull(encodedData, "encodedData cannot be null");
+
+		if (encodedData.length > cache.maxSize()) {
+			return false;
+		}
+
+		cache.put(key, encodedData);
+		return true;
+	}
+
+	/**
+	 * Encodes a Bitmap and caches the result. This is useful for keeping a downsampled version of a
+	 * large source image, rather than the source itself.
+	 *
+	 * @param key
+	 * 		the key to cache the data under, not null
+	 * @param bitmap
+	 * 		the Bitmap to encode, not null
+	 * @param format
+	 * 		the format to encode the Bitmap with, not null
+	 * @param quality
+	 * 		the quality hint passed to the encoder, between 0 and 100 (inclusive)
+	 * @return true if the data was encoded and cached, false otherwise
+	 * @throws IllegalArgumentException
+	 * 		if {@code key}, {@code bitmap} or {@code format} is null, or if {@code quality} is not
+	 * 		between 0 and 100 (inclusive)
+	 */
+	public boolean put(final String key, final Bitmap bitmap, final Bitmap.CompressFormat format,
+			final int quality) {
+		checkNotNull(key, "key cannot be null");
+		checkNotNull(bitmap, "bitmap cannot be null");
+		checkNotNull(format, "format cannot be null");
+
+		if (quality < 0 || quality > 100) {
+			throw new IllegalArgumentException("quality must be between 0 and 100 (inclusive)");
+		}
+
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+		return bitmap.compress(format, quality, stream) && put(key, stream.toByteArray());
+	}
+
+	/**
+	 * Returns the cached encoded data for a key. The returned array must not be modified.
+	 *
+	 * @param key
+	 * 		the key of the cached data, not null
+	 * @return the encoded data, null if there is no entry for {@code key}
+	 * @throws IllegalArgumentException
+	 * 		if {@code key} is null
+	 */
+	public byte[] getEncoded(final String key) {
+		checkNotNull(key, "key cannot be null");
+
+		return cache.get(key);
+	}
+
+	/**
+	 * Decodes the cached data for a key. The memory consumed by the decoded image is reduced by
+	 * matching the image dimensions to the desired dimensions as best as possible.
+	 *
+	 * @param key
+	 * 		the key of the cached data, not null
+	 * @param desWidth
+	 * 		the desired width of the decoded image, measured in pixels, not less than zero
+	 * @param desHeight
+	 * 		the desired height of the decoded image, measured in pixels, not less than zero
+	 * @return the decoded image, null if there is no entry for {@code key} or if the data could
+	 * not be decoded
+	 * @throws IllegalArgumentException
+	 * 		if {@code key} is null, or if either dimension is less than zero
+	 */
+	public Bitmap decode(final String key, final int desWidth, final int desHeight) {
+		checkNotNull(key, "key cannot be null");
+
+		if (desWidth < 0 || desHeight < 0) {
+			throw new IllegalArgumentException("both dimensions must be greater than zero");
+		}
+
+		final byte[] encodedData = cache.get(key);
+
+		if (encodedData == null) {
+			return null;
+		}
+
+		return BitmapEfficiencyHelper.decodeByteArray(encodedData, desWidth, desHeight);
+	}
+
+	/**
+	 * Removes the cached data for a key.
+	 *
+	 * @param key
+	 * 		the key of the cached data, not null
+	 * @return true if an entry was removed, false otherwise
+	 * @throws IllegalArgumentException
+	 * 		if {@code key} is null
+	 */
+	public boolean remove(final String key) {
+		checkNotNull(key, "key cannot be null");
+
+		return cache.remove(key) != null;
+	}
+
+	/**
+	 * Removes all cached data.
+	 */
+	public void clear() {
+		cache.evictAll();
+	}
+
+	/**
+	 * @return the number of bytes currently occupied by the encoded data
+	 */
+	public int getSizeBytes() {
+		return cache.size();
+	}
+
+	/**
+	 * @return the maximum number of bytes the encoded data may occupy in total
+	 */
+	public int getMaxSizeBytes() {
+		return cache.maxSize();
+	}
+
+	/**
+	 * @return the number of lookups which found an entry
+	 */
+	public int getHitCount() {
+		return cache.hitCount();
+	}
+
+	/**
+	 * @return the number of lookups which did not find an entry
+	 */
+	public int getMissCount() {
+		return cache.missCount();
+	}
+}
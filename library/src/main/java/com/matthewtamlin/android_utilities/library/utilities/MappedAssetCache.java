@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.library.utilities;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Provides read-only access to uncompressed assets by memory mapping their region of the APK.
+ * Mapped assets can be read in place, so large lookup tables and models do not need to be copied
+ * to storage or loaded onto the Java heap. Each asset is mapped once and the mapping is cached,
+ * so repeated lookups do not reopen the APK. Only assets which are stored uncompressed can be
+ * mapped (see the {@code noCompress} option of {@code aaptOptions}). This class is thread safe.
+ */
+@SuppressWarnings("WeakerAccess") // Class is part of public API
+public class MappedAssetCache {
+	/**
+	 * Used during debugging to identify this class.
+	 */
+	@SuppressWarnings("unused")
+	private static final String TAG = "[MappedAssetCache]";
+
+	/**
+	 * Provides access to the assets.
+	 */
+	private final AssetManager assetManager;
+
+	/**
+	 * The mapped assets, keyed by asset name.
+	 */
+	private final Map<String, MappedByteBuffer> mappings = new HashMap<>();
+
+	/**
+	 * Constructs a new MappedAssetCache.
+	 *
+	 * @param assetManager
+	 * 		provides access to the assets to map, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code assetManager} is null
+	 */
+	public MappedAssetCache(final AssetManager assetManager) {
+		this.assetManager = checkNotNull(assetManager, "assetManager cannot be null");
+	}
+
+	/**
+	 * Returns a read-only view of an uncompressed asset. The asset is mapped the first time it is
+	 * requested, and subsequent calls reuse the mapping. Each call returns a new view with its own
+	 * position and limit, so views can be used by different threads at the same time. The view is
+	 * positioned at the start of the asset and its capacity is the length of the asset.
+	 *
+	 * @param assetName
+	 * 		the name of the asset to map, not null
+	 * @return a read-only view of the asset, not null
+	 * @throws FileNotFoundException
+	 * 		if the asset does not exist, or if it is compressed and therefore cannot be mapped
+	 * @throws IOException
+	 * 		if a general IO based error occurs while mapping the asset
+	 * @throws IllegalArgumentException
+	 * 		if {@code assetName} is null
+	 */
+	public ByteBuffer map(final String assetName) throws IOException {
+		checkNotNull(assetName, "assetName cannot be null");
+
+		synchronized (mappings) {
+			MappedByteBuffer mapping = mappings.get(assetName);
+
+			if (mapping == null) {
+				mapping = mapAsset(assetName);
+				mappings.put(assetName, mapping);
+			}
+
+			return mapping.asReadOnlyBuffer();
+		}
+	}
+
+	/**
+	 * Determines whether an asset is currently mapped by this cache.
+	 *
+	 * @param assetName
+	 * 		the name of the asset, not null
+	 * @return true if the asset is mapped, false otherwise
+	 * @throws IllegalArgumentException
+	 * 		if {@code assetName} is null
+	 */
+	public boolean isMapped(final String assetName) {
+		checkNotNull(assetName, "assetName cannot be null");
+
+		synchronized (mappings) {
+			return mappings.containsKey(assetName);
+		}
+	}
+
+	/**
+	 * Removes the mapping of an asset from the cache. The memory is unmapped once the mapping and
+	 * all views returned by {@link #map(String)} have been garbage collected.
+	 *
+	 * @param assetName
+	 * 		the name of the asset, not null
+	 * @return true if a mapping was removed, false otherwise
+	 * @throws IllegalArgumentException
+	 * 		if {@code assetName} is null
+	 */
+	public boolean release(final String assetName) {
+		checkNotNull(assetName, "assetName cannot be null");
+
+		synchronized (mappings) {
+			return mappings.remove(assetName) != null;
+		}
+	}
+
+	/**
+	 * Removes all mappings from the cache.
+	 */
+	public void clear() {
+		synchronized (mappings) {
+			mappings.clear();
+		}
+	}
+
+	/**
+	 * @return the number of assets currently mapped by this cache
+	 */
+	public int size() {
+		synchronized (mappings) {
+			return mappings.size();
+		}
+	}
+
+	/**
+	 * Maps the region of the APK which contains an asset. The descriptor is closed once the
+	 * mapping has been created, since a mapping remains valid after its channel is closed.
+	 *
+	 * @param assetName
+	 * 		the name of the asset to map, not null
+	 * @return the mapping, not null
+	 * @throws IOException
+	 * 		if the asset cannot be opened as a file descriptor or cannot be mapped
+	 */
+	private MappedByteBuffer mapAsset(final String assetName) throws IOException {
+		final AssetFileDescriptor descriptor = assetManager.openFd(assetName);
+
+		try {
+			final FileChannel channel = new FileInputStream(descriptor.getFileDescriptor())
+					.getChannel();
+
+			return channel.map(FileChannel.MapMode.READ_ONLY, descriptor.getStartOffset(),
+					descriptor.getLength());
+		} finally {
+			// The stream shares the descriptor, so closing the descriptor is sufficient
+			try {
+				descriptor.close();
+			} catch (final IOException e) {
+				Log.w(TAG, "[Error closing descriptor for asset: " + assetName + "]", e);
+			}
+		}
+	}
+}
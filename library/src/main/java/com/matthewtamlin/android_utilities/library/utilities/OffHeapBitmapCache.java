@@ -0,0 +1,342 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.library.utilities;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A least-recently-used cache which stores the pixel data of decoded Bitmaps outside of the Java
+ * heap. On Android 3.0 to 7.1, Bitmap pixels are allocated on the Java heap, so keeping many
+ * decoded images alive increases garbage collection pauses and counts towards the heap limit.
+ * Direct ByteBuffers do not help, because Dalvik and ART back them with arrays on the Java heap.
+ * Instead, each entry is stored in a private copy-on-write mapping of an empty, unlinked temporary
+ * file. The file only provides the mapping with a size, and since it contains no data, reading it
+ * never touches storage. Writing the pixels copies each page into anonymous memory belonging to
+ * the process, and private pages are never written back to the file, so caching a Bitmap does
+ * not cause any storage writes. The pages are not counted towards the heap limit, however they
+ * count towards the memory use of the process in the same way as native allocations, and are
+ * only moved out of RAM if the device has swap (such as zram). The temporary files are created in
+ * {@code java.io.tmpdir}, which Android points at the app's cache directory. A mapping is released
+ * when its evicted entry is garbage collected, so native memory use may briefly exceed the budget
+ * after heavy eviction. This class is thread safe.
+ */
+@SuppressWarnings("WeakerAccess") // Class is part of public API
+public class OffHeapBitmapCache {
+	/**
+	 * Used during debugging to identify this class.
+	 */
+	@SuppressWarnings("unused")
+	private static final String TAG = "[OffHeapBitmapCache]";
+
+	/**
+	 * The maximum number of bytes the cached pixel data may occupy in total.
+	 */
+	private final int maxSizeBytes;
+
+	/**
+	 * The cached entries, in access order from least recently used to most recently used.
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * The number of bytes currently occupied by the cached pixel data.
+	 */
+	private int currentSizeBytes = 0;
+
+	/**
+	 * Constructs a new OffHeapBitmapCache.
+	 *
+	 * @param maxSizeBytes
+	 * 		the maximum number of bytes the cached pixel data may occupy in total, not less than
+	 * 		zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code maxSizeBytes} is less than zero
+	 */
+	public OffHeapBitmapCache(final int maxSizeBytes) {
+		if (maxSizeBytes < 0) {
+			throw new IllegalArgumentException("maxSizeBytes cannot be less than zero");
+		}
+
+		this.maxSizeBytes = maxSizeBytes;
+	}
+
+	/**
+	 * Copies the pixels of a Bitmap into the cache. The Bitmap itself is not retained, so the
+	 * caller is free to recycle it or return it to a pool afterwards. Bitmaps which are larger than
+	 * the entire budget, or which have no known configuration, are not cached.
+	 *
+	 * @param key
+	 * 		the key to cache the pixels under, not null
+	 * @param bitmap
+	 * 		the Bitmap to copy the pixels from, not null
+	 * @return true if the pixels were cached, false otherwise
+	 * @throws IllegalArgumentException
+	 * 		if {@code key} or {@code bitmap} is null
+	 */
+	public boolean put(final String key, final Bitmap bitmap) {
+		checkNotNull(key, "key cannot be null");
+		checkNotNull(bitmap, "bitmap cannot be null");
+
+		// The dimensions of a recycled Bitmap cannot be relied upon
+		if (bitmap.isRecycled() || bitmap.getConfig() == null) {
+			return false;
+		}
+
+		final int size = bitmap.getRowBytes() * bitmap.getHeight();
+
+		if (size > maxSizeBytes) {
+			return false;
+		}
+
+		// Copy outside of the lock since this is the expensive part
+		final ByteBuffer pixels;
+
+		try {
+			pixels = mapTemporaryFile(size);
+		} catch (final IOException e) {
+			Log.e(TAG, "[Error mapping " + size + " bytes for: " + key + "]", e);
+			return false;
+		}
+
+		bitmap.copyPixelsToBuffer(pixels);
+		pixels.rewind();
+		final Entry entry = new Entry(pixels, bitmap.getWidth(), bitmap.getHeight(),
+				bitmap.getConfig());
+
+		synchronized (this) {
+			final Entry previous = entries.put(key, entry);
+
+			if (previous != null) {
+				currentSizeBytes -= previous.getSizeBytes();
+			}
+
+			currentSizeBytes += size;
+			trimToSize(maxSizeBytes);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Restores the cached pixels for a key into a Bitmap. If a pool is supplied, the destination
+	 * Bitmap is obtained from it.
+	 *
+	 * @param key
+	 * 		the key of the cached pixels, not null
+	 * @param pool
+	 * 		the pool to obtain the destination Bitmap from, null to allocate a new Bitmap
+	 * @return a mutable Bitmap containing the cached pixels, null if there is no entry for {@code
+	 * key}
+	 * @throws IllegalArgumentException
+	 * 		if {@code key} is null
+	 */
+	public Bitmap get(final String key, final BitmapPool pool) {
+		checkNotNull(key, "key cannot be null");
+
+		final Entry entry;
+
+		synchronized (this) {
+			entry = entries.get(key);
+		}
+
+		if (entry == null) {
+			return null;
+		}
+
+		final Bitmap bitmap = pool == null ?
+				Bitmap.createBitmap(entry.width, entry.height, entry.config) :
+				pool.get(entry.width, entry.height, entry.config);
+
+		// Each restore uses its own view so that concurrent restores do not share a position
+		bitmap.copyPixelsFromBuffer(entry.pixels.duplicate());
+
+		return bitmap;
+	}
+
+	/**
+	 * Determines whether the cache contains pixels for a key, without affecting the access order.
+	 *
+	 * @param key
+	 * 		the key to check, not null
+	 * @return true if there is an entry for {@code key}, false otherwise
+	 * @throws IllegalArgumentException
+	 * 		if {@code key} is null
+	 */
+	public synchronized boolean contains(final String key) {
+		checkNotNull(key, "key cannot be null");
+
+		return entries.containsKey(key);
+	}
+
+	/**
+	 * Removes the cached pixels for a key.
+	 *
+	 * @param key
+	 * 		the key of the cached pixels, not null
+	 * @return true if an entry was removed, false otherwise
+	 * @throws IllegalArgumentException
+	 * 		if {@code key} is null
+	 */
+	public synchronized boolean remove(final String key) {
+		checkNotNull(key, "key cannot be null");
+
+		final Entry removed = entries.remove(key);
+
+		if (removed != null) {
+			currentSizeBytes -= removed.getSizeBytes();
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Removes all cached pixels.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		currentSizeBytes = 0;
+	}
+
+	/**
+	 * @return the number of bytes currently occupied by the cached pixel data
+	 */
+	public synchronized int getSizeBytes() {
+		return currentSizeBytes;
+	}
+
+	/**
+	 * @return the maximum number of bytes the cached pixel data may occupy in total
+	 */
+	public int getMaxSizeBytes() {
+		return maxSizeBytes;
+	}
+
+	/**
+	 * Creates a private memory mapping of a new, empty temporary file. The file is extended
+	 * without writing any data, so no storage is allocated for it, and it is unlinked before this
+	 * method returns. Changes to a private mapping are held in anonymous copy-on-write pages and
+	 * are never written back to the file.
+	 *
+	 * @param size
+	 * 		the size of the mapping, measured in bytes
+	 * @return a buffer backed by the mapping, not null
+	 * @throws IOException
+	 * 		if the file cannot be created or mapped
+	 */
+	private static ByteBuffer mapTemporaryFile(final int size) throws IOException {
+		final File file = File.createTempFile("OffHeapBitmapCache", null);
+
+		try {
+			final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+
+			try {
+				// Extending the file leaves a hole, so the pages read as zeros without any IO
+				randomAccessFile.setLength(size);
+
+				// The mapping remains valid after the file is closed and deleted
+				return randomAccessFile.getChannel().map(FileChannel.MapMode.PRIVATE, 0, size);
+			} finally {
+				randomAccessFile.close();
+			}
+		} finally {
+			if (!file.delete()) {
+				Log.w(TAG, "[Could not delete temporary file: " + file + "]");
+			}
+		}
+	}
+
+	/**
+	 * Evicts the least recently used entries until the cache occupies no more than the supplied
+	 * number of bytes. The caller must hold the lock on this object.
+	 *
+	 * @param sizeBytes
+	 * 		the maximum number of bytes the cache may occupy after trimming
+	 */
+	private void trimToSize(final int sizeBytes) {
+		final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+
+		while (currentSizeBytes > sizeBytes && iterator.hasNext()) {
+			currentSizeBytes -= iterator.next().getValue().getSizeBytes();
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * The pixel data and format of a single cached Bitmap.
+	 */
+	private static class Entry {
+		/**
+		 * The raw pixel data, stored in a private memory mapping outside of the Java heap.
+		 */
+		private final ByteBuffer pixels;
+
+		/**
+		 * The width of the Bitmap, measured in pixels.
+		 */
+		private final int width;
+
+		/**
+		 * The height of the Bitmap, measured in pixels.
+		 */
+		private final int height;
+
+		/**
+		 * The configuration of the Bitmap.
+		 */
+		private final Bitmap.Config config;
+
+		/**
+		 * Constructs a new Entry.
+		 *
+		 * @param pixels
+		 * 		the raw pixel data
+		 * @param width
+		 * 		the width of the Bitmap, measured in pixels
+		 * @param height
+		 * 		the height of the Bitmap, measured in pixels
+		 * @param config
+		 * 		the configuration of the Bitmap
+		 */
+		private Entry(final ByteBuffer pixels, final int width, final int height,
+				final Bitmap.Config config) {
+			this.pixels = pixels;
+			this.width = width;
+			this.height = height;
+			this.config = config;
+		}
+
+		/**
+		 * @return the number of bytes occupied by the pixel data
+		 */
+		private int getSizeBytes() {
+			return pixels.capacity();
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.testing;
+
+import android.content.res.AssetManager;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.android_utilities.library.utilities.AssetByteCache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit tests for the {@link AssetByteCache} class.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestAssetByteCache {
+	/**
+	 * A small asset which fits in the cache.
+	 */
+	private static final String SMALL_ASSET = "small test file.txt";
+
+	/**
+	 * A second small asset which fits in the cache.
+	 */
+	private static final String OTHER_SMALL_ASSET = "test directory/first.txt";
+
+	/**
+	 * The budget of the cache under test, measured in bytes.
+	 */
+	private static final int MAX_SIZE_BYTES = 64 * 1024;
+
+	/**
+	 * Provides access to the test assets.
+	 */
+	private AssetManager assets;
+
+	/**
+	 * The cache under test.
+	 */
+	private AssetByteCache cache;
+
+	/**
+	 * Initialises the testing environment.
+	 */
+	@Before
+	public void setup() {
+		// Use this context instead of the target context so that the test assets can be accessed
+		assets = InstrumentationRegistry.getContext().getAssets();
+		cache = new AssetByteCache(assets, MAX_SIZE_BYTES);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code maxSizeBytes} argument
+	 * of {@link AssetByteCache#AssetByteCache(AssetManager, int)} is not greater than zero.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArg_zeroMaxSize() {
+		new AssetByteCache(assets, 0);
+	}
+
+	/**
+	 * Test to verify that the {@link AssetByteCache#get(String)} method returns the contents of
+	 * the asset, and that the second lookup is served from the cache.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	public void testGet_validArgs() throws Exception {
+		final byte[] expected = readAsset(SMALL_ASSET);
+
+		final ByteBuffer first = cache.get(SMALL_ASSET);
+		final ByteBuffer second = cache.get(SMALL_ASSET);
+
+		assertThat("Buffer is not read-only.", first.isReadOnly());
+		assertThat("Buffer has the wrong contents.", Arrays.equals(toArray(first), expected));
+		assertThat("Buffer has the wrong contents.", Arrays.equals(toArray(second), expected));
+		assertThat("Wrong miss count.", cache.getMissCount(), is(1));
+		assertThat("Wrong hit count.", cache.getHitCount(), is(1));
+		assertThat("Wrong cache size.", cache.getSizeBytes(), is(expected.length));
+	}
+
+	/**
+	 * Test to verify that the {@link AssetByteCache#preload(String...)} method caches every asset
+	 * without affecting the hit and miss statistics.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	public void testPreload_validArgs() throws Exception {
+		final int cachedCount = cache.preload(SMALL_ASSET, OTHER_SMALL_ASSET);
+
+		assertThat("Wrong number of assets cached.", cachedCount, is(2));
+		assertThat("Asset was not cached.", cache.contains(SMALL_ASSET));
+		assertThat("Asset was not cached.", cache.contains(OTHER_SMALL_ASSET));
+		assertThat("Wrong miss count.", cache.getMissCount(), is(0));
+	}
+
+	/**
+	 * Test to verify that assets which are larger than the entire budget are returned but not
+	 * cached.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	public void testGet_assetLargerThanBudget() throws Exception {
+		final byte[] expected = readAsset(SMALL_ASSET);
+		final AssetByteCache tinyCache = new AssetByteCache(assets, 1);
+
+		assertThat("Buffer has the wrong contents.", Arrays.equals(toArray(tinyCache.get
+				(SMALL_ASSET)), expected));
+		assertThat("Asset was unexpectedly cached.", !tinyCache.contains(SMALL_ASSET));
+	}
+
+	/**
+	 * Test to verify that the {@link AssetByteCache#contains(String)} method reflects evictions and
+	 * removals, and does not affect the hit and miss statistics.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	public void testContains_tracksEvictionAndRemoval() throws Exception {
+		// Only one of the two assets fits in the budget at a time
+		final AssetByteCache smallCache = new AssetByteCache(assets, 40);
+
+		smallCache.get(SMALL_ASSET);
+		smallCache.get(OTHER_SMALL_ASSET);
+
+		assertThat("Evicted asset is still reported as cached.",
+				!smallCache.contains(SMALL_ASSET));
+		assertThat("Asset was not cached.", smallCache.contains(OTHER_SMALL_ASSET));
+		assertThat("Statistics were affected.", smallCache.getHitCount() == 0 &&
+				smallCache.getMissCount() == 2);
+
+		smallCache.remove(OTHER_SMALL_ASSET);
+
+		assertThat("Removed asset is still reported as cached.",
+				!smallCache.contains(OTHER_SMALL_ASSET));
+	}
+
+	/**
+	 * Copies the remaining contents of a buffer into an array.
+	 *
+	 * @param buffer
+	 * 		the buffer to copy
+	 * @return the remaining contents of the buffer
+	 */
+	private static byte[] toArray(final ByteBuffer buffer) {
+		final byte[] contents = new byte[buffer.remaining()];
+		buffer.get(contents);
+
+		return contents;
+	}
+
+	/**
+	 * Reads the entire contents of an asset.
+	 *
+	 * @param assetName
+	 * 		the name of the asset to read
+	 * @return the contents of the asset
+	 * @throws IOException
+	 * 		if the asset cannot be read
+	 */
+	private byte[] readAsset(final String assetName) throws IOException {
+		final InputStream stream = assets.open(assetName);
+		final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+
+		try {
+			final byte[] buffer = new byte[1024];
+			int numberOfBytesRead;
+
+			while ((numberOfBytesRead = stream.read(buffer)) != -1) {
+				contents.write(buffer, 0, numberOfBytesRead);
+			}
+		} finally {
+			stream.close();
+		}
+
+		return contents.toByteArray();
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.testing;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.android_utilities.library.utilities.AssetCopyJob;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit tests for the {@link AssetCopyJob} class. Jobs are run on the test thread so that the
+ * callbacks can be checked as soon as the job returns.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestAssetCopyJob {
+	/**
+	 * The assets to copy.
+	 */
+	private static final String[] ASSETS_TO_COPY = {"small test file.txt", "large test file.txt"};
+
+	/**
+	 * Runs submitted tasks on the calling thread.
+	 */
+	private static final Executor DIRECT_EXECUTOR = new Executor() {
+		@Override
+		public void execute(final Runnable command) {
+			command.run();
+		}
+	};
+
+	/**
+	 * Provides access to the test assets.
+	 */
+	private Context context;
+
+	/**
+	 * The directory to copy the assets to.
+	 */
+	private File outputDirectory;
+
+	/**
+	 * Records the callbacks delivered by the job under test.
+	 */
+	private RecordingListener listener;
+
+	/**
+	 * Initialises the testing environment, and verifies that all preconditions are satisfied before
+	 * testing begins.
+	 */
+	@Before
+	public void setup() {
+		// Use this context instead of the target context so that the test assets can be accessed
+		context = InstrumentationRegistry.getContext();
+		outputDirectory = InstrumentationRegistry.getTargetContext().getCacheDir();
+		listener = new RecordingListener();
+
+		for (final String assetName : ASSETS_TO_COPY) {
+			final File file = new File(outputDirectory, assetName);
+			assertThat("Precondition 1 failed. Could not delete existing file.", !file.exists() ||
+					file.delete());
+		}
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a job is started twice.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testStart_startedTwice() {
+		final AssetCopyJob job = new AssetCopyJob(context.getAssets(), outputDirectory,
+				ASSETS_TO_COPY);
+
+		job.start(DIRECT_EXECUTOR, null, listener);
+		job.start(DIRECT_EXECUTOR, null, listener);
+	}
+
+	/**
+	 * Test to verify that a job copies every asset, and that the final progress report accounts
+	 * for all of the data.
+	 */
+	@Test
+	public void testStart_copiesAllAssets() {
+		final AssetCopyJob job = new AssetCopyJob(context.getAssets(), outputDirectory,
+				ASSETS_TO_COPY);
+		job.start(DIRECT_EXECUTOR, null, listener);
+
+		assertThat("Job did not finish.", listener.finished);
+		assertThat("Wrong number of outcomes reported.", listener.outcomeCount, is(1));
+		assertThat("Final progress report is incomplete.", listener.lastBytesCopied, is(listener
+				.lastTotalBytes));
+
+		long totalLength = 0;
+
+		for (final String assetName : ASSETS_TO_COPY) {
+			final File file = new File(outputDirectory, assetName);
+			assertThat("An asset was not copied.", file.isFile());
+			totalLength += file.length();
+		}
+
+		assertThat("Wrong number of bytes reported.", listener.lastBytesCopied, is(totalLength));
+	}
+
+	/**
+	 * Test to verify that a cancelled job stops copying, reports the cancellation, and does not
+	 * leave a partial file behind.
+	 */
+	@Test
+	public void testStart_cancelledJob() {
+		final AssetCopyJob job = new AssetCopyJob(context.getAssets(), outputDirectory,
+				ASSETS_TO_COPY);
+		job.cancel();
+		job.start(DIRECT_EXECUTOR, null, listener);
+
+		assertThat("Cancellation was not reported.", listener.cancelled);
+		assertThat("Job unexpectedly finished.", !listener.finished);
+		assertThat("Partial file was not deleted.", !new File(outputDirectory,
+				ASSETS_TO_COPY[0]).exists());
+	}
+
+	/**
+	 * Test to verify that an unexpected exception thrown while the job is copying is reported as a
+	 * failure, and that no other outcome is reported.
+	 */
+	@Test
+	public void testStart_runtimeExceptionReportedAsFailure() {
+		final RuntimeException exception = new RuntimeException();
+
+		final RecordingListener throwingListener = new RecordingListener() {
+			@Override
+			public void onCopyProgress(final AssetCopyJob job, final long bytesCopied,
+					final long totalBytes) {
+				throw exception;
+			}
+		};
+
+		final AssetCopyJob job = new AssetCopyJob(context.getAssets(), outputDirectory,
+				ASSETS_TO_COPY);
+		job.setProgressIntervalMillis(0);
+		job.start(DIRECT_EXECUTOR, null, throwingListener);
+
+		assertThat("Failure was not reported.", throwingListener.failure != null);
+		assertThat("Wrong cause.", throwingListener.failure.getCause() == exception);
+		assertThat("Wrong number of outcomes reported.", throwingListener.outcomeCount, is(1));
+	}
+
+	/**
+	 * Records the callbacks delivered by a job.
+	 */
+	private static class RecordingListener implements AssetCopyJob.Listener {
+		/**
+		 * The number of bytes copied in the most recent progress report.
+		 */
+		private long lastBytesCopied = -1;
+
+		/**
+		 * The total number of bytes in the most recent progress report.
+		 */
+		private long lastTotalBytes = -1;
+
+		/**
+		 * Whether or not the job finished successfully.
+		 */
+		private boolean finished = false;
+
+		/**
+		 * Whether or not the job was cancelled.
+		 */
+		private boolean cancelled = false;
+
+		/**
+		 * The exception the job failed with, null if the job has not failed.
+		 */
+		private IOException failure = null;
+
+		/**
+		 * The number of outcomes (finished, failed or cancelled) which have been reported.
+		 */
+		private int outcomeCount = 0;
+
+		@Override
+		public void onCopyProgress(final AssetCopyJob job, final long bytesCopied,
+				final long totalBytes) {
+			lastBytesCopied = bytesCopied;
+			lastTotalBytes = totalBytes;
+		}
+
+		@Override
+		public void onCopyFinished(final AssetCopyJob job) {
+			finished = true;
+			outcomeCount++;
+		}
+
+		@Override
+		public void onCopyFailed(final AssetCopyJob job, final IOException failure) {
+			this.failure = failure;
+			outcomeCount++;
+		}
+
+		@Override
+		public void onCopyCancelled(final AssetCopyJob job) {
+			cancelled = true;
+			outcomeCount++;
+		}
+	}
+}
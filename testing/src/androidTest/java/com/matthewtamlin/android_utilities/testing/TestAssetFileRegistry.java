@@ -0,0 +1,225 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.testing;
+
+import android.content.res.AssetManager;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.android_utilities.library.utilities.AssetFileRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit tests for the {@link AssetFileRegistry} class.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestAssetFileRegistry {
+	/**
+	 * The asset to request from the registry.
+	 */
+	private static final String ASSET_NAME = "small test file.txt";
+
+	/**
+	 * A second asset, which is extracted at the same time as {@code ASSET_NAME}.
+	 */
+	private static final String OTHER_ASSET_NAME = "uncompressed test file.dat";
+
+	/**
+	 * The app version to use for the registry under test.
+	 */
+	private static final long APP_VERSION = 1;
+
+	/**
+	 * Provides access to the test assets.
+	 */
+	private AssetManager assets;
+
+	/**
+	 * The directory used by the registry under test.
+	 */
+	private File directory;
+
+	/**
+	 * Initialises the testing environment, and verifies that all preconditions are satisfied before
+	 * testing begins.
+	 *
+	 * @throws Exception
+	 * 		if the directory cannot be initialised, which will result in tests being aborted
+	 */
+	@Before
+	@SuppressWarnings("MissingPermission")
+	public void setup() throws Exception {
+		// Use this context instead of the target context so that the test assets can be accessed
+		assets = InstrumentationRegistry.getContext().getAssets();
+		directory = new File(InstrumentationRegistry.getTargetContext().getCacheDir(),
+				"asset file registry");
+
+		// Record a different version, so that each test starts by emptying the directory
+		new AssetFileRegistry(assets, directory, APP_VERSION - 1).getFile(ASSET_NAME);
+		assertThat("Precondition 1 failed. The directory was not created.", directory
+				.isDirectory());
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code directory} argument of
+	 * {@link AssetFileRegistry#AssetFileRegistry(AssetManager, File, long)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArg_nullDirectory() {
+		new AssetFileRegistry(assets, null, APP_VERSION);
+	}
+
+	/**
+	 * Test to verify that the {@link AssetFileRegistry#getFile(String)} method extracts the asset
+	 * on first access, and returns the same file on later accesses.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	@SuppressWarnings("MissingPermission")
+	public void testGetFile_extractsOnFirstAccess() throws Exception {
+		final AssetFileRegistry registry = new AssetFileRegistry(assets, directory, APP_VERSION);
+
+		assertThat("Asset was extracted before being requested.", !registry.isExtracted
+				(ASSET_NAME));
+
+		final File file = registry.getFile(ASSET_NAME);
+
+		assertThat("Asset was not extracted.", file.isFile());
+		assertThat("Asset has the wrong length.", file.length(), is((long) assets.open
+				(ASSET_NAME).available()));
+		assertThat("Registry did not record the extraction.", registry.isExtracted(ASSET_NAME));
+		assertThat("A different file was returned.", registry.getFile(ASSET_NAME), is(file));
+	}
+
+	/**
+	 * Test to verify that files extracted by an earlier registry with the same app version are
+	 * reused, and that files extracted by a different app version are replaced.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	@SuppressWarnings("MissingPermission")
+	public void testGetFile_reusesFilesAcrossRunsOfTheSameVersion() throws Exception {
+		final File file = new AssetFileRegistry(assets, directory, APP_VERSION).getFile
+				(ASSET_NAME);
+		final long originalLength = file.length();
+
+		// Mark the file so that re-extraction can be detected
+		appendByte(file);
+
+		new AssetFileRegistry(assets, directory, APP_VERSION).getFile(ASSET_NAME);
+		assertThat("File was re-extracted for the same version.", file.length(), is
+				(originalLength + 1));
+
+		new AssetFileRegistry(assets, directory, APP_VERSION + 1).getFile(ASSET_NAME);
+		assertThat("File was not re-extracted for a new version.", file.length(), is
+				(originalLength));
+	}
+
+	/**
+	 * Test to verify that the {@link AssetFileRegistry#getFile(String)} method extracts two
+	 * different assets correctly when they are requested at the same time.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	public void testGetFile_extractsDifferentAssetsConcurrently() throws Exception {
+		final AssetFileRegistry registry = new AssetFileRegistry(assets, directory, APP_VERSION);
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		final CountDownLatch startLatch = new CountDownLatch(1);
+
+		try {
+			final Future<File> file = executor.submit(createExtraction(registry, ASSET_NAME,
+					startLatch));
+			final Future<File> otherFile = executor.submit(createExtraction(registry,
+					OTHER_ASSET_NAME, startLatch));
+
+			// Release both extractions at once so that they overlap
+			startLatch.countDown();
+
+			assertThat("Asset has the wrong length.", file.get().length(), is((long) assets
+					.open(ASSET_NAME).available()));
+			assertThat("Other asset has the wrong length.", otherFile.get().length(), is((long)
+					assets.openFd(OTHER_ASSET_NAME).getLength()));
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat("Temporary files were left behind.", !new File(directory, ASSET_NAME + ".tmp")
+				.exists() && !new File(directory, OTHER_ASSET_NAME + ".tmp").exists());
+	}
+
+	/**
+	 * Creates a task which requests an asset from a registry once a latch is released.
+	 *
+	 * @param registry
+	 * 		the registry to request the asset from
+	 * @param assetName
+	 * 		the name of the asset to request
+	 * @param startLatch
+	 * 		the latch to wait for before requesting the asset
+	 * @return the task, which returns the file containing the asset
+	 */
+	private static Callable<File> createExtraction(final AssetFileRegistry registry,
+			final String assetName, final CountDownLatch startLatch) {
+		return new Callable<File>() {
+			@Override
+			@SuppressWarnings("MissingPermission")
+			public File call() throws Exception {
+				startLatch.await();
+				return registry.getFile(assetName);
+			}
+		};
+	}
+
+	/**
+	 * Appends a single byte to a file.
+	 *
+	 * @param file
+	 * 		the file to append to
+	 * @throws IOException
+	 * 		if the file cannot be written
+	 */
+	private static void appendByte(final File file) throws IOException {
+		final FileOutputStream stream = new FileOutputStream(file, true);
+
+		try {
+			stream.write(0);
+		} finally {
+			stream.close();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.testing;
+
+import android.content.res.AssetManager;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.android_utilities.library.utilities.AssetIndex;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Unit tests for the {@link AssetIndex} class. The index is generated from the instrumented test
+ * assets by the build script.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestAssetIndex {
+	/**
+	 * The index under test.
+	 */
+	private AssetIndex index;
+
+	/**
+	 * Provides access to the assets which were indexed.
+	 */
+	private AssetManager assets;
+
+	/**
+	 * Initialises the testing environment, and verifies that all preconditions are satisfied before
+	 * testing begins.
+	 *
+	 * @throws Exception
+	 * 		if the index cannot be loaded, which will result in tests being aborted
+	 */
+	@Before
+	public void setup() throws Exception {
+		// Use this context instead of the target context so that the test assets can be accessed
+		assets = InstrumentationRegistry.getContext().getAssets();
+		index = AssetIndex.load(assets);
+
+		assertThat("Precondition 1 failed. The index is null.", index, is(notNullValue()));
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code assetManager} argument
+	 * of {@link AssetIndex#load(AssetManager)} is null.
+	 *
+	 * @throws Exception
+	 * 		should not occur in this test, but declared by signature of called method
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testLoad_invalidArg_nullAssetManager() throws Exception {
+		AssetIndex.load(null);
+	}
+
+	/**
+	 * Test to verify that indexed files record the correct length.
+	 *
+	 * @throws Exception
+	 * 		if the asset cannot be opened
+	 */
+	@Test
+	public void testGet_lengthMatchesAsset() throws Exception {
+		final AssetIndex.Entry entry = index.get("small test file.txt");
+
+		assertThat("File was not indexed.", entry, is(notNullValue()));
+		assertThat("Length is incorrect.", entry.getLength(), is((long) assets.open(
+				"small test file.txt").available()));
+		assertThat("Directories should not be indexed as files.", index.get("test directory"),
+				is(nullValue()));
+	}
+
+	/**
+	 * Test to verify that directories are listed in the same manner as AssetManager.
+	 */
+	@Test
+	public void testList_matchesAssetManager() {
+		assertThat("Directory listing is incorrect.", index.list("test directory"), is(Arrays
+				.asList("first.txt", "nested")));
+		assertThat("Recursive listing is incorrect.", index.listFilesRecursively("test directory"),
+				is(Arrays.asList("test directory/first.txt", "test directory/nested/second.txt")));
+	}
+}
@@ -22,18 +22,26 @@ import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 
 import com.matthewtamlin.android_utilities.library.helpers.AssetsHelper;
+import com.matthewtamlin.android_utilities.library.utilities.AssetIndex;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
 
 /**
  * Unit tests for the {@link AssetsHelper} class.
@@ -50,6 +58,27 @@ public class TestAssetsHelper {
 	 */
 	private static final String[] ASSETS_TO_IGNORE = {"image.png"};
 
+	/**
+	 * An asset directory which contains files and a nested directory.
+	 */
+	private static final String ASSET_DIRECTORY_TO_COPY = "test directory";
+
+	/**
+	 * The paths of the files in {@code ASSET_DIRECTORY_TO_COPY}, relative to that directory.
+	 */
+	private static final String[] FILES_IN_ASSET_DIRECTORY = {"first.txt", "nested/second.txt"};
+
+	/**
+	 * A zip archive which contains the same files as {@code ASSET_DIRECTORY_TO_COPY}.
+	 */
+	private static final String ZIP_ASSET_TO_EXTRACT = "test archive.zip";
+
+	/**
+	 * An asset which is stored uncompressed in the APK, so that it can be opened as a file
+	 * descriptor. The build script excludes the .dat extension from compression.
+	 */
+	private static final String UNCOMPRESSED_ASSET = "uncompressed test file.dat";
+
 	/**
 	 * The directory to copy the assets to.
 	 */
@@ -86,6 +115,7 @@ public class TestAssetsHelper {
 		System.out.println(assets);
 		assetsUnderTest.addAll(Arrays.asList(ASSETS_TO_COPY));
 		assetsUnderTest.addAll(Arrays.asList(ASSETS_TO_IGNORE));
+		assetsUnderTest.add(UNCOMPRESSED_ASSET);
 		assertThat("Precondition 4 failed. The assets folder does not contain all assets needed " +
 				"for the test.", assets.containsAll(assetsUnderTest));
 
@@ -97,7 +127,7 @@ public class TestAssetsHelper {
 
 		// Check precondition 5: All files in the output directory are deleted
 		for (final File f : OUTPUT_DIR.listFiles()) {
-			final boolean fileDeletedSuccessfully = f.delete();
+			final boolean fileDeletedSuccessfully = deleteRecursively(f);
 			assertThat("Precondition 6 failed. Existing files in the output directory could not " +
 					"be deleted.", fileDeletedSuccessfully);
 		}
@@ -171,4 +201,427 @@ public class TestAssetsHelper {
 					(potentialOutputFile));
 		}
 	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code maxConcurrency} argument
+	 * of {@link AssetsHelper#copyAssetsToDirectoryInParallel(AssetManager, File, int, String...)}
+	 * is not greater than zero.
+	 *
+	 * @throws Exception
+	 * 		should not occur in this test, but declared by signature of called method
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("MissingPermission")
+	public void testCopyAssetsToDirectoryInParallel_invalidArg_zeroConcurrency() throws Exception {
+		AssetsHelper.copyAssetsToDirectoryInParallel(context.getAssets(), OUTPUT_DIR, 0,
+				ASSETS_TO_COPY);
+	}
+
+	/**
+	 * Test to verify that the {@link AssetsHelper#copyAssetsToDirectoryInParallel(AssetManager,
+	 * File, int, String...)} method copies every available asset and reports the assets which
+	 * could not be copied, rather than aborting on the first failure.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	@SuppressWarnings("MissingPermission")
+	public void testCopyAssetsToDirectoryInParallel_missingAssetIsReported() throws Exception {
+		final String missingAsset = "missing asset.txt";
+		final List<String> assetsToCopy = new ArrayList<>(Arrays.asList(ASSETS_TO_COPY));
+		assetsToCopy.add(0, missingAsset);
+
+		final AssetsHelper.CopyReport report = AssetsHelper.copyAssetsToDirectoryInParallel(
+				context.getAssets(), OUTPUT_DIR, 2, assetsToCopy.toArray(new String[0]));
+
+		assertThat("Report should not be successful.", !report.isSuccessful());
+		assertThat("Wrong number of results.", report.getResults().size() == assetsToCopy.size());
+		assertThat("Wrong number of failures.", report.getFailures().size() == 1);
+		assertThat("Wrong asset reported as failed.", report.getFailures().get(0)
+				.getAssetName().equals(missingAsset));
+
+		for (final String assetName : ASSETS_TO_COPY) {
+			assertThat("An asset was unexpectedly not copied.", new File(OUTPUT_DIR, assetName)
+					.isFile());
+		}
+	}
+
+	/**
+	 * Test to verify that the {@link AssetsHelper#syncAssetsToDirectory(AssetManager, File, long,
+	 * String...)} method only copies assets which are missing or changed, and deletes assets which
+	 * are no longer requested.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	@SuppressWarnings("MissingPermission")
+	public void testSyncAssetsToDirectory_onlyChangedAssetsAreCopied() throws Exception {
+		final AssetManager assets = context.getAssets();
+
+		// The first sync must copy everything
+		final AssetsHelper.CopyReport firstReport = AssetsHelper.syncAssetsToDirectory(assets,
+				OUTPUT_DIR, 1, ASSETS_TO_COPY);
+		assertThat("Not all assets were copied.", firstReport.getResults().size() ==
+				ASSETS_TO_COPY.length);
+
+		// Nothing has changed, so nothing should be copied
+		final AssetsHelper.CopyReport secondReport = AssetsHelper.syncAssetsToDirectory(assets,
+				OUTPUT_DIR, 1, ASSETS_TO_COPY);
+		assertThat("Unchanged assets were copied.", secondReport.getResults().isEmpty());
+
+		// The version changed but the contents did not, so nothing should be copied
+		final AssetsHelper.CopyReport thirdReport = AssetsHelper.syncAssetsToDirectory(assets,
+				OUTPUT_DIR, 2, ASSETS_TO_COPY);
+		assertThat("Unchanged assets were copied.", thirdReport.getResults().isEmpty());
+
+		// A deleted target file must be restored
+		final File deletedFile = new File(OUTPUT_DIR, ASSETS_TO_COPY[0]);
+		assertThat("Precondition failed. Target file not deleted.", deletedFile.delete());
+		final AssetsHelper.CopyReport fourthReport = AssetsHelper.syncAssetsToDirectory(assets,
+				OUTPUT_DIR, 2, ASSETS_TO_COPY);
+		assertThat("Deleted asset was not restored.", fourthReport.getResults().size() == 1);
+		assertThat("Deleted asset was not restored.", deletedFile.isFile());
+
+		// Assets which are no longer requested must be deleted
+		AssetsHelper.syncAssetsToDirectory(assets, OUTPUT_DIR, 2, ASSETS_TO_COPY[1]);
+		assertThat("Stale asset was not deleted.", !deletedFile.exists());
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code assetDirectory} argument
+	 * of {@link AssetsHelper#copyAssetDirectoryToDirectory(AssetManager, String, File)} is null.
+	 *
+	 * @throws Exception
+	 * 		should not occur in this test, but declared by signature of called method
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("MissingPermission")
+	public void testCopyAssetDirectoryToDirectory_invalidArg_nullAssetDirectory() throws
+			Exception {
+		AssetsHelper.copyAssetDirectoryToDirectory(context.getAssets(), null, OUTPUT_DIR);
+	}
+
+	/**
+	 * Test to verify that the {@link AssetsHelper#copyAssetDirectoryToDirectory(AssetManager,
+	 * String, File)} method copies every file in the asset directory, including the files in
+	 * nested directories.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	@SuppressWarnings("MissingPermission")
+	public void testCopyAssetDirectoryToDirectory_validArgs() throws Exception {
+		final AssetsHelper.CopyReport report = AssetsHelper.copyAssetDirectoryToDirectory(
+				context.getAssets(), ASSET_DIRECTORY_TO_COPY, OUTPUT_DIR);
+
+		assertThat("Wrong number of files copied.", report.getResults().size() ==
+				FILES_IN_ASSET_DIRECTORY.length);
+
+		for (final String relativePath : FILES_IN_ASSET_DIRECTORY) {
+			assertThat("A file was unexpectedly not copied.", new File(OUTPUT_DIR, relativePath)
+					.isFile());
+		}
+	}
+
+	/**
+	 * Test to verify that the {@link AssetsHelper#copyAssetsToDirectoryWithChecksums(AssetManager,
+	 * File, String...)} method returns the same checksums as those recorded in the asset index.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	@SuppressWarnings("MissingPermission")
+	public void testCopyAssetsToDirectoryWithChecksums_checksumsMatchIndex() throws Exception {
+		final AssetIndex index = AssetIndex.load(context.getAssets());
+		final AssetsHelper.CopyReport report = AssetsHelper.copyAssetsToDirectoryWithChecksums(
+				context.getAssets(), OUTPUT_DIR, ASSETS_TO_COPY);
+
+		assertThat("Wrong number of results.", report.getResults().size() ==
+				ASSETS_TO_COPY.length);
+
+		for (final AssetsHelper.CopyResult result : report.getResults()) {
+			final AssetIndex.Entry entry = index.get(result.getAssetName());
+
+			assertThat("Checksum was not computed.", result.hasChecksum());
+			assertThat("Checksum does not match the index.", result.matches(entry.getLength(),
+					entry.getChecksum()));
+		}
+	}
+
+	/**
+	 * Test to verify that the {@link AssetsHelper#copyAssetsToDirectoryAtomically(AssetManager,
+	 * File, String...)} method copies every asset with the correct contents, and leaves no
+	 * temporary files behind.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	@SuppressWarnings("MissingPermission")
+	public void testCopyAssetsToDirectoryAtomically_validArgs() throws Exception {
+		final AssetsHelper.CopyReport report = AssetsHelper.copyAssetsToDirectoryAtomically(
+				context.getAssets(), OUTPUT_DIR, ASSETS_TO_COPY);
+
+		assertThat("Report should be successful.", report.isSuccessful());
+		assertThat("Wrong number of files in the output directory.", OUTPUT_DIR.listFiles()
+				.length == ASSETS_TO_COPY.length);
+
+		final File expectedFile = new File(context.getCacheDir(), "expected");
+
+		for (final String assetName : ASSETS_TO_COPY) {
+			copyUsingStream(context.getAssets(), assetName, expectedFile);
+
+			assertThat("An asset was copied incorrectly.", Arrays.equals(readFile(new File
+					(OUTPUT_DIR, assetName)), readFile(expectedFile)));
+		}
+	}
+
+	/**
+	 * Test to verify that the {@link AssetsHelper#copyAssetsToDirectoryAtomically(AssetManager,
+	 * File, String...)} method leaves existing files untouched when one of the assets cannot be
+	 * copied.
+	 *
+	 * @throws Exception
+	 * 		should not occur in this test, but declared by signature of called method
+	 */
+	@Test
+	@SuppressWarnings("MissingPermission")
+	public void testCopyAssetsToDirectoryAtomically_missingAssetModifiesNothing() throws
+			Exception {
+		final File existingFile = new File(OUTPUT_DIR, ASSETS_TO_COPY[0]);
+		final FileOutputStream stream = new FileOutputStream(existingFile);
+
+		try {
+			stream.write(1);
+		} finally {
+			stream.close();
+		}
+
+		try {
+			AssetsHelper.copyAssetsToDirectoryAtomically(context.getAssets(), OUTPUT_DIR,
+					ASSETS_TO_COPY[0], "missing asset.txt");
+			fail("Copying a missing asset should fail.");
+		} catch (final IOException e) {
+			// Expected
+		}
+
+		assertThat("Existing file was modified.", existingFile.length() == 1);
+		assertThat("Temporary files were left behind.", OUTPUT_DIR.listFiles().length == 1);
+	}
+
+	/**
+	 * Test to verify that the {@link AssetsHelper#copyAssetsToDirectoryAtomically(AssetManager,
+	 * File, String...)} method deletes the temporary file of an asset which was left behind by an
+	 * earlier copy, and leaves other temporary files in the directory untouched.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	@SuppressWarnings("MissingPermission")
+	public void testCopyAssetsToDirectoryAtomically_deletesOnlyOwnStaleTempFiles() throws
+			Exception {
+		final File staleFile = new File(OUTPUT_DIR, ASSETS_TO_COPY[0] + ".tmp");
+		final File unrelatedFile = new File(OUTPUT_DIR, "unrelated file.tmp");
+		assertThat("Stale file not created.", staleFile.createNewFile());
+		assertThat("Unrelated file not created.", unrelatedFile.createNewFile());
+
+		AssetsHelper.copyAssetsToDirectoryAtomically(context.getAssets(), OUTPUT_DIR,
+				ASSETS_TO_COPY);
+
+		assertThat("Stale temporary file was not deleted.", !staleFile.exists());
+		assertThat("Unrelated file was deleted.", unrelatedFile.exists());
+		assertThat("Wrong number of files in the output directory.", OUTPUT_DIR.listFiles()
+				.length == ASSETS_TO_COPY.length + 1);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code zipAssetName} argument of
+	 * {@link AssetsHelper#extractZipAssetToDirectory(AssetManager, String, File)} is null.
+	 *
+	 * @throws Exception
+	 * 		should not occur in this test, but declared by signature of called method
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("MissingPermission")
+	public void testExtractZipAssetToDirectory_invalidArg_nullZipAssetName() throws Exception {
+		AssetsHelper.extractZipAssetToDirectory(context.getAssets(), null, OUTPUT_DIR);
+	}
+
+	/**
+	 * Test to verify that the {@link AssetsHelper#extractZipAssetToDirectory(AssetManager, String,
+	 * File)} method extracts every entry in the archive with the correct contents.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	@SuppressWarnings("MissingPermission")
+	public void testExtractZipAssetToDirectory_validArgs() throws Exception {
+		final AssetsHelper.CopyReport report = AssetsHelper.extractZipAssetToDirectory(
+				context.getAssets(), ZIP_ASSET_TO_EXTRACT, OUTPUT_DIR);
+
+		checkExtractedArchive(report);
+	}
+
+	/**
+	 * Test to verify that the {@link AssetsHelper#extractZipAssetToDirectory(AssetManager, String,
+	 * File, int)} method extracts every entry in the archive with the correct contents.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	@SuppressWarnings("MissingPermission")
+	public void testExtractZipAssetToDirectory_parallel() throws Exception {
+		final AssetsHelper.CopyReport report = AssetsHelper.extractZipAssetToDirectory(
+				context.getAssets(), ZIP_ASSET_TO_EXTRACT, OUTPUT_DIR,
+				AssetsHelper.DEFAULT_COPY_CONCURRENCY);
+
+		checkExtractedArchive(report);
+	}
+
+	/**
+	 * Test to verify that the {@link AssetsHelper#copyAssetsToDirectory(AssetManager, File,
+	 * String...)} method copies the same data as the original stream implementation, for both an
+	 * uncompressed asset which is transferred through a file descriptor and a compressed asset
+	 * which is streamed. The helper always transfers assets which can be opened with {@link
+	 * AssetManager#openFd(String)}, so the test checks which assets can be opened to ensure that
+	 * both paths are taken.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	@SuppressWarnings("MissingPermission")
+	public void testCopyAssetsToDirectory_matchesStreamCopy() throws Exception {
+		final String compressedAsset = ASSETS_TO_COPY[0];
+
+		context.getAssets().openFd(UNCOMPRESSED_ASSET).close();
+
+		try {
+			context.getAssets().openFd(compressedAsset).close();
+			fail("Compressed asset was opened as a file descriptor.");
+		} catch (final FileNotFoundException e) {
+			// Expected, since the asset must be streamed
+		}
+
+		final File streamOutputDir = new File(OUTPUT_DIR, "stream");
+		final File helperOutputDir = new File(OUTPUT_DIR, "helper");
+		assertThat("Output directory not created.", streamOutputDir.mkdir());
+		assertThat("Output directory not created.", helperOutputDir.mkdir());
+
+		AssetsHelper.copyAssetsToDirectory(context.getAssets(), helperOutputDir,
+				UNCOMPRESSED_ASSET, compressedAsset);
+
+		for (final String assetName : new String[]{UNCOMPRESSED_ASSET, compressedAsset}) {
+			copyUsingStream(context.getAssets(), assetName, new File(streamOutputDir, assetName));
+
+			assertThat("Copied data does not match.", Arrays.equals(
+					readFile(new File(streamOutputDir, assetName)),
+					readFile(new File(helperOutputDir, assetName))));
+		}
+	}
+
+	/**
+	 * Checks that the test archive was extracted to the output directory, and that each extracted
+	 * file matches the corresponding file in {@code ASSET_DIRECTORY_TO_COPY}.
+	 *
+	 * @param report
+	 * 		the report returned by the extraction
+	 * @throws IOException
+	 * 		if a file cannot be read
+	 */
+	private void checkExtractedArchive(final AssetsHelper.CopyReport report) throws IOException {
+		assertThat("Wrong number of entries extracted.", report.getResults().size() ==
+				FILES_IN_ASSET_DIRECTORY.length);
+		assertThat("Extraction was unexpectedly unsuccessful.", report.isSuccessful());
+
+		for (final String relativePath : FILES_IN_ASSET_DIRECTORY) {
+			final File extractedFile = new File(OUTPUT_DIR, relativePath);
+			assertThat("An entry was unexpectedly not extracted.", extractedFile.isFile());
+
+			final File expectedFile = new File(OUTPUT_DIR, "expected");
+			copyUsingStream(context.getAssets(), ASSET_DIRECTORY_TO_COPY + "/" + relativePath,
+					expectedFile);
+
+			assertThat("An extracted entry has the wrong contents.", Arrays.equals(readFile
+					(extractedFile), readFile(expectedFile)));
+		}
+	}
+
+	/**
+	 * Copies an asset using the original 1 KB stream loop, for use as a reference.
+	 *
+	 * @param assetManager
+	 * 		provides access to the asset
+	 * @param assetName
+	 * 		the name of the asset to copy
+	 * @param targetFile
+	 * 		the file to copy the asset to
+	 * @throws IOException
+	 * 		if the asset cannot be copied
+	 */
+	private static void copyUsingStream(final AssetManager assetManager, final String assetName,
+			final File targetFile) throws IOException {
+		final InputStream source = assetManager.open(assetName);
+		final OutputStream target = new FileOutputStream(targetFile);
+
+		try {
+			final byte[] buffer = new byte[1024];
+			int numberOfBytesRead;
+
+			while ((numberOfBytesRead = source.read(buffer)) != -1) {
+				target.write(buffer, 0, numberOfBytesRead);
+			}
+		} finally {
+			source.close();
+			target.close();
+		}
+	}
+
+	/**
+	 * Deletes a file, or a directory and all of its contents.
+	 *
+	 * @param file
+	 * 		the file or directory to delete
+	 * @return true if the file or directory was deleted, false otherwise
+	 */
+	private static boolean deleteRecursively(final File file) {
+		final File[] children = file.listFiles();
+
+		if (children != null) {
+			for (final File child : children) {
+				deleteRecursively(child);
+			}
+		}
+
+		return file.delete();
+	}
+
+	/**
+	 * Reads the entire contents of a file.
+	 *
+	 * @param file
+	 * 		the file to read
+	 * @return the contents of the file
+	 * @throws IOException
+	 * 		if the file cannot be read
+	 */
+	private static byte[] readFile(final File file) throws IOException {
+		final byte[] contents = new byte[(int) file.length()];
+		final DataInputStream stream = new DataInputStream(new FileInputStream(file));
+
+		try {
+			stream.readFully(contents);
+		} finally {
+			stream.close();
+		}
+
+		return contents;
+	}
 }
\ No newline at end of file
@@ -16,14 +16,18 @@
 
 package com.matthewtamlin.android_utilities.testing;
 
+import android.content.ContentResolver;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 
 import com.matthewtamlin.android_utilities.library.helpers.BitmapEfficiencyHelper;
+import com.matthewtamlin.android_utilities.library.utilities.BitmapPool;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -31,6 +35,10 @@ import org.junit.runner.RunWith;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 
 import static com.matthewtamlin.android_utilities.library.helpers.BitmapEfficiencyHelper.decodeResource;
 import static com.matthewtamlin.android_utilities.testing.test.R.raw.image;
@@ -302,4 +310,280 @@ public class TestBitmapEfficiencyHelper {
 	public void testDecodeFile_invalidArg_negativeHeight() {
 		BitmapEfficiencyHelper.decodeFile(new File(""), 10, -1);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code fileDescriptor} argument
+	 * of {@link BitmapEfficiencyHelper#decodeFileDescriptor(FileDescriptor, int, int)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeFileDescriptor_invalidArg_nullFileDescriptor() {
+		BitmapEfficiencyHelper.decodeFileDescriptor((FileDescriptor) null, 10, 10);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code desWidth} argument of
+	 * {@link BitmapEfficiencyHelper#decodeFileDescriptor(FileDescriptor, int, int)} is negative.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeFileDescriptor_invalidArg_negativeWidth() {
+		BitmapEfficiencyHelper.decodeFileDescriptor(new FileDescriptor(), -1, 10);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code desHeight} argument of
+	 * {@link BitmapEfficiencyHelper#decodeFileDescriptor(FileDescriptor, int, int)} is negative.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeFileDescriptor_invalidArg_negativeHeight() {
+		BitmapEfficiencyHelper.decodeFileDescriptor(new FileDescriptor(), 10, -1);
+	}
+
+	/**
+	 * Test to verify that the {@link BitmapEfficiencyHelper#decodeFileDescriptor(FileDescriptor,
+	 * int, int)} method functions correctly when provided with valid arguments.
+	 *
+	 * @throws Exception
+	 * 		if the test image cannot be written to or read from storage
+	 */
+	@Test
+	public void testDecodeFileDescriptor_validArgs() throws Exception {
+		final File file = new File(context.getCacheDir(), "TestBitmapEfficiencyHelper.png");
+		final FileOutputStream outputStream = new FileOutputStream(file);
+
+		try {
+			fullSizeImage.compress(Bitmap.CompressFormat.PNG, 100, outputStream);
+		} finally {
+			outputStream.close();
+		}
+
+		final int testWidth = fullSizeImage.getWidth() / 2;
+		final int testHeight = fullSizeImage.getHeight() / 2;
+		final FileInputStream inputStream = new FileInputStream(file);
+		final Bitmap decodedImage;
+
+		try {
+			decodedImage = BitmapEfficiencyHelper.decodeFileDescriptor(inputStream.getFD(),
+					testWidth, testHeight);
+		} finally {
+			inputStream.close();
+		}
+
+		assertThat("Decoded image should not be null.", decodedImage, is(notNullValue()));
+		assertThat("Width was not reduced.", decodedImage.getWidth(), is(lessThan(fullSizeImage
+				.getWidth())));
+		assertThat("Height was not reduced.", decodedImage.getHeight(), is(lessThan(fullSizeImage
+				.getHeight())));
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code contentResolver}
+	 * argument of {@link BitmapEfficiencyHelper#decodeContentUri(ContentResolver, Uri, int, int)}
+	 * is null.
+	 *
+	 * @throws Exception
+	 * 		should not occur in this test, but declared by signature of called method
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeContentUri_invalidArg_nullContentResolver() throws Exception {
+		BitmapEfficiencyHelper.decodeContentUri(null, Uri.EMPTY, 10, 10);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code uri} argument of {@link
+	 * BitmapEfficiencyHelper#decodeContentUri(ContentResolver, Uri, int, int)} is null.
+	 *
+	 * @throws Exception
+	 * 		should not occur in this test, but declared by signature of called method
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeContentUri_invalidArg_nullUri() throws Exception {
+		BitmapEfficiencyHelper.decodeContentUri(context.getContentResolver(), null, 10, 10);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code parcelFileDescriptor}
+	 * argument of {@link BitmapEfficiencyHelper#decodeFileDescriptor(ParcelFileDescriptor, int,
+	 * int)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeParcelFileDescriptor_invalidArg_nullParcelFileDescriptor() {
+		BitmapEfficiencyHelper.decodeFileDescriptor((ParcelFileDescriptor) null, 10, 10);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the descriptor passed to {@link
+	 * BitmapEfficiencyHelper#decodeFileDescriptor(ParcelFileDescriptor, int, int)} is not
+	 * seekable.
+	 *
+	 * @throws Exception
+	 * 		if the pipe cannot be created or closed
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeParcelFileDescriptor_invalidArg_pipe() throws Exception {
+		final ParcelFileDescriptor[] pipe = ParcelFileDescriptor.createPipe();
+
+		try {
+			BitmapEfficiencyHelper.decodeFileDescriptor(pipe[0], 10, 10);
+		} finally {
+			pipe[0].close();
+			pipe[1].close();
+		}
+	}
+
+	/**
+	 * Test to verify that the {@link BitmapEfficiencyHelper#decodeFileDescriptor(
+	 * ParcelFileDescriptor, int, int)} method functions correctly when provided with valid
+	 * arguments.
+	 *
+	 * @throws Exception
+	 * 		if the test image cannot be written to or read from storage
+	 */
+	@Test
+	public void testDecodeParcelFileDescriptor_validArgs() throws Exception {
+		final File file = writeTestImage();
+		final ParcelFileDescriptor descriptor = ParcelFileDescriptor.open(file,
+				ParcelFileDescriptor.MODE_READ_ONLY);
+		final Bitmap decodedImage;
+
+		try {
+			decodedImage = BitmapEfficiencyHelper.decodeFileDescriptor(descriptor,
+					fullSizeImage.getWidth() / 2, fullSizeImage.getHeight() / 2);
+		} finally {
+			descriptor.close();
+		}
+
+		checkReducedImage(decodedImage);
+	}
+
+	/**
+	 * Test to verify that the {@link BitmapEfficiencyHelper#decodeContentUri(ContentResolver, Uri,
+	 * int, int)} method functions correctly when the provider returns a seekable file descriptor.
+	 *
+	 * @throws Exception
+	 * 		if the test image cannot be written to or read from storage
+	 */
+	@Test
+	public void testDecodeContentUri_validArgs_fileDescriptor() throws Exception {
+		final File file = writeTestImage();
+
+		final Bitmap decodedImage = BitmapEfficiencyHelper.decodeContentUri(context
+				.getContentResolver(), TestImageProvider.createFileUri(file.getName()),
+				fullSizeImage.getWidth() / 2, fullSizeImage.getHeight() / 2);
+
+		checkReducedImage(decodedImage);
+	}
+
+	/**
+	 * Test to verify that the {@link BitmapEfficiencyHelper#decodeContentUri(ContentResolver, Uri,
+	 * int, int)} method functions correctly when the provider returns a pipe, which cannot be
+	 * rewound between the decoding passes.
+	 *
+	 * @throws Exception
+	 * 		if the test image cannot be written to or read from storage
+	 */
+	@Test
+	public void testDecodeContentUri_validArgs_pipe() throws Exception {
+		final File file = writeTestImage();
+
+		final Bitmap decodedImage = BitmapEfficiencyHelper.decodeContentUri(context
+				.getContentResolver(), TestImageProvider.createPipeUri(file.getName()),
+				fullSizeImage.getWidth() / 2, fullSizeImage.getHeight() / 2);
+
+		checkReducedImage(decodedImage);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code file} argument of {@link
+	 * BitmapEfficiencyHelper#decodeFileUsingOrientation(File, int, int, BitmapPool)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeFileUsingOrientation_invalidArg_nullFile() {
+		BitmapEfficiencyHelper.decodeFileUsingOrientation(null, 10, 10, null);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code desWidth} argument of
+	 * {@link BitmapEfficiencyHelper#decodeFileUsingOrientation(File, int, int, BitmapPool)} is
+	 * negative.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeFileUsingOrientation_invalidArg_negativeWidth() {
+		BitmapEfficiencyHelper.decodeFileUsingOrientation(new File(""), -1, 10, null);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code desHeight} argument of
+	 * {@link BitmapEfficiencyHelper#decodeFileUsingOrientation(File, int, int, BitmapPool)} is
+	 * negative.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeFileUsingOrientation_invalidArg_negativeHeight() {
+		BitmapEfficiencyHelper.decodeFileUsingOrientation(new File(""), 10, -1, null);
+	}
+
+	/**
+	 * Test to verify that the {@link BitmapEfficiencyHelper#decodeFileUsingOrientation(File, int,
+	 * int, BitmapPool)} method functions correctly when provided with valid arguments. This test
+	 * considers an image without EXIF data, which should be decoded without rotation.
+	 *
+	 * @throws Exception
+	 * 		if the test image cannot be written to storage
+	 */
+	@Test
+	public void testDecodeFileUsingOrientation_validArgs_noExifData() throws Exception {
+		final File file = new File(context.getCacheDir(), "TestBitmapEfficiencyHelper.png");
+		final FileOutputStream stream = new FileOutputStream(file);
+
+		try {
+			fullSizeImage.compress(Bitmap.CompressFormat.PNG, 100, stream);
+		} finally {
+			stream.close();
+		}
+
+		final int testWidth = fullSizeImage.getWidth() / 2;
+		final int testHeight = fullSizeImage.getHeight() / 2;
+
+		final Bitmap decodedImage = BitmapEfficiencyHelper.decodeFileUsingOrientation(file,
+				testWidth, testHeight, new BitmapPool(1024 * 1024));
+
+		assertThat("Decoded image should not be null.", decodedImage, is(notNullValue()));
+		assertThat("Width was not reduced.", decodedImage.getWidth(), is(lessThan(fullSizeImage
+				.getWidth())));
+		assertThat("Height was not reduced.", decodedImage.getHeight(), is(lessThan(fullSizeImage
+				.getHeight())));
+	}
+
+	/**
+	 * Writes the full size test image to a PNG file in the cache directory.
+	 *
+	 * @return the file, not null
+	 * @throws IOException
+	 * 		if the file cannot be written
+	 */
+	private File writeTestImage() throws IOException {
+		final File file = new File(context.getCacheDir(), "TestBitmapEfficiencyHelper.png");
+		final FileOutputStream stream = new FileOutputStream(file);
+
+		try {
+			fullSizeImage.compress(Bitmap.CompressFormat.PNG, 100, stream);
+		} finally {
+			stream.close();
+		}
+
+		return file;
+	}
+
+	/**
+	 * Checks that an image was decoded and sub-sampled to less than the full size.
+	 *
+	 * @param decodedImage
+	 * 		the image to check
+	 */
+	private void checkReducedImage(final Bitmap decodedImage) {
+		assertThat("Decoded image should not be null.", decodedImage, is(notNullValue()));
+		assertThat("Width was not reduced.", decodedImage.getWidth(), is(lessThan(fullSizeImage
+				.getWidth())));
+		assertThat("Height was not reduced.", decodedImage.getHeight(), is(lessThan(fullSizeImage
+				.getHeight())));
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.testing;
+
+import android.graphics.Bitmap;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.android_utilities.library.utilities.BitmapEncoder;
+import com.matthewtamlin.android_utilities.library.utilities.UiThreadUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Unit tests for the {@link BitmapEncoder} class.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestBitmapEncoder {
+	/**
+	 * The width and height of the test image, measured in pixels.
+	 */
+	private static final int IMAGE_SIZE = 256;
+
+	/**
+	 * The name of the thread which performs asynchronous encodes.
+	 */
+	private static final String ENCODER_THREAD_NAME = "TestBitmapEncoder";
+
+	/**
+	 * The maximum number of encodes a binary search over qualities 0 to 100 can perform.
+	 */
+	private static final int MAX_SEARCH_ATTEMPTS = 7;
+
+	/**
+	 * The maximum time to wait for an asynchronous encode, measured in seconds.
+	 */
+	private static final int TIMEOUT_SECONDS = 10;
+
+	/**
+	 * Executes asynchronous encodes on a single named thread.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * The encoder under test.
+	 */
+	private BitmapEncoder encoder;
+
+	/**
+	 * An image filled with noise, so that the encoded size depends strongly on the quality.
+	 */
+	private Bitmap image;
+
+	/**
+	 * Initialises the testing environment.
+	 */
+	@Before
+	public void setup() {
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				return new Thread(runnable, ENCODER_THREAD_NAME);
+			}
+		});
+
+		encoder = new BitmapEncoder(executor, null);
+
+		final Random random = new Random(42);
+		final int[] pixels = new int[IMAGE_SIZE * IMAGE_SIZE];
+
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = random.nextInt() | 0xFF000000;
+		}
+
+		image = Bitmap.createBitmap(pixels, IMAGE_SIZE, IMAGE_SIZE, Bitmap.Config.ARGB_8888);
+	}
+
+	/**
+	 * Releases the resources used by the tests.
+	 */
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code executor} argument of
+	 * {@link BitmapEncoder#BitmapEncoder(java.util.concurrent.Executor, UiThreadUtil)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArg_nullExecutor() {
+		new BitmapEncoder(null, null);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code bitmap} argument of
+	 * {@link BitmapEncoder#encode(Bitmap, Bitmap.CompressFormat, int)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testEncode_invalidArg_nullBitmap() {
+		encoder.encode(null, Bitmap.CompressFormat.JPEG, 90);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code quality} argument of
+	 * {@link BitmapEncoder#encode(Bitmap, Bitmap.CompressFormat, int)} is greater than 100.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testEncode_invalidArg_qualityTooHigh() {
+		encoder.encode(image, Bitmap.CompressFormat.JPEG, 101);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code targetSizeBytes}
+	 * argument of {@link BitmapEncoder#encodeToTargetSize(Bitmap, Bitmap.CompressFormat, int)} is
+	 * not greater than zero.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testEncodeToTargetSize_invalidArg_zeroTarget() {
+		encoder.encodeToTargetSize(image, Bitmap.CompressFormat.JPEG, 0);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code format} argument of
+	 * {@link BitmapEncoder#encodeToTargetSizeAsync(Bitmap, Bitmap.CompressFormat, int,
+	 * BitmapEncoder.Callback)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testEncodeToTargetSizeAsync_invalidArg_nullFormat() {
+		encoder.encodeToTargetSizeAsync(image, null, 1024, null);
+	}
+
+	/**
+	 * Test to verify that the {@link BitmapEncoder#encode(Bitmap, Bitmap.CompressFormat, int)}
+	 * method reports the size, quality, attempts and encode time of the result.
+	 */
+	@Test
+	public void testEncode_reportsSizeAndTime() {
+		final long startTime = System.nanoTime();
+		final BitmapEncoder.Result result = encoder.encode(image, Bitmap.CompressFormat.JPEG, 80);
+		final long elapsedMillis = (System.nanoTime() - startTime) / 1000000;
+
+		assertThat("Result should not be null.", result, is(notNullValue()));
+		assertThat("Wrong size.", result.getSizeBytes(), is(result.getData().length));
+		assertThat("Size should be greater than zero.", result.getSizeBytes(), is(greaterThan(0)));
+		assertThat("Wrong quality.", result.getQuality(), is(80));
+		assertThat("Wrong attempts.", result.getAttempts(), is(1));
+		assertThat("Negative encode time.", result.getEncodeTimeMillis(),
+				is(greaterThanOrEqualTo(0L)));
+		assertThat("Encode time exceeds elapsed time.", result.getEncodeTimeMillis(),
+				is(lessThanOrEqualTo(elapsedMillis)));
+	}
+
+	/**
+	 * Test to verify that the {@link BitmapEncoder#encodeToTargetSize(Bitmap,
+	 * Bitmap.CompressFormat, int)} method finds a quality which fits the target. The target is
+	 * the size produced by quality 50, which is the first quality the search tries, so the search
+	 * must settle on quality 50 or higher.
+	 */
+	@Test
+	public void testEncodeToTargetSize_reachableTarget() {
+		final int targetSizeBytes = encoder.encode(image, Bitmap.CompressFormat.JPEG, 50)
+				.getSizeBytes();
+
+		final BitmapEncoder.Result result = encoder.encodeToTargetSize(image, Bitmap
+				.CompressFormat.JPEG, targetSizeBytes);
+
+		assertThat("Result should not be null.", result, is(notNullValue()));
+		assertThat("Target was exceeded.", result.getSizeBytes(),
+				is(lessThanOrEqualTo(targetSizeBytes)));
+		assertThat("Quality was not maximised.", result.getQuality(),
+				is(greaterThanOrEqualTo(50)));
+		assertThat("Too many attempts.", result.getAttempts(),
+				is(lessThanOrEqualTo(MAX_SEARCH_ATTEMPTS)));
+		assertThat("Data does not match the reported quality.", result.getSizeBytes(), is(encoder
+				.encode(image, Bitmap.CompressFormat.JPEG, result.getQuality()).getSizeBytes()));
+	}
+
+	/**
+	 * Test to verify that the {@link BitmapEncoder#encodeToTargetSize(Bitmap,
+	 * Bitmap.CompressFormat, int)} method returns the lowest quality when the target cannot be
+	 * reached.
+	 */
+	@Test
+	public void testEncodeToTargetSize_unreachableTarget() {
+		final BitmapEncoder.Result result = encoder.encodeToTargetSize(image, Bitmap
+				.CompressFormat.JPEG, 1);
+
+		assertThat("Result should not be null.", result, is(notNullValue()));
+		assertThat("Wrong quality.", result.getQuality(), is(0));
+		assertThat("Wrong size.", result.getSizeBytes(), is(encoder.encode(image, Bitmap
+				.CompressFormat.JPEG, 0).getSizeBytes()));
+		assertThat("Wrong attempts.", result.getAttempts(), is(MAX_SEARCH_ATTEMPTS));
+	}
+
+	/**
+	 * Test to verify that the {@link BitmapEncoder#encodeToTargetSize(Bitmap,
+	 * Bitmap.CompressFormat, int)} method encodes PNG images once, since PNG ignores the quality
+	 * setting.
+	 */
+	@Test
+	public void testEncodeToTargetSize_pngEncodedOnce() {
+		final BitmapEncoder.Result result = encoder.encodeToTargetSize(image, Bitmap
+				.CompressFormat.PNG, 1);
+
+		assertThat("Result should not be null.", result, is(notNullValue()));
+		assertThat("Wrong attempts.", result.getAttempts(), is(1));
+		assertThat("Wrong quality.", result.getQuality(), is(100));
+	}
+
+	/**
+	 * Test to verify that asynchronous encodes run on the executor, and that the callback is
+	 * delivered from the executor thread when no callback thread is supplied.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the callback
+	 */
+	@Test
+	public void testEncodeToTargetSizeAsync_callbackDeliveredFromExecutor() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicReference<String> callbackThreadName = new AtomicReference<>();
+		final AtomicReference<BitmapEncoder.Result> callbackResult = new AtomicReference<>();
+
+		encoder.encodeToTargetSizeAsync(image, Bitmap.CompressFormat.JPEG, 16 * 1024, new
+				BitmapEncoder.Callback() {
+					@Override
+					public void onEncodeFinished(final BitmapEncoder encoder,
+							final BitmapEncoder.Result result) {
+						callbackThreadName.set(Thread.currentThread().getName());
+						callbackResult.set(result);
+						latch.countDown();
+					}
+				});
+
+		assertThat("Callback was not delivered.", latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+				is(true));
+		assertThat("Wrong callback thread.", callbackThreadName.get(), is(ENCODER_THREAD_NAME));
+		assertThat("Result should not be null.", callbackResult.get(), is(notNullValue()));
+	}
+
+	/**
+	 * Test to verify that the callback of an asynchronous encode is delivered through the
+	 * callback thread when one is supplied.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the callback
+	 */
+	@Test
+	public void testEncodeAsync_callbackDeliveredThroughCallbackThread() throws Exception {
+		final AtomicBoolean deliveredThroughUtil = new AtomicBoolean(false);
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		final BitmapEncoder encoderWithCallbackThread = new BitmapEncoder(executor, new
+				UiThreadUtil() {
+					@Override
+					public void runOnUiThread(final Runnable runnable) {
+						deliveredThroughUtil.set(true);
+						runnable.run();
+					}
+				});
+
+		encoderWithCallbackThread.encodeAsync(image, Bitmap.CompressFormat.JPEG, 80, new
+				BitmapEncoder.Callback() {
+					@Override
+					public void onEncodeFinished(final BitmapEncoder encoder,
+							final BitmapEncoder.Result result) {
+						latch.countDown();
+					}
+				});
+
+		assertThat("Callback was not delivered.", latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+				is(true));
+		assertThat("Callback bypassed the callback thread.", deliveredThroughUtil.get(),
+				is(true));
+	}
+}
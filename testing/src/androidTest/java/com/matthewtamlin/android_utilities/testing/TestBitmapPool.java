@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.testing;
+
+import android.graphics.Bitmap;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.android_utilities.library.utilities.BitmapPool;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Unit tests for the {@link BitmapPool} class.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestBitmapPool {
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code maxSizeBytes} argument
+	 * of {@link BitmapPool#BitmapPool(int)} is negative.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArg_negativeMaxSize() {
+		new BitmapPool(-1);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code config} argument of
+	 * {@link BitmapPool#get(int, int, Bitmap.Config)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testGet_invalidArg_nullConfig() {
+		new BitmapPool(1024).get(10, 10, null);
+	}
+
+	/**
+	 * Test to verify that a Bitmap returned to the pool is reused by a matching request.
+	 */
+	@Test
+	public void testGet_matchingBitmapIsReused() {
+		final BitmapPool pool = new BitmapPool(1024 * 1024);
+		final Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+
+		pool.put(bitmap);
+
+		assertThat("Bitmap was not reused.", pool.get(10, 10, Bitmap.Config.ARGB_8888),
+				is(sameInstance(bitmap)));
+		assertThat("Pool should be empty.", pool.getSizeBytes(), is(0));
+	}
+
+	/**
+	 * Test to verify that a Bitmap is not reused by a request with different dimensions.
+	 */
+	@Test
+	public void testGet_differentDimensionsAreNotReused() {
+		final BitmapPool pool = new BitmapPool(1024 * 1024);
+		final Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+
+		pool.put(bitmap);
+
+		assertThat("Bitmap was unexpectedly reused.", pool.getPooledOnly(10, 20,
+				Bitmap.Config.ARGB_8888), is(nullValue()));
+		assertThat("Bitmap was unexpectedly reused.", pool.get(10, 20, Bitmap.Config.ARGB_8888),
+				is(not(sameInstance(bitmap))));
+	}
+
+	/**
+	 * Test to verify that Bitmaps are recycled once the pool exceeds its byte budget.
+	 */
+	@Test
+	public void testPut_exceedingBudgetRecyclesOldestBitmap() {
+		// Each 10x10 ARGB_8888 bitmap occupies 400 bytes
+		final BitmapPool pool = new BitmapPool(500);
+		final Bitmap first = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+		final Bitmap second = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+
+		pool.put(first);
+		pool.put(second);
+
+		assertThat("Oldest bitmap was not recycled.", first.isRecycled(), is(true));
+		assertThat("Newest bitmap was recycled.", second.isRecycled(), is(false));
+		assertThat("Pool exceeded its budget.", pool.getSizeBytes(), is(400));
+	}
+}
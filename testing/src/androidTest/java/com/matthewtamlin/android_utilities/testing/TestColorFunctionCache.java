@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.testing;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.android_utilities.library.helpers.ColorHelper;
+import com.matthewtamlin.android_utilities.library.utilities.ColorFunctionCache;
+import com.matthewtamlin.android_utilities.library.utilities.ColorFunctionCache.ColorFunction;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit tests for the {@link ColorFunctionCache} class.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestColorFunctionCache {
+	/**
+	 * The capacity of the caches under test.
+	 */
+	private static final int CAPACITY = 64;
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code capacity} argument of
+	 * {@link ColorFunctionCache#ColorFunctionCache(int, ColorFunction)} is not greater than zero.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArg_zeroCapacity() {
+		ColorFunctionCache.forBestTextColor(0);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code function} argument of
+	 * {@link ColorFunctionCache#ColorFunctionCache(int, ColorFunction)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArg_nullFunction() {
+		new ColorFunctionCache(CAPACITY, null);
+	}
+
+	/**
+	 * Test to verify that the capacity is rounded up to a power of two.
+	 */
+	@Test
+	public void testGetCapacity() {
+		assertThat("incorrect capacity", ColorFunctionCache.forBestTextColor(50).getCapacity(),
+				is(CAPACITY));
+	}
+
+	/**
+	 * Test to verify that the function is only evaluated once for each color when the colors fit
+	 * in the cache, and that the statistics are updated.
+	 */
+	@Test
+	public void testGet_evaluatesOncePerColor() {
+		final int[] evaluationCount = new int[1];
+
+		final ColorFunctionCache cache = new ColorFunctionCache(CAPACITY, new ColorFunction() {
+			@Override
+			public int apply(final int color) {
+				evaluationCount[0]++;
+				return ColorHelper.calculateBestTextColor(color);
+			}
+		});
+
+		final int[] colors = {0xFFFFFFFF, 0xFF000000, 0xFF3F51B5, 0xFFFF4081};
+
+		for (int round = 0; round < 3; round++) {
+			for (final int color : colors) {
+				assertThat("incorrect result", cache.get(color),
+						is(ColorHelper.calculateBestTextColor(color)));
+			}
+		}
+
+		assertThat("function evaluated too often", evaluationCount[0], is(colors.length));
+		assertThat("incorrect miss count", cache.getMissCount(), is((long) colors.length));
+		assertThat("incorrect hit count", cache.getHitCount(), is((long) colors.length * 2));
+		assertThat("incorrect hit rate", cache.getHitRate(), is(2f / 3));
+
+		cache.clear();
+		cache.get(colors[0]);
+
+		assertThat("cache not cleared", evaluationCount[0], is(colors.length + 1));
+	}
+
+	/**
+	 * Test to verify that the cache returns correct results when many more colors are used than
+	 * can be cached.
+	 */
+	@Test
+	public void testGet_moreColorsThanCapacity() {
+		final ColorFunctionCache cache = ColorFunctionCache.forBestTextColor(CAPACITY);
+		final Random random = new Random(42);
+
+		for (int i = 0; i < CAPACITY * 100; i++) {
+			final int color = random.nextInt();
+
+			assertThat("incorrect result", cache.get(color),
+					is(ColorHelper.calculateBestTextColor(color)));
+		}
+	}
+}
@@ -16,6 +16,9 @@
 
 package com.matthewtamlin.android_utilities.testing;
 
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Rect;
 import android.support.test.runner.AndroidJUnit4;
 
 
@@ -24,8 +27,20 @@ import com.matthewtamlin.android_utilities.library.helpers.ColorHelper;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeThat;
 
 /**
  * Unit tests for the {@link ColorHelper} class.
@@ -43,6 +58,31 @@ public class TestColorHelper {
 	 */
 	private static final int color2 = 0x00000000;
 
+	/**
+	 * The step between component values when testing a grid of colors.
+	 */
+	private static final int LUMINANCE_GRID_STEP = 3;
+
+	/**
+	 * The seed used to generate random colors, so that failures are reproducible.
+	 */
+	private static final long BLEND_SEED = 42;
+
+	/**
+	 * The length of the arrays used when testing the array blending methods.
+	 */
+	private static final int BLEND_ARRAY_LENGTH = 1000;
+
+	/**
+	 * The width and height of the bitmaps used when testing palette extraction.
+	 */
+	private static final int PALETTE_BITMAP_SIZE = 200;
+
+	/**
+	 * The tolerance used when comparing contrast ratios, which are calculated in single precision.
+	 */
+	private static final double CONTRAST_RATIO_TOLERANCE = 0.001;
+
 	/**
 	 * Test to verify that the correct exception is thrown when the {@code ratio} argument of {@link
 	 * ColorHelper#blendColors(int, int, float)} is less than zero.
@@ -96,4 +136,524 @@ public class TestColorHelper {
 
 		assertThat("Colors did not blend correctly.", blendedColor, is(0x7F7F7F7F));
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Test to verify that the correct exception is thrown when the arrays passed to {@link
+	 * ColorHelper#blendColors(int[], int[], float, int[])} are not the same length.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testBlendColorsArray_invalidArg_mismatchedLengths() {
+		ColorHelper.blendColors(new int[2], new int[3], 0.5f, new int[2]);
+	}
+
+	/**
+	 * Test to verify that each of the array blending methods produces exactly the same colors as
+	 * {@link ColorHelper#blendColors(int, int, float)}.
+	 */
+	@Test
+	public void testBlendColorsArray_matchesSingleBlend() {
+		final Random random = new Random(BLEND_SEED);
+		final int[] colors1 = randomColors(random, BLEND_ARRAY_LENGTH);
+		final int[] colors2 = randomColors(random, BLEND_ARRAY_LENGTH);
+		final float[] ratios = new float[BLEND_ARRAY_LENGTH];
+		final int[] output = new int[BLEND_ARRAY_LENGTH];
+
+		for (int i = 0; i < ratios.length; i++) {
+			ratios[i] = random.nextFloat();
+		}
+
+		ColorHelper.blendColors(colors1, colors2, 0.3f, output);
+
+		for (int i = 0; i < output.length; i++) {
+			assertThat("Pairwise blend is incorrect.", output[i], is(ColorHelper.blendColors
+					(colors1[i], colors2[i], 0.3f)));
+		}
+
+		ColorHelper.blendColors(colors1, color1, 0.6f, output);
+
+		for (int i = 0; i < output.length; i++) {
+			assertThat("Constant blend is incorrect.", output[i], is(ColorHelper.blendColors
+					(colors1[i], color1, 0.6f)));
+		}
+
+		ColorHelper.blendColors(colors1, colors2, ratios, output);
+
+		for (int i = 0; i < output.length; i++) {
+			assertThat("Per-element blend is incorrect.", output[i], is(ColorHelper.blendColors
+					(colors1[i], colors2[i], ratios[i])));
+		}
+	}
+
+	/**
+	 * Test to verify that the {@link ColorHelper#blendColors(IntBuffer, IntBuffer, float,
+	 * IntBuffer)} method produces the same colors as the array method, for both heap and direct
+	 * buffers.
+	 */
+	@Test
+	public void testBlendColorsBuffer_matchesArrayBlend() {
+		final Random random = new Random(BLEND_SEED);
+		final int[] colors1 = randomColors(random, BLEND_ARRAY_LENGTH);
+		final int[] colors2 = randomColors(random, BLEND_ARRAY_LENGTH);
+		final int[] expected = new int[BLEND_ARRAY_LENGTH];
+		ColorHelper.blendColors(colors1, colors2, 0.7f, expected);
+
+		final IntBuffer heapOutput = IntBuffer.allocate(BLEND_ARRAY_LENGTH);
+		ColorHelper.blendColors(IntBuffer.wrap(colors1), IntBuffer.wrap(colors2), 0.7f,
+				heapOutput);
+
+		assertThat("Heap buffer blend is incorrect.", Arrays.equals(heapOutput.array(),
+				expected));
+
+		final IntBuffer directOutput = ByteBuffer.allocateDirect(BLEND_ARRAY_LENGTH * 4)
+				.asIntBuffer();
+		ColorHelper.blendColors(IntBuffer.wrap(colors1), IntBuffer.wrap(colors2), 0.7f,
+				directOutput);
+
+		final int[] directResult = new int[BLEND_ARRAY_LENGTH];
+		directOutput.get(directResult);
+
+		assertThat("Direct buffer blend is incorrect.", Arrays.equals(directResult, expected));
+	}
+
+	/**
+	 * Test to verify that the {@link ColorHelper#blendColorsInParallel(int[], int[], float, int[],
+	 * ExecutorService)} method produces the same colors as the sequential method for an array
+	 * which is large enough to be split.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	public void testBlendColorsInParallel_matchesSequentialBlend() throws Exception {
+		final int length = ColorHelper.PARALLEL_BLEND_CHUNK_SIZE * 4 + 1;
+		final Random random = new Random(BLEND_SEED);
+		final int[] colors1 = randomColors(random, length);
+		final int[] colors2 = randomColors(random, length);
+		final int[] expected = new int[length];
+		final int[] actual = new int[length];
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			ColorHelper.blendColors(colors1, colors2, 0.25f, expected);
+			ColorHelper.blendColorsInParallel(colors1, colors2, 0.25f, actual, executor);
+		} finally {
+			executor.shutdown();
+		}
+
+		assertThat("Parallel blend is incorrect.", Arrays.equals(actual, expected));
+	}
+
+	/**
+	 * Test to verify that the {@link ColorHelper#blendColorsInParallel(int[], int[], float, int[],
+	 * ExecutorService)} method cancels the chunks it submitted when the calling thread is
+	 * interrupted while waiting for them. The executor is kept busy so that the chunks cannot
+	 * start before the interrupt.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	public void testBlendColorsInParallel_interrupted_cancelsChunks() throws Exception {
+		// The array is only split if there is more than one processor
+		assumeThat(Runtime.getRuntime().availableProcessors() > 1, is(true));
+
+		final int length = ColorHelper.PARALLEL_BLEND_CHUNK_SIZE * 4;
+		final int[] colors = new int[length];
+		final int[] output = new int[length];
+		Arrays.fill(colors, color1);
+
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		final CountDownLatch releaseLatch = new CountDownLatch(1);
+
+		try {
+			executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						releaseLatch.await();
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+
+			Thread.currentThread().interrupt();
+
+			try {
+				ColorHelper.blendColorsInParallel(colors, colors, 0.5f, output, executor);
+				fail("Blend was not interrupted.");
+			} catch (final InterruptedException e) {
+				// Expected
+			}
+		} finally {
+			// Clear the interrupt in case the blend did not consume it
+			Thread.interrupted();
+			releaseLatch.countDown();
+			executor.shutdown();
+		}
+
+		assertThat("Executor did not finish.", executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertThat("Cancelled chunk was blended.", output[length - 1], is(0));
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code ratio} argument of
+	 * {@link ColorHelper#blendColorsFixedPoint(int, int, int)} is greater than 256.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testBlendColorsFixedPoint_invalidArg_ratioGreaterThanOne() {
+		ColorHelper.blendColorsFixedPoint(color1, color2, ColorHelper.FIXED_POINT_RATIO_ONE + 1);
+	}
+
+	/**
+	 * Test to verify that the {@link ColorHelper#blendColorsFixedPoint(int, int, int)} method
+	 * produces exactly the same colors as {@link ColorHelper#blendColors(int, int, float)} when
+	 * the float ratio is a multiple of 1/256, and colors within 1 of each component otherwise.
+	 */
+	@Test
+	public void testBlendColorsFixedPoint_matchesFloatBlend() {
+		final Random random = new Random(BLEND_SEED);
+		final int[] colors1 = randomColors(random, BLEND_ARRAY_LENGTH);
+		final int[] colors2 = randomColors(random, BLEND_ARRAY_LENGTH);
+
+		for (int ratio = 0; ratio <= ColorHelper.FIXED_POINT_RATIO_ONE; ratio++) {
+			for (int i = 0; i < BLEND_ARRAY_LENGTH; i++) {
+				final int expected = ColorHelper.blendColors(colors1[i], colors2[i], ratio / 256f);
+				final int actual = ColorHelper.blendColorsFixedPoint(colors1[i], colors2[i],
+						ratio);
+
+				assertThat("Fixed-point blend is incorrect.", actual, is(expected));
+			}
+		}
+
+		for (int i = 0; i < BLEND_ARRAY_LENGTH; i++) {
+			final float ratio = random.nextFloat();
+			final int expected = ColorHelper.blendColors(colors1[i], colors2[i], ratio);
+			final int actual = ColorHelper.blendColorsFixedPoint(colors1[i], colors2[i],
+					ColorHelper.toFixedPointRatio(ratio));
+
+			for (int shift = 0; shift < 32; shift += 8) {
+				final int error = Math.abs(((expected >>> shift) & 0xFF) - ((actual >>> shift) &
+						0xFF));
+				assertThat("Fixed-point blend error is too large.", error <= 1);
+			}
+		}
+	}
+
+	/**
+	 * Test to verify that the {@link ColorHelper#calculateBestTextColor(int)} method returns the
+	 * same result as the original implementation, which converted each component using {@link
+	 * Math#pow(double, double)}, across a grid of background colors.
+	 */
+	@Test
+	public void testCalculateBestTextColor_matchesOriginalImplementation() {
+		for (int r = 0; r < 256; r += LUMINANCE_GRID_STEP) {
+			for (int g = 0; g < 256; g += LUMINANCE_GRID_STEP) {
+				for (int b = 0; b < 256; b += LUMINANCE_GRID_STEP) {
+					final int color = Color.rgb(r, g, b);
+
+					final int expected = calculateBestTextColorUsingPow(color);
+					final int actual = ColorHelper.calculateBestTextColor(color);
+
+					assertThat("Wrong text color for " + Integer.toHexString(color), actual,
+							is(expected));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test to verify that the {@link ColorHelper#relativeLuminance(int)} method returns the
+	 * extreme values for black and white.
+	 */
+	@Test
+	public void testRelativeLuminance_blackAndWhite() {
+		assertThat("Wrong luminance for black.", ColorHelper.relativeLuminance(Color.BLACK),
+				is(0f));
+		assertThat("Wrong luminance for white.", ColorHelper.relativeLuminance(Color.WHITE),
+				is(1f));
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code bitmap} argument of
+	 * {@link ColorHelper#extractPalette(Bitmap)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testExtractPalette_invalidArg_nullBitmap() {
+		ColorHelper.extractPalette(null);
+	}
+
+	/**
+	 * Test to verify that the {@link ColorHelper#extractPalette(Bitmap)} method finds the
+	 * dominant, vibrant and muted colors of a bitmap made of three bands of solid color.
+	 */
+	@Test
+	public void testExtractPalette_solidBands() {
+		final int gray = 0xFF848484;
+		final int red = 0xFFFF0000;
+		final int blue = 0xFF0000FF;
+		final Bitmap bitmap = createBandedBitmap(gray, red, blue);
+
+		final ColorHelper.Palette palette = ColorHelper.extractPalette(bitmap);
+
+		assertThat("Wrong swatch count.", palette.getSwatchCount(), is(3));
+		assertThat("Wrong dominant color.", palette.getDominantColor(0), is(gray));
+		assertThat("Wrong vibrant color.", palette.getVibrantColor(0), is(red));
+		assertThat("Wrong muted color.", palette.getMutedColor(0), is(gray));
+	}
+
+	/**
+	 * Test to verify that the {@link ColorHelper#extractPalette(Bitmap)} method returns the
+	 * default colors for a bitmap without any opaque pixels.
+	 */
+	@Test
+	public void testExtractPalette_transparentBitmap() {
+		final Bitmap bitmap = Bitmap.createBitmap(PALETTE_BITMAP_SIZE, PALETTE_BITMAP_SIZE,
+				Bitmap.Config.ARGB_8888);
+
+		final ColorHelper.Palette palette = ColorHelper.extractPalette(bitmap);
+
+		assertThat("Wrong swatch count.", palette.getSwatchCount(), is(0));
+		assertThat("Wrong dominant color.", palette.getDominantColor(color1), is(color1));
+		assertThat("Wrong vibrant color.", palette.getVibrantColor(color1), is(color1));
+		assertThat("Wrong muted color.", palette.getMutedColor(color1), is(color1));
+	}
+
+	/**
+	 * Test to verify that the {@link ColorHelper#extractPalette(Bitmap, ExecutorService)} method
+	 * produces the same palette as {@link ColorHelper#extractPalette(Bitmap)} for a bitmap which
+	 * is large enough to be split between threads.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	public void testExtractPalette_parallelMatchesSequential() throws Exception {
+		// Narrow enough that every row is sampled, so that there are enough rows to split
+		final int width = 100;
+		final int height = 1000;
+		final Bitmap bitmap = Bitmap.createBitmap(randomColors(new Random(BLEND_SEED), width *
+				height), width, height, Bitmap.Config.ARGB_8888);
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		final ColorHelper.Palette expected;
+		final ColorHelper.Palette actual;
+
+		try {
+			expected = ColorHelper.extractPalette(bitmap);
+			actual = ColorHelper.extractPalette(bitmap, executor);
+		} finally {
+			executor.shutdown();
+		}
+
+		assertThat("Wrong swatch count.", actual.getSwatchCount(), is(expected.getSwatchCount()));
+
+		for (int i = 0; i < expected.getSwatchCount(); i++) {
+			assertThat("Wrong swatch color.", actual.getSwatchColor(i),
+					is(expected.getSwatchColor(i)));
+			assertThat("Wrong swatch population.", actual.getSwatchPopulation(i),
+					is(expected.getSwatchPopulation(i)));
+		}
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code region} argument of
+	 * {@link ColorHelper#calculateAverageLuminance(Bitmap, Rect, int, int[])} extends beyond the
+	 * bitmap.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testCalculateAverageLuminance_invalidArg_regionOutsideBitmap() {
+		final Bitmap bitmap = createBandedBitmap(Color.WHITE, Color.WHITE, Color.WHITE);
+
+		ColorHelper.calculateAverageLuminance(bitmap, new Rect(0, 0, PALETTE_BITMAP_SIZE + 1,
+				PALETTE_BITMAP_SIZE), 1, null);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code buffer} argument of
+	 * {@link ColorHelper#calculateAverageLuminance(Bitmap, Rect, int, int[])} is too short.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testCalculateAverageLuminance_invalidArg_bufferTooShort() {
+		final Bitmap bitmap = createBandedBitmap(Color.WHITE, Color.WHITE, Color.WHITE);
+		final Rect region = new Rect(0, 0, PALETTE_BITMAP_SIZE, PALETTE_BITMAP_SIZE);
+		final int[] buffer = new int[ColorHelper.calculateRegionBufferSize(region, 2) - 1];
+
+		ColorHelper.calculateAverageLuminance(bitmap, region, 2, buffer);
+	}
+
+	/**
+	 * Test to verify that the region methods only sample the region, and that the average, the
+	 * percentiles and the best text color reflect the sampled pixels.
+	 */
+	@Test
+	public void testRegionLuminance_bandedBitmap() {
+		// 70% white, 30% black
+		final Bitmap bitmap = createBandedBitmap(Color.WHITE, Color.BLACK, Color.BLACK);
+		final Rect whole = new Rect(0, 0, PALETTE_BITMAP_SIZE, PALETTE_BITMAP_SIZE);
+		final Rect bottom = new Rect(0, PALETTE_BITMAP_SIZE * 8 / 10, PALETTE_BITMAP_SIZE,
+				PALETTE_BITMAP_SIZE);
+		final int[] buffer = new int[ColorHelper.calculateRegionBufferSize(whole, 2)];
+
+		assertThat("Wrong average.", ColorHelper.calculateAverageLuminance(bitmap, whole, 2,
+				buffer), is(0.7f));
+		assertThat("Wrong low percentile.", ColorHelper.calculateLuminancePercentile(bitmap,
+				whole, 0.1f, 2, buffer), is(0f));
+		assertThat("Wrong median.", ColorHelper.calculateLuminancePercentile(bitmap, whole, 0.5f,
+				2, buffer), is(1f));
+		assertThat("Wrong text color for light region.", ColorHelper.calculateBestTextColor(
+				bitmap, whole, 2, buffer), is(Color.BLACK));
+		assertThat("Wrong text color for dark region.", ColorHelper.calculateBestTextColor(
+				bitmap, bottom, 2, buffer), is(Color.WHITE));
+	}
+
+	/**
+	 * Test to verify that sampling a region with a stride gives the same average as sampling
+	 * every pixel at that stride individually.
+	 */
+	@Test
+	public void testCalculateAverageLuminance_matchesPixelByPixel() {
+		final int width = 400;
+		final int height = 300;
+		final int stride = 4;
+		final int[] pixels = randomColors(new Random(BLEND_SEED), width * height);
+		final Bitmap bitmap = Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+		final Rect region = new Rect(17, 33, 391, 250);
+		final int[] buffer = new int[ColorHelper.calculateRegionBufferSize(region, stride)];
+
+		double luminanceSum = 0;
+		int sampleCount = 0;
+
+		for (int y = region.top; y < region.bottom; y += stride) {
+			for (int x = region.left; x < region.right; x += stride) {
+				luminanceSum += ColorHelper.relativeLuminance(bitmap.getPixel(x, y));
+				sampleCount++;
+			}
+		}
+
+		final float average = ColorHelper.calculateAverageLuminance(bitmap, region, stride,
+				buffer);
+
+		assertThat("Wrong average.", average, is((float) (luminanceSum / sampleCount)));
+	}
+
+	/**
+	 * Test to verify that the {@link ColorHelper#calculateContrastRatio(int, int)} method returns
+	 * the values given by the WCAG 2.0 specification, regardless of the order of the colors.
+	 */
+	@Test
+	public void testCalculateContrastRatio() {
+		assertThat("Wrong ratio for black on white.", (double) ColorHelper.calculateContrastRatio(
+				Color.BLACK, Color.WHITE), closeTo(21, CONTRAST_RATIO_TOLERANCE));
+		assertThat("Wrong ratio for white on black.", (double) ColorHelper.calculateContrastRatio(
+				Color.WHITE, Color.BLACK), closeTo(21, CONTRAST_RATIO_TOLERANCE));
+		assertThat("Wrong ratio for identical colors.", (double) ColorHelper
+				.calculateContrastRatio(0xFF3F51B5, 0xFF3F51B5), closeTo(1,
+				CONTRAST_RATIO_TOLERANCE));
+		assertThat("Wrong ratio for gray on white.", (double) ColorHelper.calculateContrastRatio(
+				0xFF777777, Color.WHITE), closeTo(4.48, 0.01));
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code candidates} argument of
+	 * {@link ColorHelper#findBestContrastingColor(int, int[], float)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindBestContrastingColor_invalidArg_nullCandidates() {
+		ColorHelper.findBestContrastingColor(Color.WHITE, null,
+				ColorHelper.WCAG_AA_CONTRAST_RATIO);
+	}
+
+	/**
+	 * Test to verify that the {@link ColorHelper#findBestContrastingColor(int, int[], float)}
+	 * method returns the candidate with the highest contrast, and returns -1 when no candidate
+	 * meets the minimum ratio.
+	 */
+	@Test
+	public void testFindBestContrastingColor() {
+		final int[] candidates = {0xFFFFEB3B, 0xFF3F51B5, 0xFF212121, 0xFFBDBDBD};
+
+		assertThat("Wrong candidate for white background.", ColorHelper.findBestContrastingColor(
+				Color.WHITE, candidates, ColorHelper.WCAG_AA_CONTRAST_RATIO), is(2));
+		assertThat("Wrong candidate for black background.", ColorHelper.findBestContrastingColor(
+				Color.BLACK, candidates, ColorHelper.WCAG_AA_CONTRAST_RATIO), is(0));
+		assertThat("Wrong candidate for unreachable ratio.", ColorHelper.findBestContrastingColor(
+				0xFF9E9E9E, candidates, ColorHelper.WCAG_AAA_CONTRAST_RATIO), is(-1));
+		assertThat("Wrong candidate for empty palette.", ColorHelper.findBestContrastingColor(
+				Color.WHITE, new int[0], 1), is(-1));
+	}
+
+	/**
+	 * Creates an array of random colors.
+	 *
+	 * @param random
+	 * 		the source of randomness
+	 * @param length
+	 * 		the length of the array
+	 * @return the array of colors
+	 */
+	private static int[] randomColors(final Random random, final int length) {
+		final int[] colors = new int[length];
+
+		for (int i = 0; i < length; i++) {
+			colors[i] = random.nextInt();
+		}
+
+		return colors;
+	}
+
+	/**
+	 * Creates a bitmap made of three horizontal bands of solid color, covering 70%, 20% and 10%
+	 * of the bitmap respectively.
+	 *
+	 * @param top
+	 * 		the color of the top band
+	 * @param middle
+	 * 		the color of the middle band
+	 * @param bottom
+	 * 		the color of the bottom band
+	 * @return the bitmap
+	 */
+	private static Bitmap createBandedBitmap(final int top, final int middle, final int bottom) {
+		final int size = PALETTE_BITMAP_SIZE;
+		final int[] pixels = new int[size * size];
+
+		Arrays.fill(pixels, 0, size * size * 7 / 10, top);
+		Arrays.fill(pixels, size * size * 7 / 10, size * size * 9 / 10, middle);
+		Arrays.fill(pixels, size * size * 9 / 10, size * size, bottom);
+
+		return Bitmap.createBitmap(pixels, size, size, Bitmap.Config.ARGB_8888);
+	}
+
+	/**
+	 * The original implementation of {@link ColorHelper#calculateBestTextColor(int)}, used as a
+	 * reference.
+	 *
+	 * @param backgroundColor
+	 * 		the color of the background behind the text, as an ARGB hex code
+	 * @return white (0xFFFFFF) or black (0x000000)
+	 */
+	private static int calculateBestTextColorUsingPow(final int backgroundColor) {
+		final float[] preConversionValues = {((float) Color.red(backgroundColor)) / 255,
+				((float) Color.green(backgroundColor)) / 255,
+				((float) Color.blue(backgroundColor)) / 255};
+
+		final float[] postConversionValues = new float[3];
+
+		for (int i = 0; i < 3; i++) {
+			final float x = preConversionValues[i];
+
+			if (x <= 0.04045) {
+				postConversionValues[i] = (float) (x / 12.92);
+			} else {
+				postConversionValues[i] = (float) Math.pow((x + 0.055) / 1.055, 2.4);
+			}
+		}
+
+		final float luminance = (float) (0.2126 * postConversionValues[0] +
+				0.7152 * postConversionValues[1] +
+				0.0722 * postConversionValues[2]);
+
+		return luminance > 0.179 ? Color.BLACK : Color.WHITE;
+	}
+}
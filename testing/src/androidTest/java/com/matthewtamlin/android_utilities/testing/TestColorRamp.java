@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.testing;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.android_utilities.library.helpers.ColorHelper;
+import com.matthewtamlin.android_utilities.library.utilities.ColorRamp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Unit tests for the {@link ColorRamp} class.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestColorRamp {
+	/**
+	 * The number of steps in the ramps under test.
+	 */
+	private static final int STEPS = 101;
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code colors} argument of
+	 * {@link ColorRamp#ColorRamp(int, int...)} contains fewer than 2 colors.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArg_singleColor() {
+		new ColorRamp(STEPS, 0xFFFF0000);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code steps} argument of
+	 * {@link ColorRamp#ColorRamp(int, int...)} is less than 2.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArg_tooFewSteps() {
+		new ColorRamp(1, 0xFFFF0000, 0xFF0000FF);
+	}
+
+	/**
+	 * Test to verify that a two color ramp matches {@link ColorHelper#blendColors(int, int,
+	 * float)} at every step, and that the ends of the ramp are the supplied colors.
+	 */
+	@Test
+	public void testGetColor_twoColors() {
+		final int start = 0xFFFF0000;
+		final int end = 0x800000FF;
+		final ColorRamp ramp = new ColorRamp(STEPS, start, end);
+
+		assertThat("incorrect step count", ramp.getStepCount(), is(STEPS));
+		assertThat("incorrect start color", ramp.getColor(0), is(start));
+		assertThat("incorrect end color", ramp.getColor(1), is(end));
+
+		for (int i = 0; i < STEPS; i++) {
+			final float fraction = (float) i / (STEPS - 1);
+			final int expected = ColorHelper.blendColors(start, end, fraction);
+
+			assertThat("incorrect color at step " + i, ramp.getColorAtStep(i), is(expected));
+			assertThat("incorrect color at fraction " + fraction, ramp.getColor(fraction),
+					is(expected));
+		}
+	}
+
+	/**
+	 * Test to verify that the intermediate colors of a multi-color ramp are reached at evenly
+	 * spaced points, and that fractions outside the ramp are clamped.
+	 */
+	@Test
+	public void testGetColor_multipleColors() {
+		final int red = 0xFFFF0000;
+		final int green = 0xFF00FF00;
+		final int blue = 0xFF0000FF;
+		final ColorRamp ramp = new ColorRamp(STEPS, red, green, blue);
+
+		assertThat("incorrect start color", ramp.getColor(0), is(red));
+		assertThat("incorrect middle color", ramp.getColor(0.5f), is(green));
+		assertThat("incorrect end color", ramp.getColor(1), is(blue));
+		assertThat("fraction below range not clamped", ramp.getColor(-1), is(red));
+		assertThat("fraction above range not clamped", ramp.getColor(2), is(blue));
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code step} argument of
+	 * {@link ColorRamp#getColorAtStep(int)} is out of range.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetColorAtStep_invalidArg_outOfRange() {
+		new ColorRamp(STEPS, 0xFFFF0000, 0xFF0000FF).getColorAtStep(STEPS);
+	}
+
+	/**
+	 * Test to verify that the evaluator returns the ramp colors, and returns the same instance for
+	 * repeated frames so that no memory is allocated.
+	 */
+	@Test
+	public void testEvaluator() {
+		final ColorRamp ramp = new ColorRamp(STEPS, 0xFFFF0000, 0xFF0000FF);
+		final ColorRamp.Evaluator evaluator = ramp.createEvaluator();
+
+		for (int i = 0; i < STEPS; i++) {
+			final float fraction = (float) i / (STEPS - 1);
+			final Integer first = evaluator.evaluate(fraction, 0, 0);
+
+			assertThat("incorrect color", first, is(ramp.getColor(fraction)));
+			assertThat("new instance allocated", evaluator.evaluate(fraction, 0, 0),
+					sameInstance(first));
+		}
+	}
+}
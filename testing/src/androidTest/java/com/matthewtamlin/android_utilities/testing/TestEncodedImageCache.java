@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.testing;
+
+import android.graphics.Bitmap;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.android_utilities.library.utilities.EncodedImageCache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Unit tests for the {@link EncodedImageCache} class.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestEncodedImageCache {
+	/**
+	 * The budget of the cache under test, measured in bytes.
+	 */
+	private static final int MAX_SIZE_BYTES = 64 * 1024;
+
+	/**
+	 * The width of the test image, measured in pixels.
+	 */
+	private static final int IMAGE_WIDTH = 120;
+
+	/**
+	 * The height of the test image, measured in pixels.
+	 */
+	private static final int IMAGE_HEIGHT = 80;
+
+	/**
+	 * A color to fill the test image with, as an ARGB hex code.
+	 */
+	private static final int TEST_COLOR = 0xFF336699;
+
+	/**
+	 * The cache under test.
+	 */
+	private EncodedImageCache cache;
+
+	/**
+	 * An image to use in testing.
+	 */
+	private Bitmap image;
+
+	/**
+	 * Initialises the testing environment.
+	 */
+	@Before
+	public void setup() {
+		cache = new EncodedImageCache(MAX_SIZE_BYTES);
+		image = Bitmap.createBitmap(IMAGE_WIDTH, IMAGE_HEIGHT, Bitmap.Config.ARGB_8888);
+		image.eraseColor(TEST_COLOR);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code maxSizeBytes} argument
+	 * of {@link EncodedImageCache#EncodedImageCache(int)} is not greater than zero.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArg_zeroMaxSize() {
+		new EncodedImageCache(0);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code key} argument of {@link
+	 * EncodedImageCache#put(String, byte[])} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testPut_invalidArg_nullKey() {
+		cache.put(null, new byte[1]);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code encodedData} argument of
+	 * {@link EncodedImageCache#put(String, byte[])} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testPut_invalidArg_nullData() {
+		cache.put("key", (byte[]) null);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code quality} argument of
+	 * {@link EncodedImageCache#put(String, Bitmap, Bitmap.CompressFormat, int)} is greater than
+	 * 100.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testPutBitmap_invalidArg_qualityTooHigh() {
+		cache.put("key", image, Bitmap.CompressFormat.JPEG, 101);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code format} argument of
+	 * {@link EncodedImageCache#put(String, Bitmap, Bitmap.CompressFormat, int)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testPutBitmap_invalidArg_nullFormat() {
+		cache.put("key", image, null, 90);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code desWidth} argument of
+	 * {@link EncodedImageCache#decode(String, int, int)} is negative.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecode_invalidArg_negativeWidth() {
+		cache.decode("key", -1, 10);
+	}
+
+	/**
+	 * Test to verify that encoded data which is put into the cache decodes to an image with the
+	 * original dimensions.
+	 */
+	@Test
+	public void testPutThenDecode_dimensionsRoundTrip() {
+		assertThat("Data was not cached.", cache.put("key", encode(image)), is(true));
+
+		final Bitmap decoded = cache.decode("key", IMAGE_WIDTH, IMAGE_HEIGHT);
+
+		assertThat("Decoded image should not be null.", decoded, is(notNullValue()));
+		assertThat("Wrong width.", decoded.getWidth(), is(IMAGE_WIDTH));
+		assertThat("Wrong height.", decoded.getHeight(), is(IMAGE_HEIGHT));
+		assertThat("Wrong pixels.", decoded.getPixel(IMAGE_WIDTH / 2, IMAGE_HEIGHT / 2),
+				is(TEST_COLOR));
+	}
+
+	/**
+	 * Test to verify that decoding with smaller desired dimensions sub-samples the cached image.
+	 */
+	@Test
+	public void testDecode_subSamples() {
+		cache.put("key", encode(image));
+
+		final Bitmap decoded = cache.decode("key", IMAGE_WIDTH / 2, IMAGE_HEIGHT / 2);
+
+		assertThat("Wrong width.", decoded.getWidth(), is(IMAGE_WIDTH / 2));
+		assertThat("Wrong height.", decoded.getHeight(), is(IMAGE_HEIGHT / 2));
+	}
+
+	/**
+	 * Test to verify that a downsampled Bitmap which is re-encoded by {@link
+	 * EncodedImageCache#put(String, Bitmap, Bitmap.CompressFormat, int)} decodes to the
+	 * downsampled dimensions, and is stored as the encoded data.
+	 */
+	@Test
+	public void testPutBitmap_reEncodedDownsampledImage() {
+		final Bitmap downsampled = Bitmap.createScaledBitmap(image, IMAGE_WIDTH / 4,
+				IMAGE_HEIGHT / 4, true);
+
+		assertThat("Bitmap was not cached.", cache.put("key", downsampled, Bitmap.CompressFormat
+				.PNG, 100), is(true));
+
+		final byte[] encoded = cache.getEncoded("key");
+		final Bitmap decoded = cache.decode("key", IMAGE_WIDTH, IMAGE_HEIGHT);
+
+		assertThat("Encoded data should not be null.", encoded, is(notNullValue()));
+		assertThat("Wrong size.", cache.getSizeBytes(), is(encoded.length));
+		assertThat("Wrong width.", decoded.getWidth(), is(IMAGE_WIDTH / 4));
+		assertThat("Wrong height.", decoded.getHeight(), is(IMAGE_HEIGHT / 4));
+	}
+
+	/**
+	 * Test to verify that data larger than the entire budget is not cached.
+	 */
+	@Test
+	public void testPut_dataLargerThanBudget() {
+		assertThat("Oversized data was cached.", cache.put("key", new byte[MAX_SIZE_BYTES + 1]),
+				is(false));
+		assertThat("Size should be zero.", cache.getSizeBytes(), is(0));
+	}
+
+	/**
+	 * Test to verify that the least recently used entry is evicted once the byte budget is
+	 * exceeded.
+	 */
+	@Test
+	public void testPut_exceedingBudgetEvictsLeastRecentlyUsed() {
+		final int entrySize = MAX_SIZE_BYTES / 3;
+
+		cache.put("first", new byte[entrySize]);
+		cache.put("second", new byte[entrySize]);
+		cache.put("third", new byte[entrySize]);
+		cache.getEncoded("first");
+		cache.put("fourth", new byte[entrySize]);
+
+		assertThat("Recently used entry was evicted.", cache.getEncoded("first"),
+				is(notNullValue()));
+		assertThat("Least recently used entry was not evicted.", cache.getEncoded("second"),
+				is(nullValue()));
+		assertThat("Budget was exceeded.", cache.getSizeBytes(), is(entrySize * 3));
+	}
+
+	/**
+	 * Test to verify that lookups are counted as hits and misses, including lookups made when
+	 * decoding.
+	 */
+	@Test
+	public void testHitAndMissCounts() {
+		cache.put("key", encode(image));
+
+		cache.getEncoded("key");
+		cache.decode("key", IMAGE_WIDTH, IMAGE_HEIGHT);
+		cache.getEncoded("missing");
+		cache.decode("missing", IMAGE_WIDTH, IMAGE_HEIGHT);
+		cache.remove("key");
+		cache.getEncoded("key");
+
+		assertThat("Wrong hit count.", cache.getHitCount(), is(2));
+		assertThat("Wrong miss count.", cache.getMissCount(), is(3));
+	}
+
+	/**
+	 * Encodes an image as a PNG.
+	 *
+	 * @param bitmap
+	 * 		the image to encode
+	 * @return the encoded data
+	 */
+	private static byte[] encode(final Bitmap bitmap) {
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
+		return stream.toByteArray();
+	}
+}
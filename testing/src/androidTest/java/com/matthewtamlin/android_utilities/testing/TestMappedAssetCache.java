@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.testing;
+
+import android.content.res.AssetManager;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.android_utilities.library.utilities.MappedAssetCache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit tests for the {@link MappedAssetCache} class.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestMappedAssetCache {
+	/**
+	 * An asset which is stored uncompressed in the APK, and can therefore be mapped.
+	 */
+	private static final String UNCOMPRESSED_ASSET = "image.png";
+
+	/**
+	 * An asset which is stored compressed in the APK, and therefore cannot be mapped.
+	 */
+	private static final String COMPRESSED_ASSET = "small test file.txt";
+
+	/**
+	 * Provides access to the test assets.
+	 */
+	private AssetManager assets;
+
+	/**
+	 * The cache under test.
+	 */
+	private MappedAssetCache cache;
+
+	/**
+	 * Initialises the testing environment.
+	 */
+	@Before
+	public void setup() {
+		// Use this context instead of the target context so that the test assets can be accessed
+		assets = InstrumentationRegistry.getContext().getAssets();
+		cache = new MappedAssetCache(assets);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code assetManager} argument
+	 * of {@link MappedAssetCache#MappedAssetCache(AssetManager)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArg_nullAssetManager() {
+		new MappedAssetCache(null);
+	}
+
+	/**
+	 * Test to verify that the {@link MappedAssetCache#map(String)} method returns a read-only view
+	 * containing exactly the contents of the asset, and that the mapping is cached.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	public void testMap_uncompressedAsset() throws Exception {
+		final ByteBuffer view = cache.map(UNCOMPRESSED_ASSET);
+		final byte[] expected = readAsset(UNCOMPRESSED_ASSET);
+
+		assertThat("View is not read-only.", view.isReadOnly());
+		assertThat("View has the wrong length.", view.remaining(), is(expected.length));
+
+		final byte[] actual = new byte[view.remaining()];
+		view.get(actual);
+
+		assertThat("View has the wrong contents.", Arrays.equals(actual, expected));
+		assertThat("Mapping was not cached.", cache.isMapped(UNCOMPRESSED_ASSET));
+
+		// A second view must be independent of the first, which has been fully consumed
+		assertThat("Views share a position.", cache.map(UNCOMPRESSED_ASSET).position(), is(0));
+		assertThat("Mapping was duplicated.", cache.size(), is(1));
+	}
+
+	/**
+	 * Test to verify that the {@link MappedAssetCache#map(String)} method throws a
+	 * FileNotFoundException when the asset is compressed.
+	 *
+	 * @throws Exception
+	 * 		the method under test will throw this exception
+	 */
+	@Test(expected = FileNotFoundException.class)
+	public void testMap_compressedAsset() throws Exception {
+		cache.map(COMPRESSED_ASSET);
+	}
+
+	/**
+	 * Test to verify that the {@link MappedAssetCache#release(String)} method removes the mapping
+	 * from the cache.
+	 *
+	 * @throws Exception
+	 * 		the method under test may throw this exception if some operation fails
+	 */
+	@Test
+	public void testRelease() throws Exception {
+		cache.map(UNCOMPRESSED_ASSET);
+
+		assertThat("Mapping was not released.", cache.release(UNCOMPRESSED_ASSET));
+		assertThat("Mapping is still cached.", !cache.isMapped(UNCOMPRESSED_ASSET));
+	}
+
+	/**
+	 * Reads the entire contents of an asset.
+	 *
+	 * @param assetName
+	 * 		the name of the asset to read
+	 * @return the contents of the asset
+	 * @throws IOException
+	 * 		if the asset cannot be read
+	 */
+	private byte[] readAsset(final String assetName) throws IOException {
+		final InputStream stream = assets.open(assetName);
+		final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+
+		try {
+			final byte[] buffer = new byte[1024];
+			int numberOfBytesRead;
+
+			while ((numberOfBytesRead = stream.read(buffer)) != -1) {
+				contents.write(buffer, 0, numberOfBytesRead);
+			}
+		} finally {
+			stream.close();
+		}
+
+		return contents.toByteArray();
+	}
+}
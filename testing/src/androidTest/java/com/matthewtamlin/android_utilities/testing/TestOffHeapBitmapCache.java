@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.testing;
+
+import android.graphics.Bitmap;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.android_utilities.library.utilities.BitmapPool;
+import com.matthewtamlin.android_utilities.library.utilities.OffHeapBitmapCache;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Unit tests for the {@link OffHeapBitmapCache} class.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestOffHeapBitmapCache {
+	/**
+	 * A color to fill test bitmaps with, as an ARGB hex code.
+	 */
+	private static final int TEST_COLOR = 0xFF336699;
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code maxSizeBytes} argument
+	 * of {@link OffHeapBitmapCache#OffHeapBitmapCache(int)} is negative.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArg_negativeMaxSize() {
+		new OffHeapBitmapCache(-1);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code key} argument of {@link
+	 * OffHeapBitmapCache#put(String, Bitmap)} is null.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testPut_invalidArg_nullKey() {
+		new OffHeapBitmapCache(1024).put(null, Bitmap.createBitmap(1, 1, Bitmap.Config
+				.ARGB_8888));
+	}
+
+	/**
+	 * Test to verify that a recycled Bitmap is not cached.
+	 */
+	@Test
+	public void testPut_recycledBitmap() {
+		final OffHeapBitmapCache cache = new OffHeapBitmapCache(1024);
+		final Bitmap bitmap = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+		bitmap.recycle();
+
+		assertThat("Recycled bitmap was cached.", cache.put("key", bitmap), is(false));
+		assertThat("Size should be zero.", cache.getSizeBytes(), is(0));
+	}
+
+	/**
+	 * Test to verify that cached pixels are restored correctly into a pooled Bitmap.
+	 */
+	@Test
+	public void testPutThenGet_pixelsAreRestored() {
+		final OffHeapBitmapCache cache = new OffHeapBitmapCache(1024 * 1024);
+		final Bitmap original = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+		original.eraseColor(TEST_COLOR);
+
+		assertThat("Pixels were not cached.", cache.put("key", original), is(true));
+		original.recycle();
+
+		final Bitmap restored = cache.get("key", new BitmapPool(1024 * 1024));
+
+		assertThat("Restored bitmap should not be null.", restored, is(notNullValue()));
+		assertThat("Width was not restored.", restored.getWidth(), is(10));
+		assertThat("Height was not restored.", restored.getHeight(), is(10));
+		assertThat("Pixels were not restored.", restored.getPixel(5, 5), is(TEST_COLOR));
+	}
+
+	/**
+	 * Test to verify that the least recently used entry is evicted once the budget is exceeded.
+	 */
+	@Test
+	public void testPut_exceedingBudgetEvictsLeastRecentlyUsed() {
+		// Each 10x10 ARGB_8888 bitmap occupies 400 bytes
+		final OffHeapBitmapCache cache = new OffHeapBitmapCache(1000);
+		final Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+
+		cache.put("first", bitmap);
+		cache.put("second", bitmap);
+		cache.get("first", null);
+		cache.put("third", bitmap);
+
+		assertThat("Recently used entry was evicted.", cache.contains("first"), is(true));
+		assertThat("Least recently used entry was not evicted.", cache.get("second", null),
+				is(nullValue()));
+		assertThat("Budget was exceeded.", cache.getSizeBytes(), is(800));
+	}
+}
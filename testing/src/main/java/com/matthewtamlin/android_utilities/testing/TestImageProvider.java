@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.android_utilities.testing;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import com.matthewtamlin.android_utilities.library.helpers.BitmapEfficiencyHelper;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * A content provider which serves files from the cache directory, for testing the content Uri
+ * methods of {@link BitmapEfficiencyHelper}. Uris of the form {@code
+ * content://[AUTHORITY]/file/[name]} are served as seekable file descriptors, and Uris of the
+ * form {@code content://[AUTHORITY]/pipe/[name]} are served through a pipe which can only be read
+ * once.
+ */
+public class TestImageProvider extends ContentProvider {
+	/**
+	 * The authority of this provider, as declared in the manifest.
+	 */
+	public static final String AUTHORITY = "com.matthewtamlin.android_utilities.testing.images";
+
+	/**
+	 * Used during debugging to identify this class.
+	 */
+	private static final String TAG = "[TestImageProvider]";
+
+	/**
+	 * The first path segment of Uris which are served as seekable file descriptors.
+	 */
+	private static final String FILE_PATH = "file";
+
+	/**
+	 * The first path segment of Uris which are served through a pipe.
+	 */
+	private static final String PIPE_PATH = "pipe";
+
+	/**
+	 * Creates a Uri which serves a cache file as a seekable file descriptor.
+	 *
+	 * @param fileName
+	 * 		the name of the file in the cache directory
+	 * @return the Uri
+	 */
+	public static Uri createFileUri(final String fileName) {
+		return new Uri.Builder().scheme("content").authority(AUTHORITY).appendPath(FILE_PATH)
+				.appendPath(fileName).build();
+	}
+
+	/**
+	 * Creates a Uri which serves a cache file through a pipe.
+	 *
+	 * @param fileName
+	 * 		the name of the file in the cache directory
+	 * @return the Uri
+	 */
+	public static Uri createPipeUri(final String fileName) {
+		return new Uri.Builder().scheme("content").authority(AUTHORITY).appendPath(PIPE_PATH)
+				.appendPath(fileName).build();
+	}
+
+	@Override
+	public boolean onCreate() {
+		return true;
+	}
+
+	@Override
+	public ParcelFileDescriptor openFile(final Uri uri, final String mode) throws
+			FileNotFoundException {
+		final List<String> segments = uri.getPathSegments();
+
+		if (segments.size() != 2) {
+			throw new FileNotFoundException("unknown uri " + uri);
+		}
+
+		final File file = new File(getContext().getCacheDir(), segments.get(1));
+
+		if (FILE_PATH.equals(segments.get(0))) {
+			return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+		} else if (PIPE_PATH.equals(segments.get(0))) {
+			return openPipe(file);
+		} else {
+			throw new FileNotFoundException("unknown uri " + uri);
+		}
+	}
+
+	@Override
+	public Cursor query(final Uri uri, final String[] projection, final String selection,
+			final String[] selectionArgs, final String sortOrder) {
+		return null;
+	}
+
+	@Override
+	public String getType(final Uri uri) {
+		return "image/png";
+	}
+
+	@Override
+	public Uri insert(final Uri uri, final ContentValues values) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public int delete(final Uri uri, final String selection, final String[] selectionArgs) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public int update(final Uri uri, final ContentValues values, final String selection,
+			final String[] selectionArgs) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Creates a pipe and writes the contents of a file into it on a background thread.
+	 *
+	 * @param file
+	 * 		the file to write into the pipe
+	 * @return the read end of the pipe
+	 * @throws FileNotFoundException
+	 * 		if the file does not exist or the pipe cannot be created
+	 */
+	private static ParcelFileDescriptor openPipe(final File file) throws FileNotFoundException {
+		final InputStream input = new FileInputStream(file);
+		final ParcelFileDescriptor[] pipe;
+
+		try {
+			pipe = ParcelFileDescriptor.createPipe();
+		} catch (final IOException e) {
+			closeQuietly(input);
+			throw new FileNotFoundException("could not create pipe: " + e.getMessage());
+		}
+
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				final OutputStream output = new ParcelFileDescriptor.AutoCloseOutputStream(pipe[1]);
+
+				try {
+					final byte[] buffer = new byte[8192];
+					int numberOfBytesRead;
+
+					while ((numberOfBytesRead = input.read(buffer)) != -1) {
+						output.write(buffer, 0, numberOfBytesRead);
+					}
+				} catch (final IOException e) {
+					// Expected if the reader closes the pipe early
+					Log.w(TAG, "[Pipe closed early for: " + file + "]", e);
+				} finally {
+					closeQuietly(input);
+					closeQuietly(output);
+				}
+			}
+		}).start();
+
+		return pipe[0];
+	}
+
+	/**
+	 * Closes a stream and logs any failure.
+	 *
+	 * @param stream
+	 * 		the stream to close
+	 */
+	private static void closeQuietly(final Closeable stream) {
+		try {
+			stream.close();
+		} catch (final IOException e) {
+			Log.e(TAG, "[Error closing stream: " + stream + "]", e);
+		}
+	}
+}